@@ -12,7 +12,6 @@ import nl.NG.Jetfightergame.Rendering.Particles.ParticleCloud;
 import nl.NG.Jetfightergame.Rendering.Particles.Particles;
 import nl.NG.Jetfightergame.Sound.AudioSource;
 import nl.NG.Jetfightergame.Sound.Sounds;
-import nl.NG.Jetfightergame.Tools.DataStructures.PairList;
 import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
 import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
 import org.joml.Quaternionf;
@@ -105,6 +104,11 @@ public abstract class AbstractProjectile extends MovingEntity implements Tempora
         this.controller = con;
     }
 
+    /** @return the entity this projectile is aimed at, or null if it has no target */
+    public MovingEntity getTarget() {
+        return target;
+    }
+
     @Override
     public void applyPhysics(DirVector netForce) {
         float deltaTime = gameTimer.getGameTime().difference();
@@ -214,10 +218,9 @@ public abstract class AbstractProjectile extends MovingEntity implements Tempora
     protected abstract void collideWithOther(Touchable other);
 
     @Override
-    protected PairList<PosVector, PosVector> calculateHitpointMovement() {
-        PairList<PosVector, PosVector> pairs = new PairList<>(1);
-        pairs.add(position, extraPosition);
-        return pairs;
+    protected float[] createLocalHitpoints() {
+        // only the origin of a projectile hits
+        return new float[3];
     }
 
     /** a controller that returns throttle = 1, and 0 for all else */
@@ -36,6 +36,12 @@ public abstract class AbstractShield extends MovingEntity implements TemporalEnt
         this.scale = jet.getRange() * 1.2f;
     }
 
+    @Override
+    protected boolean hasConstantShape() {
+        // the shape rotates over time
+        return false;
+    }
+
     @Override
     public void create(MatrixStack ms, Consumer<Shape> action) {
         ms.pushMatrix();
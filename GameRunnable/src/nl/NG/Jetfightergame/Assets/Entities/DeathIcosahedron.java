@@ -132,6 +132,12 @@ public class DeathIcosahedron extends AbstractProjectile {
         } while (seekerTimeRemain < 0);
     }
 
+    @Override
+    protected boolean hasConstantShape() {
+        // the shape rotates over time
+        return false;
+    }
+
     @Override
     public void create(MatrixStack ms, Consumer<Shape> action) {
         ms.pushMatrix();
@@ -51,6 +51,8 @@ public abstract class AbstractJet extends MovingEntity {
     private static final float BOOSTER_PITCH = 4f;
     private static final float PITCH_RAISE_FACTOR = 0.8f;
     public static final float BOOSTER_GAIN = 2f;
+    /** the number of floats of {@link #getPhysicsState(float[], int)} */
+    public static final int PHYSICS_STATE_SIZE = 13;
     protected final float airResistCoeff;
 
     protected final float throttlePower;
@@ -75,6 +77,8 @@ public abstract class AbstractJet extends MovingEntity {
     private DirVector forward;
     private VectorInterpolator forwardInterpolator;
     private VectorInterpolator velocityInterpolator;
+    /** whether the states of this jet are predicted by the client, and thus not behind the game time */
+    private volatile boolean isPredicted = false;
 
     private PowerupType currentPowerup = PowerupType.NONE;
     protected Color4f color;
@@ -147,7 +151,7 @@ public abstract class AbstractJet extends MovingEntity {
         float deltaTime = gameTimer.getGameTime().difference();
         speedModifiers.removeIf(p -> p.right < time);
 
-        gyroPhysics(deltaTime, netForce, velocity);
+        gyroPhysics(deltaTime, netForce, velocity, controller);
 
         relativeDirection(DirVector.xVector()).normalize(forward);
         if (currentPowerup != PowerupType.NONE && controller.primaryFire()) {
@@ -169,13 +173,97 @@ public abstract class AbstractJet extends MovingEntity {
         return getTarget(getForward(), getPosition(), entityMapping);
     }
 
+    /**
+     * moves this jet according to the given controls, as {@link #applyPhysics(DirVector)} followed by {@link #update()}
+     * would, but without using powerups. This allows a client to predict its own jet before the server has received
+     * the controls.
+     * @param controls  the controls to apply, which are not updated
+     * @param netForce  accumulated external forces on this jet
+     * @param deltaTime the time to simulate in seconds
+     */
+    public void predict(Controller controls, DirVector netForce, float deltaTime) {
+        extraPosition.set(position);
+        extraRotation.set(rotation);
+        extraVelocity.set(velocity);
+
+        gyroPhysics(deltaTime, new DirVector(netForce), velocity, controls);
+        update();
+        relativeDirection(DirVector.xVector()).normalize(forward);
+    }
+
+    /**
+     * writes the state that determines the movement of this jet: x, y, z of the position, x, y, z, w of the rotation,
+     * x, y, z of the velocity, and the yaw, pitch and roll speeds.
+     * @param dest   the array to write {@link #PHYSICS_STATE_SIZE} floats to
+     * @param offset the index of dest of the first float
+     */
+    public void getPhysicsState(float[] dest, int offset) {
+        dest[offset] = position.x;
+        dest[offset + 1] = position.y;
+        dest[offset + 2] = position.z;
+        dest[offset + 3] = rotation.x;
+        dest[offset + 4] = rotation.y;
+        dest[offset + 5] = rotation.z;
+        dest[offset + 6] = rotation.w;
+        dest[offset + 7] = velocity.x;
+        dest[offset + 8] = velocity.y;
+        dest[offset + 9] = velocity.z;
+        dest[offset + 10] = yawSpeed;
+        dest[offset + 11] = pitchSpeed;
+        dest[offset + 12] = rollSpeed;
+    }
+
+    /**
+     * sets the state that determines the movement of this jet, without affecting the rendered states
+     * @param src    an array holding a state as written by {@link #getPhysicsState(float[], int)}
+     * @param offset the index of src of the first float
+     */
+    public void setPhysicsState(float[] src, int offset) {
+        extraPosition.set(src[offset], src[offset + 1], src[offset + 2]);
+        extraRotation.set(src[offset + 3], src[offset + 4], src[offset + 5], src[offset + 6]);
+        extraVelocity.set(src[offset + 7], src[offset + 8], src[offset + 9]);
+        yawSpeed = src[offset + 10];
+        pitchSpeed = src[offset + 11];
+        rollSpeed = src[offset + 12];
+        update();
+        relativeDirection(DirVector.xVector()).normalize(forward);
+    }
+
+    /**
+     * adds the current state as state point for rendering. Unlike {@link #addStatePoint(float, PosVector,
+     * Quaternionf)}, the velocity is not derived from the state points, as it is known.
+     * @param currentTime the time of the current state
+     */
+    public void addPredictedStatePoint(float currentTime) {
+        DirVector knownVelocity = new DirVector(velocity);
+        addStatePoint(currentTime, new PosVector(position), new Quaternionf(rotation));
+        velocity.set(knownVelocity);
+    }
+
+    /**
+     * @param isPredicted if true, the state points of this jet are added by a prediction on the current game time, and
+     *                    this jet is rendered without the render delay
+     * @see #addPredictedStatePoint(float)
+     */
+    public void setPredicted(boolean isPredicted) {
+        this.isPredicted = isPredicted;
+    }
+
+    @Override
+    protected Float renderTime() {
+        Float renderTime = super.renderTime();
+        // the game time of the last frame, as the render time runs behind by the render delay
+        return isPredicted ? (renderTime + gameTimer.getRenderDelay()) : renderTime;
+    }
+
     /**
      * physics model where input deterministically determines the plane rotation.
-     * @param deltaTime timestamp in seconds
-     * @param netForce  vector of force in N
-     * @param velocity  movement vector with length in (m/s)
+     * @param deltaTime  timestamp in seconds
+     * @param netForce   vector of force in N
+     * @param velocity   movement vector with length in (m/s)
+     * @param controller the controls of the pilot
      */
-    private void gyroPhysics(float deltaTime, DirVector netForce, DirVector velocity) {
+    private void gyroPhysics(float deltaTime, DirVector netForce, DirVector velocity, Controller controller) {
         DirVector temp = new DirVector();
 
         // thrust forces
@@ -240,9 +328,11 @@ public abstract class AbstractJet extends MovingEntity {
         super.addStatePoint(currentTime, newPosition, newRotation);
         forward = DirVector.xVector();
         forward.rotate(rotation);
-        forwardInterpolator.add(new DirVector(forward), currentTime);
-
         velocity.set(super.velocityAtRenderTime());
+        // headless clients keep no interpolation
+        if (entityDeposit.isHeadless()) return;
+
+        forwardInterpolator.add(new DirVector(forward), currentTime);
         velocityInterpolator.add(new DirVector(velocity), currentTime);
     }
 
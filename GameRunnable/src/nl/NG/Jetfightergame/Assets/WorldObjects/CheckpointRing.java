@@ -1,5 +1,6 @@
 package nl.NG.Jetfightergame.Assets.WorldObjects;
 
+import nl.NG.Jetfightergame.EntityGeneral.Hitbox.CollisionBuffer;
 import nl.NG.Jetfightergame.Primitives.Plane;
 import nl.NG.Jetfightergame.Rendering.MatrixStack.GL2;
 import nl.NG.Jetfightergame.ShapeCreation.CustomShape;
@@ -90,6 +91,11 @@ public class CheckpointRing implements Shape {
             protected boolean encapsulates(PosVector hitPos) {
                 return hitPos.lengthSquared() < 1;
             }
+
+            @Override
+            protected boolean encapsulates(float x, float y, float z) {
+                return (x * x + y * y + z * z) < 1;
+            }
         };
     }
 
@@ -98,6 +104,11 @@ public class CheckpointRing implements Shape {
         return Collections.singleton(hitPlane);
     }
 
+    @Override
+    public boolean checkCollision(CollisionBuffer query) {
+        return hitPlane.checkCollision(query);
+    }
+
     @Override
     public Iterable<PosVector> getPoints() {
         return Collections.EMPTY_LIST;
@@ -6,6 +6,10 @@ import nl.NG.Jetfightergame.Tools.Logger;
 import nl.NG.Jetfightergame.Tools.Timer;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
 import java.util.function.Supplier;
 
 
@@ -19,7 +23,7 @@ import java.util.function.Supplier;
 public abstract class AbstractGameLoop extends Thread {
     private Float targetDeltaMillis;
     private CountDownLatch pauseBlock = new CountDownLatch(0);
-    private boolean shouldStop;
+    private volatile boolean shouldStop;
     private boolean isPaused = true;
     private final boolean notifyDelay;
 
@@ -27,6 +31,12 @@ public abstract class AbstractGameLoop extends Thread {
     private AveragingQueue avgPoss;
     private final Supplier<String> tickCounter;
     private final Supplier<String> possessionCounter;
+    /** receives the duration of every update in nanoseconds, or null if these are not measured */
+    private volatile LongConsumer tickListener = null;
+    /** is run after {@link #cleanup()} when this loop terminates, or null if no one is notified */
+    private volatile Runnable stopListener = null;
+    /** the updates of this loop on a shared pool, or null if this loop runs on its own thread */
+    private ScheduledFuture<?> scheduled = null;
 
     /**
      * creates a new, paused gameloop
@@ -86,7 +96,7 @@ public abstract class AbstractGameLoop extends Thread {
                 loopTimer.updateLoopTime();
 
                 // do stuff
-                update(deltaTime);
+                timedUpdate(deltaTime);
 
                 if (Thread.interrupted()) break;
 
@@ -122,12 +132,90 @@ public abstract class AbstractGameLoop extends Thread {
             Logger.removeOnlineUpdate(tickCounter);
             Logger.removeOnlineUpdate(possessionCounter);
             cleanup();
+            notifyStopped();
         }
 
         // terminate engine
         Logger.DEBUG.print(this + " is stopped");
     }
 
+    /**
+     * runs this loop on the given pool instead of on its own thread, such that many loops share a few threads. An
+     * update that takes longer than the target time delays the next update of this loop, but not those of other loops.
+     * The loop ends like a loop on its own thread, after which it is removed from the pool. This loop must not be
+     * started as thread as well, and {@link #setTPS(int)} has no effect after calling this method.
+     * @param pool the threads that execute the updates
+     */
+    public synchronized void startOn(ScheduledExecutorService pool) {
+        if (scheduled != null) throw new IllegalStateException(this + " is already scheduled");
+        if (ServerSettings.DEBUG) Logger.DEBUG.print(this + " enabled on a shared pool");
+
+        Logger.printOnline(tickCounter);
+        Logger.printOnline(possessionCounter);
+
+        Timer loopTimer = new Timer();
+        long period = (long) (targetDeltaMillis * 1000);
+        scheduled = pool.scheduleAtFixedRate(() -> scheduledUpdate(loopTimer), period, period, TimeUnit.MICROSECONDS);
+    }
+
+    /** executes one update of a loop on a pool */
+    private void scheduledUpdate(Timer loopTimer) {
+        loopTimer.updateLoopTime();
+        if (shouldStop) {
+            terminate();
+            return;
+        }
+
+        // paused loops skip their updates
+        if (pauseBlock.getCount() > 0) {
+            isPaused = true;
+            return;
+        }
+        isPaused = false;
+
+        try {
+            float deltaTime = loopTimer.getElapsedSeconds();
+            timedUpdate(deltaTime);
+
+            // a late update is followed by updates that catch up
+            if (deltaTime > 0) avgTPS.add(1f / deltaTime);
+            avgPoss.add(loopTimer.getTimeSinceLastUpdate() / targetDeltaMillis);
+
+        } catch (Exception ex) {
+            Logger.ERROR.print(this + " has Crashed! Blame Menno.");
+            exceptionHandler(ex);
+            terminate();
+        }
+    }
+
+    /** ends a loop on a pool, on the thread of its last update */
+    private synchronized void terminate() {
+        scheduled.cancel(false);
+        Logger.removeOnlineUpdate(tickCounter);
+        Logger.removeOnlineUpdate(possessionCounter);
+        cleanup();
+        notifyStopped();
+        Logger.DEBUG.print(this + " is stopped");
+    }
+
+    private void notifyStopped() {
+        Runnable listener = stopListener;
+        if (listener != null) listener.run();
+    }
+
+    /** executes the update, and measures it if a listener is set */
+    private void timedUpdate(float deltaTime) throws Exception {
+        LongConsumer listener = tickListener;
+        if (listener == null) {
+            update(deltaTime);
+
+        } else {
+            long start = System.nanoTime();
+            update(deltaTime);
+            listener.accept(System.nanoTime() - start);
+        }
+    }
+
     /**
      * is executed after printing the stacktrace
      * @param ex the exception that caused the crash
@@ -160,6 +248,27 @@ public abstract class AbstractGameLoop extends Thread {
         return isPaused && (pauseBlock.getCount() > 0);
     }
 
+    /** @return true if {@link #stopLoop()} has been called, even if the current update has not finished yet */
+    public boolean isStopping() {
+        return shouldStop;
+    }
+
+    /**
+     * @param listener receives the duration of every following update in nanoseconds, on the thread of this loop. May
+     *                 be null to stop measuring
+     */
+    public void setTickListener(LongConsumer listener) {
+        this.tickListener = listener;
+    }
+
+    /**
+     * @param listener is run once when this loop has terminated and is cleaned up, on the thread of its last update.
+     *                 May be null to notify no one
+     */
+    public void setStopListener(Runnable listener) {
+        this.stopListener = listener;
+    }
+
     public void setTPS(int TPS) {
         this.targetDeltaMillis = 1000f/TPS;
     }
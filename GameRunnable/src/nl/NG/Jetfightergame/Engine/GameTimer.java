@@ -21,6 +21,13 @@ public class GameTimer {
     protected final TrackedFloat gameTime;
     protected final TrackedFloat renderTime;
     protected boolean isPaused = false;
+    /** the number of game-seconds per second */
+    protected float rate = 1;
+    /** the part of an offset that has not yet been applied, and the maximum part applied per second */
+    protected float slewRemaining = 0;
+    protected float slewRate = 0;
+    /** the time the render timer runs behind the game timer */
+    protected volatile float renderDelay = RENDER_DELAY;
 
     public GameTimer() {
         this(0f);
@@ -40,7 +47,7 @@ public class GameTimer {
 
     public void updateRenderTime(){
         updateTimer();
-        renderTime.update(currentInGameTime - RENDER_DELAY);
+        renderTime.update(currentInGameTime - renderDelay);
     }
 
     public TrackedFloat getGameTime(){
@@ -63,7 +70,17 @@ public class GameTimer {
         float deltaTime = (currentTime - lastMark) * MUL_TO_SECONDS;
         lastMark = currentTime;
 
-        if (!isPaused) currentInGameTime += deltaTime;
+        if (isPaused) return;
+        float step = deltaTime * rate;
+
+        if (slewRemaining != 0) {
+            float max = deltaTime * slewRate;
+            float correction = Math.max(-max, Math.min(max, slewRemaining));
+            slewRemaining -= correction;
+            step += correction;
+        }
+
+        currentInGameTime += step;
     }
 
     /** stops the in-game time */
@@ -85,10 +102,43 @@ public class GameTimer {
         currentInGameTime += offset;
     }
 
+    /**
+     * offsets the in-game time gradually, by speeding up or slowing down the time instead of jumping. Replaces the part
+     * of a previous offset that has not been applied yet.
+     * @param offset  the total offset to apply
+     * @param maxRate the maximum offset applied per second. If less than 1, the time never runs backwards
+     */
+    public void slew(float offset, float maxRate){
+        updateTimer();
+        slewRemaining = offset;
+        slewRate = maxRate;
+    }
+
+    /**
+     * @param rate the number of in-game seconds that pass per second, to follow a clock that runs faster or slower
+     */
+    public void setRate(float rate){
+        updateTimer();
+        this.rate = rate;
+    }
+
+    /**
+     * @param delay the time the render timer runs behind the game timer, such that there are states to interpolate
+     *              between
+     */
+    public void setRenderDelay(float delay){
+        renderDelay = delay;
+    }
+
+    public float getRenderDelay(){
+        return renderDelay;
+    }
+
     /** sets the ingame time to the given time */
     public void set(float time){
         updateTimer();
         currentInGameTime = time;
+        slewRemaining = 0;
 
         updateGameTime();
         updateRenderTime();
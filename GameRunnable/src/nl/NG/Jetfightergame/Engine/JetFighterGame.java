@@ -25,7 +25,7 @@ import nl.NG.Jetfightergame.Sound.SoundEngine;
 import nl.NG.Jetfightergame.Sound.Sounds;
 import nl.NG.Jetfightergame.Tools.Directory;
 import nl.NG.Jetfightergame.Tools.Logger;
-import nl.NG.Jetfightergame.Tools.StreamPipe;
+import nl.NG.Jetfightergame.Tools.RingPipe;
 import nl.NG.Jetfightergame.Tools.Toolbox;
 import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
 import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
@@ -111,6 +111,10 @@ public class JetFighterGame {
             if (!doReplay) {
                 OutputStream sendChannel;
                 InputStream receiveChannel;
+                // the address of a server reached through a socket, which is asked for datagrams
+                InetAddress serverAddress = null;
+                // passes the snapshots of a server in this process
+                LocalLink localLink = null;
 
                 if (hostAddress == null) {
                     Logger.INFO.print("Creating new local server");
@@ -118,19 +122,23 @@ public class JetFighterGame {
                     JetFighterServer server = new JetFighterServer(map, doStore);
 
                     if (ClientSettings.USE_SOCKET_FOR_OFFLINE) {
-                        new Thread(server::listenForHost).start();
+                        server.expectHost();
 
                         Socket client = new Socket(InetAddress.getLocalHost(), ServerSettings.SERVER_PORT);
+                        serverAddress = client.getInetAddress();
                         sendChannel = client.getOutputStream();
                         receiveChannel = client.getInputStream();
+                        JetFighterProtocol.roomRequestSend(sendChannel, JetFighterProtocol.DEFAULT_ROOM);
 
                     } else {
-                        StreamPipe serverToClient = new StreamPipe(1024);
-                        StreamPipe clientToServer = new StreamPipe(256);
+                        RingPipe serverToClient = new RingPipe(1 << 12);
+                        RingPipe clientToServer = new RingPipe(1 << 16);
 
                         InputStream serverReceive = serverToClient.getInputStream();
                         OutputStream serverSend = clientToServer.getOutputStream();
-                        new Thread(() -> server.shortConnect(serverReceive, serverSend, true)).start();
+                        LocalLink link = new LocalLink();
+                        localLink = link;
+                        new Thread(() -> server.shortConnect(serverReceive, serverSend, true, link)).start();
 
                         sendChannel = serverToClient.getOutputStream();
                         receiveChannel = clientToServer.getInputStream();
@@ -156,9 +164,13 @@ public class JetFighterGame {
 
                     sendChannel = socket.getOutputStream();
                     receiveChannel = socket.getInputStream();
+                    serverAddress = socket.getInetAddress();
+                    JetFighterProtocol.roomRequestSend(sendChannel, ClientSettings.SERVER_ROOM);
                 }
 
                 connection = new ClientConnection(playerName, sendChannel, receiveChannel, ClientSettings.JET_TYPE, JET_COLOR);
+                if (serverAddress != null) connection.openDatagramChannel(serverAddress);
+                if (localLink != null) connection.openLocalLink(localLink);
                 otherLoops.add(connection);
                 Logger.printOnline(() -> connection.getTimer().toString());
 
@@ -180,6 +180,11 @@ public class StateReader extends ClientConnection {
         soundSources.add(new AudioSource(getWorld().backgroundMusic(), BACKGROUND_MUSIC_GAIN, true));
     }
 
+    @Override
+    protected void acknowledgeSnapshot(int snapshotNumber) {
+        // a recording only contains full snapshots
+    }
+
     @Override
     public AbstractJet jet() {
         return focusJet;
@@ -1,7 +1,5 @@
 package nl.NG.Jetfightergame.Engine;
 
-import static nl.NG.Jetfightergame.Settings.ClientSettings.RENDER_DELAY;
-
 /**
  * adds a fixed timestamp every loop. this results in slowdown when collisions ramp up and results in deterministic behaviour
  * @author Geert van Ieperen
@@ -26,6 +24,6 @@ public class StaticTimer extends GameTimer {
 
     @Override
     public void updateRenderTime() {
-        renderTime.update(currentInGameTime - RENDER_DELAY);
+        renderTime.update(currentInGameTime - renderDelay);
     }
 }
@@ -0,0 +1,75 @@
+package nl.NG.Jetfightergame.EntityGeneral.Hitbox;
+
+import nl.NG.Jetfightergame.Primitives.Plane;
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+
+/**
+ * reusable state of a line piece versus shape check. The line piece is given in the local space of the shape, and the
+ * first hit found so far is stored in primitive fields, such that no objects are created until a {@link Collision} is
+ * actually required. Instances are not thread-safe.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class CollisionBuffer {
+    public float startX, startY, startZ;
+    public float endX, endY, endZ;
+
+    private float timeScalar;
+    private float hitX, hitY, hitZ;
+    private Plane hitPlane;
+
+    public CollisionBuffer() {
+        reset();
+    }
+
+    /** forgets the stored hit */
+    public void reset() {
+        timeScalar = Float.POSITIVE_INFINITY;
+        hitPlane = null;
+    }
+
+    /** sets the line piece to check, without changing the stored hit */
+    public void setLine(PosVector start, PosVector end) {
+        startX = start.x;
+        startY = start.y;
+        startZ = start.z;
+        endX = end.x;
+        endY = end.y;
+        endZ = end.z;
+    }
+
+    /** @return true iff a hit with the given scalar would be strictly earlier than the stored hit */
+    public boolean isEarlier(float scalar) {
+        return scalar < timeScalar;
+    }
+
+    /**
+     * stores the given hit, replacing any previous hit
+     * @param scalar the fraction of the line where the plane is hit
+     * @param plane  the plane that is hit
+     */
+    public void set(float scalar, float x, float y, float z, Plane plane) {
+        timeScalar = scalar;
+        hitX = x;
+        hitY = y;
+        hitZ = z;
+        hitPlane = plane;
+    }
+
+    /** @return true iff a hit is stored */
+    public boolean hasHit() {
+        return hitPlane != null;
+    }
+
+    /** @return the scalar of the stored hit, or positive infinity if there is none */
+    public float timeScalar() {
+        return timeScalar;
+    }
+
+    /**
+     * @return a new collision of the stored hit, in local space of the shape
+     * @throws NullPointerException if no hit is stored
+     */
+    public Collision toCollision() {
+        return new Collision(timeScalar, hitPlane.getNormal(), new PosVector(hitX, hitY, hitZ));
+    }
+}
@@ -4,6 +4,7 @@ import nl.NG.Jetfightergame.Assets.Entities.AbstractProjectile;
 import nl.NG.Jetfightergame.Engine.GameTimer;
 import nl.NG.Jetfightergame.EntityGeneral.Factory.EntityFactory;
 import nl.NG.Jetfightergame.EntityGeneral.Hitbox.Collision;
+import nl.NG.Jetfightergame.EntityGeneral.Hitbox.CollisionBuffer;
 import nl.NG.Jetfightergame.EntityGeneral.Powerups.PowerupEntity;
 import nl.NG.Jetfightergame.GameState.SpawnReceiver;
 import nl.NG.Jetfightergame.Rendering.MatrixStack.GL2;
@@ -19,6 +20,7 @@ import nl.NG.Jetfightergame.Tools.Toolbox;
 import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
 import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
 import nl.NG.Jetfightergame.Tools.Vectors.Vector;
+import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
 
@@ -34,6 +36,9 @@ import static java.lang.StrictMath.sqrt;
  * @author Geert van Ieperen created on 29-10-2017.
  */
 public abstract class MovingEntity implements Touchable {
+    /** as collision checks run in parallel, every thread reuses its own state */
+    private static final ThreadLocal<PointCollisionCheck> POINT_CHECKS = ThreadLocal.withInitial(PointCollisionCheck::new);
+
     private final float spawnTime;
     /** particles and new entities should be passed to this object */
     protected SpawnReceiver entityDeposit;
@@ -60,8 +65,16 @@ public abstract class MovingEntity implements Touchable {
 
     protected VectorInterpolator positionInterpolator;
     private QuaternionInterpolator rotationInterpolator;
-    /** cached positions of the hitpoints */
-    private PairList<PosVector, PosVector> hitPoints = null;
+    /** the hitpoints in local space, packed as x, y, z, or null if not yet collected */
+    private float[] localHitpoints = null;
+    /** the largest distance of a local hitpoint to the origin */
+    private float hitpointRange = 0;
+    /** worldspace hitpoints at the current and at the extrapolated state, packed like {@link #localHitpoints} */
+    private float[] startHitpoints = new float[0];
+    private float[] endHitpoints = new float[0];
+    /** the number of hitpoints in the worldspace arrays, or -1 if these must be recalculated */
+    private int nOfHitpoints = -1;
+    private final Matrix4f hitpointTransform = new Matrix4f();
 
     /**
      * The render timer. gameTime.getRenderTime().current() will provide the current time for interpolation, and
@@ -169,7 +182,7 @@ public abstract class MovingEntity implements Touchable {
         if (Toolbox.isValidQuaternion(extraRotation)) {
             rotation.set(extraRotation);
         } else Logger.WARN.print("Ignored invalid rotation of " + this + " " + extraRotation);
-        hitPoints = null;
+        invalidateHitpoints();
     }
 
     private void validate(String name, Vector vector) {
@@ -189,11 +202,15 @@ public abstract class MovingEntity implements Touchable {
     public Collision checkCollisionWith(Touchable other, float deltaTime) {
         // projectiles and shields cannot be hit
         if (other instanceof AbstractProjectile) return null;
+        if (!mayHit(other, deltaTime)) return null;
 
         Collision best = null;
-        PairList<PosVector, PosVector> hitPoints = getHitpoints();
-        for (int i = 0; i < hitPoints.size(); i++) {
-            Collision newCollision = getPointCollision(this, other, hitPoints.left(i), hitPoints.right(i), deltaTime);
+        float[] start = startHitpoints;
+        float[] end = endHitpoints;
+        for (int i = 0; i < 3 * nOfHitpoints; i += 3) {
+            Collision newCollision = getPointCollision(this, other,
+                    start[i], start[i + 1], start[i + 2], end[i], end[i + 1], end[i + 2], deltaTime
+            );
             if (newCollision != null && (best == null || newCollision.compareTo(best) < 0)) {
                 best = newCollision;
             }
@@ -208,9 +225,132 @@ public abstract class MovingEntity implements Touchable {
         return best;
     }
 
-    private PairList<PosVector, PosVector> getHitpoints() {
-        if (hitPoints == null) hitPoints = calculateHitpointMovement();
-        return hitPoints;
+    /**
+     * makes sure the worldspace hitpoints match the current and the extrapolated state. This may be called by multiple
+     * threads at once.
+     */
+    private synchronized void updateHitpoints() {
+        if (nOfHitpoints >= 0) return;
+
+        if (localHitpoints == null || !hasConstantShape()) {
+            float[] points = createLocalHitpoints();
+            float maxSq = 0;
+            for (int i = 0; i < points.length; i += 3) {
+                maxSq = Math.max(maxSq, points[i] * points[i] + points[i + 1] * points[i + 1] + points[i + 2] * points[i + 2]);
+            }
+            // rounding errors of the transformation
+            hitpointRange = (float) Math.sqrt(maxSq) * 1.0001f + 1E-4f;
+            localHitpoints = points;
+        }
+
+        int length = localHitpoints.length;
+        if (startHitpoints.length < length) {
+            startHitpoints = new float[length];
+            endHitpoints = new float[length];
+        }
+        transformHitpoints(position, rotation, startHitpoints);
+        transformHitpoints(extraPosition, extraRotation, endHitpoints);
+        nOfHitpoints = length / 3;
+    }
+
+    /** writes the local hitpoints, transformed by the given position and rotation, to dest */
+    private void transformHitpoints(PosVector position, Quaternionf rotation, float[] dest) {
+        Matrix4f m = hitpointTransform.translation(position).rotate(rotation);
+        float[] local = localHitpoints;
+
+        for (int i = 0; i < local.length; i += 3) {
+            float x = local[i];
+            float y = local[i + 1];
+            float z = local[i + 2];
+            dest[i] = m.m00() * x + m.m10() * y + m.m20() * z + m.m30();
+            dest[i + 1] = m.m01() * x + m.m11() * y + m.m21() * z + m.m31();
+            dest[i + 2] = m.m02() * x + m.m12() * y + m.m22() * z + m.m32();
+        }
+    }
+
+    /** the hitpoints are recalculated when they are needed next */
+    private synchronized void invalidateHitpoints() {
+        nOfHitpoints = -1;
+    }
+
+    /**
+     * collects the points of all shapes of this entity, in the local space of this entity. Unless {@link
+     * #hasConstantShape()} is false, this is only called once.
+     * @return the points, packed as x, y, z
+     */
+    protected float[] createLocalHitpoints() {
+        ShadowMatrix identity = new ShadowMatrix();
+        final List<PosVector> list = new ArrayList<>();
+
+        final Consumer<Shape> collect = shape -> shape.getPointStream()
+                .map(identity::getPosition)
+                .forEach(list::add);
+        create(identity, collect);
+
+        float[] points = new float[3 * list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            PosVector p = list.get(i);
+            points[3 * i] = p.x;
+            points[3 * i + 1] = p.y;
+            points[3 * i + 2] = p.z;
+        }
+        return points;
+    }
+
+    /**
+     * @return true iff {@link #create(MatrixStack, Consumer)} always produces the same shapes in the same place, such
+     *         that the hitpoints of this entity need only be collected once
+     */
+    protected boolean hasConstantShape() {
+        return true;
+    }
+
+    /**
+     * a conservative test whether any hitpoint of this entity can hit the other in this loop. The hitpoints sweep a
+     * capsule from the start to the end of the movement, which is tested against the bounding sphere of the other in the
+     * same reference frame as {@link #getPointCollision(MovingEntity, Touchable, PosVector, PosVector, float)}
+     * @return false if no hitpoint of this entity can hit other
+     */
+    private boolean mayHit(Touchable other, float deltaTime) {
+        updateHitpoints();
+        float ax = position.x, ay = position.y, az = position.z;
+        float cx, cy, cz, reach;
+
+        if (other instanceof MovingEntity) {
+            MovingEntity target = (MovingEntity) other;
+            // the hitpoints move relative to the extrapolated target
+            DirVector targetVelocity = target.velocity;
+            ax += targetVelocity.x * deltaTime;
+            ay += targetVelocity.y * deltaTime;
+            az += targetVelocity.z * deltaTime;
+
+            target.updateHitpoints();
+            cx = target.extraPosition.x;
+            cy = target.extraPosition.y;
+            cz = target.extraPosition.z;
+            reach = hitpointRange + target.hitpointRange;
+
+        } else {
+            PosVector middle = other.getExpectedMiddle();
+            cx = middle.x;
+            cy = middle.y;
+            cz = middle.z;
+            reach = hitpointRange + other.getRange();
+        }
+
+        // distance from the middle of other to the swept line piece of our middle
+        float dx = extraPosition.x - ax, dy = extraPosition.y - ay, dz = extraPosition.z - az;
+        float lengthSq = dx * dx + dy * dy + dz * dz;
+        float t = 0;
+        if (lengthSq > 0) {
+            t = ((cx - ax) * dx + (cy - ay) * dy + (cz - az) * dz) / lengthSq;
+            t = Math.max(0, Math.min(1, t));
+        }
+        float ex = ax + t * dx - cx;
+        float ey = ay + t * dy - cy;
+        float ez = az + t * dz - cz;
+
+        return (ex * ex + ey * ey + ez * ez) <= (reach * reach);
     }
 
     /**
@@ -228,67 +368,16 @@ public abstract class MovingEntity implements Touchable {
             PosVector startPosition, PosVector endPosition,
             float deltaTime
     ) {
-        Collision[] firstHit = new Collision[1];
-
-        // copy, because we may want to change it
-        PosVector startPosCopy = new PosVector(startPosition);
-
-        // collect the collisions
-        final ShadowMatrix sm = new ShadowMatrix();
-        final Consumer<Shape> addCollisions = shape -> {
-            // map point to local space
-            PosVector startPoint = sm.mapToLocal(startPosCopy);
-            PosVector endPoint = sm.mapToLocal(endPosition);
-            DirVector direction = startPoint.to(endPoint, new DirVector());
-
-            // search hitpoint, add it when found
-            Collision newCrash = shape.getCollision(startPoint, direction, endPoint);
-            if (newCrash != null) {
-                newCrash.convertToGlobal(sm, source);
-                Collision min = firstHit[0];
-                if (min == null || newCrash.compareTo(min) < 0) {
-                    firstHit[0] = newCrash;
-                }
-            }
-        };
-
-        if (target instanceof MovingEntity) {
-            final MovingEntity moving = (MovingEntity) target;
-
-            // consider the movement of the plane, by assuming relative movement and linear interpolation.
-            final DirVector velocity = moving.getVelocity();
-            if (velocity.isScalable()) startPosCopy.add(velocity.scale(deltaTime));
-
-            moving.toLocalSpace(sm, () -> moving.create(sm, addCollisions), true);
-        } else {
-            target.toLocalSpace(sm, () -> target.create(sm, addCollisions));
-        }
-
-        return firstHit[0];
-    }
-
-    protected PairList<PosVector, PosVector> calculateHitpointMovement() {
-        final List<PosVector> previous = getPointPositions(false);
-        final List<PosVector> next = getPointPositions(true);
-
-        // combine both lists into one list
-        PairList<PosVector, PosVector> points = new PairList<>(next.size());
-        points.addAll(previous, next);
-        return points;
+        return POINT_CHECKS.get().check(source, target, startPosition, endPosition, deltaTime);
     }
 
-    // collect the position of the points of this object in worldspace
-    private List<PosVector> getPointPositions(boolean extrapolate) {
-        ShadowMatrix identity = new ShadowMatrix();
-        final List<PosVector> list = new ArrayList<>();
-
-        final Consumer<Shape> collect = shape -> shape.getPointStream()
-                // map to world-coordinates
-                .map(identity::getPosition)
-                // collect them in an array list
-                .forEach(list::add);
-        toLocalSpace(identity, () -> create(identity, collect), extrapolate);
-        return list;
+    /** @see #getPointCollision(MovingEntity, Touchable, PosVector, PosVector, float) */
+    public static Collision getPointCollision(
+            MovingEntity source, Touchable target,
+            float startX, float startY, float startZ, float endX, float endY, float endZ,
+            float deltaTime
+    ) {
+        return POINT_CHECKS.get().check(source, target, startX, startY, startZ, endX, endY, endZ, deltaTime);
     }
 
     @Override
@@ -353,7 +442,7 @@ public abstract class MovingEntity implements Touchable {
 
     private void recalculateMovement(float deltaTime) {
         position.add(extraVelocity.scale(deltaTime, new DirVector()), extraPosition);
-        hitPoints = calculateHitpointMovement();
+        invalidateHitpoints();
     }
 
     @Override
@@ -542,6 +631,7 @@ public abstract class MovingEntity implements Touchable {
         pitchSpeed = 0f;
         rollSpeed = 0f;
 
+        invalidateHitpoints();
         resetCache(currentTime);
     }
 
@@ -595,4 +685,84 @@ public abstract class MovingEntity implements Touchable {
     public void addNetForce(float duration, Supplier<DirVector> localNetForce) {
         tempForces.add(gameTimer.time() + duration, localNetForce);
     }
+
+    /**
+     * the state of {@link #getPointCollision(MovingEntity, Touchable, PosVector, PosVector, float)}, reused for every
+     * call on the same thread. Only the earliest collision of each shape is materialized as {@link Collision} object.
+     */
+    private static class PointCollisionCheck implements Consumer<Shape>, Runnable {
+        private final ShadowMatrix sm = new ShadowMatrix();
+        private final CollisionBuffer query = new CollisionBuffer();
+        private final PosVector startPosition = new PosVector();
+        private final PosVector endPosition = new PosVector();
+        private final PosVector localStart = new PosVector();
+        private final PosVector localEnd = new PosVector();
+
+        private MovingEntity source;
+        private Touchable target;
+        private Collision firstHit;
+
+        Collision check(MovingEntity source, Touchable target, PosVector start, PosVector end, float deltaTime) {
+            return check(source, target, start.x, start.y, start.z, end.x, end.y, end.z, deltaTime);
+        }
+
+        Collision check(
+                MovingEntity source, Touchable target,
+                float startX, float startY, float startZ, float endX, float endY, float endZ,
+                float deltaTime
+        ) {
+            this.source = source;
+            this.target = target;
+            this.firstHit = null;
+            startPosition.set(startX, startY, startZ);
+            endPosition.set(endX, endY, endZ);
+            query.reset();
+
+            try {
+                if (target instanceof MovingEntity) {
+                    final MovingEntity moving = (MovingEntity) target;
+
+                    // consider the movement of the plane, by assuming relative movement and linear interpolation.
+                    final DirVector velocity = moving.getVelocity();
+                    if (velocity.isScalable()) startPosition.add(velocity.scale(deltaTime));
+
+                    moving.toLocalSpace(sm, this, true);
+                } else {
+                    target.toLocalSpace(sm, this);
+                }
+
+            } catch (RuntimeException ex) {
+                // the matrix stack may not have been restored
+                sm.popAll();
+                throw ex;
+            }
+
+            Collision result = firstHit;
+            this.source = null;
+            this.target = null;
+            this.firstHit = null;
+            return result;
+        }
+
+        /** creates the target in local space */
+        @Override
+        public void run() {
+            target.create(sm, this);
+        }
+
+        /** checks one shape of the target */
+        @Override
+        public void accept(Shape shape) {
+            // map point to local space
+            sm.mapToLocal(startPosition, localStart);
+            sm.mapToLocal(endPosition, localEnd);
+            query.setLine(localStart, localEnd);
+
+            // search hitpoint, which is only stored when it is earlier than any previous hit
+            if (shape.checkCollision(query)) {
+                firstHit = query.toCollision();
+                firstHit.convertToGlobal(sm, source);
+            }
+        }
+    }
 }
@@ -0,0 +1,307 @@
+package nl.NG.Jetfightergame.GameState;
+
+import nl.NG.Jetfightergame.Engine.PathDescription;
+import nl.NG.Jetfightergame.EntityGeneral.Hitbox.Collision;
+import nl.NG.Jetfightergame.EntityGeneral.MovingEntity;
+import nl.NG.Jetfightergame.EntityGeneral.TemporalEntity;
+import nl.NG.Jetfightergame.EntityGeneral.Touchable;
+import nl.NG.Jetfightergame.Settings.ServerSettings;
+import nl.NG.Jetfightergame.Tools.DataStructures.AveragingQueue;
+import nl.NG.Jetfightergame.Tools.DataStructures.ConcurrentArrayList;
+import nl.NG.Jetfightergame.Tools.DataStructures.PairList;
+import nl.NG.Jetfightergame.Tools.Logger;
+import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static nl.NG.Jetfightergame.Settings.ServerSettings.MAX_COLLISION_ITERATIONS;
+
+/**
+ * the common part of entity managers with collision detection. Implementations only supply the broadphase: a
+ * selection of pairs that may collide.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public abstract class AbstractCollisionDetection implements EntityManagement {
+    protected static final int X_AXIS = 0;
+    protected static final int Y_AXIS = 1;
+    protected static final int Z_AXIS = 2;
+
+    private AveragingQueue avgCollision = new AveragingQueue(ServerSettings.TARGET_TPS);
+    private final Supplier<String> collisionCounter = () ->
+            String.format("Collision pair count average: %1.01f", avgCollision.average());
+
+    protected final Collection<Touchable> staticEntities;
+    protected Collection<MovingEntity> dynamicEntities;
+    private Collection<MovingEntity> newEntities;
+    private Collection<MovingEntity> removeEntities;
+    private int nextCollisionKey = 0;
+
+    /** the narrowphase results of one collision iteration, indexed like the intersecting pairs */
+    private Collision[] collisionBuffer = new Collision[0];
+    /** the indices of the pairs to check in one collision iteration */
+    private int[] activePairs = new int[0];
+    /** the entities that were changed by a collision in the last collision iteration */
+    private final Set<MovingEntity> changedEntities = new HashSet<>();
+
+    /**
+     * @param staticEntities a list of fixed entities. Entities in this collection should not move, but if they do,
+     *                       dynamic objects might phase through when moving in opposite direction. Apart from this
+     *                       case, the collision detection still functions.
+     */
+    public AbstractCollisionDetection(Collection<Touchable> staticEntities) {
+        this.staticEntities = Collections.unmodifiableCollection(staticEntities);
+        this.dynamicEntities = new CopyOnWriteArrayList<>();
+        this.newEntities = new ConcurrentArrayList<>();
+        this.removeEntities = new ConcurrentArrayList<>();
+
+        Logger.printOnline(collisionCounter);
+    }
+
+    @Override
+    public void preUpdateEntities(NetForceProvider gravity) {
+        // add new entities
+        if (!newEntities.isEmpty()) {
+            mergeNewEntities(newEntities);
+            dynamicEntities.addAll(newEntities);
+            newEntities.clear();
+        }
+
+        if (!removeEntities.isEmpty()) {
+            deleteEntities(removeEntities);
+            dynamicEntities.removeAll(removeEntities);
+            removeEntities.clear();
+        }
+
+        for (MovingEntity entity : dynamicEntities) {
+            DirVector netForce = gravity.entityNetforce(entity);
+            entity.preUpdate(netForce);
+        }
+
+        updateBroadphase();
+    }
+
+    /**
+     * adds the given entities to the broadphase structures. They are added to {@link #dynamicEntities} after this call.
+     * @param newEntities entities that are not yet part of the collision detection
+     */
+    protected abstract void mergeNewEntities(Collection<MovingEntity> newEntities);
+
+    /**
+     * Remove the selected entities off the broadphase structures in a robust way. Entities that did not exist are
+     * ignored, and doubles are also accepted. They are removed from {@link #dynamicEntities} after this call.
+     * @param targets a collection of entities to be removed
+     */
+    protected abstract void deleteEntities(Collection<MovingEntity> targets);
+
+    /**
+     * updates the broadphase to the extrapolated state of all entities. This is called after all entities are
+     * pre-updated
+     */
+    protected abstract void updateBroadphase();
+
+    /**
+     * generate a list (possibly empty) of all pairs of objects that may have collided. This can include (parts of) the
+     * ground, but not an object with itself. One pair does not occur the other way around.
+     * @return a collection of pairs of objects that are close to each other
+     */
+    protected abstract PairList<Touchable, MovingEntity> getIntersectingPairs();
+
+    @Override
+    public void analyseCollisions(float currentTime, float deltaTime, PathDescription path) {
+        int remainingLoops = MAX_COLLISION_ITERATIONS;
+
+        /* as a single collision may result in a previously not-intersecting pair to collide,
+         * we shouldn't re-use the getIntersectingPairs method nor reduce by non-collisions.
+         * On the other hand, we may assume collisions of that magnitude appear seldom
+         */
+        PairList<Touchable, MovingEntity> pairs = getIntersectingPairs();
+        int nOfPairs = pairs.size();
+        avgCollision.add(nOfPairs);
+
+        if (collisionBuffer.length < nOfPairs) {
+            collisionBuffer = new Collision[nOfPairs];
+            activePairs = new int[nOfPairs];
+        }
+        Collision[] buffer = collisionBuffer;
+        int[] active = activePairs;
+
+        // the first iteration checks all pairs
+        for (int i = 0; i < nOfPairs; i++) {
+            active[i] = i;
+        }
+        int nOfActive = nOfPairs;
+
+        do {
+            IntStream.range(0, nOfActive).parallel()
+                    .forEach(k -> buffer[active[k]] = checkCollisionPair(pairs.left(active[k]), pairs.right(active[k]), deltaTime));
+
+            changedEntities.clear();
+            for (int k = 0; k < nOfActive; k++) {
+                int i = active[k];
+                Collision collision = buffer[i];
+                if (collision == null) continue;
+                buffer[i] = null;
+
+                Touchable other = pairs.left(i);
+                MovingEntity right = pairs.right(i);
+                if (other instanceof MovingEntity) { // if two entities collide
+                    MovingEntity left = (MovingEntity) other;
+                    MovingEntity.entityCollision(left, right, deltaTime, collision);
+                    changedEntities.add(left);
+
+                } else { // if entity collides with terrain
+                    right.terrainCollision(deltaTime, collision);
+                }
+                changedEntities.add(right);
+            }
+
+            if (changedEntities.isEmpty()) break;
+
+            // pairs of which neither entity has changed give the same result as in the previous iteration
+            nOfActive = 0;
+            for (int i = 0; i < nOfPairs; i++) {
+                if (changedEntities.contains(pairs.right(i)) || changedEntities.contains(pairs.left(i))) {
+                    active[nOfActive++] = i;
+                }
+            }
+
+        } while ((--remainingLoops > 0) && !Thread.interrupted());
+    }
+
+    /**
+     * @return null iff neither hits the other, otherwise return the resulting collision
+     */
+    private Collision checkCollisionPair(Touchable either, MovingEntity moving, float deltaTime) {
+        // the isDead checks are for entities that die in a previous collision iteration
+        if (TemporalEntity.isOverdue(moving)) return null;
+        if (TemporalEntity.isOverdue(either)) return null;
+        Collision collision = moving.checkCollisionWith(either, deltaTime);
+        if (collision != null) return collision;
+
+        if (either instanceof MovingEntity) {
+            MovingEntity other = (MovingEntity) either;
+            return other.checkCollisionWith(moving, deltaTime);
+        }
+        return null;
+    }
+
+    @Override
+    public void addEntities(Collection<? extends MovingEntity> entities) {
+        newEntities.addAll(entities);
+    }
+
+    @Override
+    public void addEntity(MovingEntity entity) {
+        if (ServerSettings.DEBUG && (dynamicEntities.contains(entity) || newEntities.contains(entity))) {
+            throw new IllegalArgumentException(entity.toString());
+        }
+        newEntities.add(entity);
+    }
+
+    @Override
+    public void removeEntity(MovingEntity entity) {
+        removeEntities.add(entity);
+    }
+
+    @Override
+    public Collection<Touchable> getStaticEntities() {
+        // is unmodifiable
+        return Collections.unmodifiableCollection(staticEntities);
+    }
+
+    @Override
+    public Collection<MovingEntity> getDynamicEntities() {
+        Collection<MovingEntity> l = new ArrayList<>(dynamicEntities);
+        l.addAll(newEntities);
+        return l;
+    }
+
+    @Override
+    public void updateEntities(float currentTime) {
+        for (MovingEntity entity : dynamicEntities) {
+            entity.update();
+        }
+    }
+
+    @Override
+    public void cleanUp() {
+        Logger.removeOnlineUpdate(collisionCounter);
+    }
+
+    /** the broadphase representation of an entity: a cube around its expected middle */
+    protected class CollisionEntity {
+        public final Touchable entity;
+        /** true iff this entity is not a {@link MovingEntity} */
+        public final boolean isStatic;
+        /** unique for this entity, as long as it is part of this collision detection */
+        public final int key;
+        public int id;
+
+        public float range;
+        protected float x;
+        protected float y;
+        protected float z;
+
+        public CollisionEntity(Touchable source) {
+            this.entity = source;
+            this.isStatic = !(source instanceof MovingEntity);
+            this.key = nextCollisionKey++;
+            update();
+        }
+
+        public void update() {
+            PosVector middle = entity.getExpectedMiddle();
+            this.range = entity.getRange();
+            x = middle.x;
+            y = middle.y;
+            z = middle.z;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public float xUpper() {
+            return x + range;
+        }
+
+        public float yUpper() {
+            return y + range;
+        }
+
+        public float zUpper() {
+            return z + range;
+        }
+
+        public float xLower() {
+            return x - range;
+        }
+
+        public float yLower() {
+            return y - range;
+        }
+
+        public float zLower() {
+            return z - range;
+        }
+
+        /** @return true iff the bounding boxes of this and other overlap */
+        public boolean intersects(CollisionEntity other) {
+            float reach = range + other.range;
+            return Math.abs(x - other.x) <= reach && Math.abs(y - other.y) <= reach && Math.abs(z - other.z) <= reach;
+        }
+
+        @Override
+        public String toString() {
+            return entity.toString();
+        }
+    }
+}
@@ -57,7 +57,10 @@ public abstract class GameState implements Environment {
         gameTimer = deposit.getTimer();
         final Collection<Touchable> staticEntities = createWorld(raceProgress, gameTimer);
 
-        if (doCollDet) {
+        if (doCollDet && ServerSettings.SPATIAL_HASH_COLLISION) {
+            physicsEngine = new SpatialHashDetection(staticEntities);
+
+        } else if (doCollDet) {
             physicsEngine = new ProximityDetection(staticEntities);
 
         } else {
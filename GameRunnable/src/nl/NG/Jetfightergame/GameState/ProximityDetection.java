@@ -1,210 +1,189 @@
 package nl.NG.Jetfightergame.GameState;
 
-import nl.NG.Jetfightergame.Engine.PathDescription;
 import nl.NG.Jetfightergame.EntityGeneral.Hitbox.Collision;
 import nl.NG.Jetfightergame.EntityGeneral.MovingEntity;
 import nl.NG.Jetfightergame.EntityGeneral.Spectral;
-import nl.NG.Jetfightergame.EntityGeneral.TemporalEntity;
 import nl.NG.Jetfightergame.EntityGeneral.Touchable;
-import nl.NG.Jetfightergame.Settings.ServerSettings;
-import nl.NG.Jetfightergame.Tools.DataStructures.AveragingQueue;
-import nl.NG.Jetfightergame.Tools.DataStructures.ConcurrentArrayList;
+import nl.NG.Jetfightergame.Tools.DataStructures.AABBTree;
+import nl.NG.Jetfightergame.Tools.DataStructures.LongIntHashMap;
 import nl.NG.Jetfightergame.Tools.DataStructures.PairList;
 import nl.NG.Jetfightergame.Tools.Logger;
 import nl.NG.Jetfightergame.Tools.Toolbox;
-import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
 import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
 
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.function.Function;
-import java.util.function.Supplier;
-import java.util.stream.IntStream;
+import java.util.function.BiConsumer;
 
 import static nl.NG.Jetfightergame.Settings.ServerSettings.DEBUG;
-import static nl.NG.Jetfightergame.Settings.ServerSettings.MAX_COLLISION_ITERATIONS;
 
 /**
  * @author Geert van Ieperen created on 10-3-2018.
  */
-public class ProximityDetection implements EntityManagement {
-    private CollisionEntity[] xLowerSorted;
-    private CollisionEntity[] yLowerSorted;
-    private CollisionEntity[] zLowerSorted;
+public class ProximityDetection extends AbstractCollisionDetection {
+    private static final int INITIAL_CAPACITY = 16;
 
-    private AveragingQueue avgCollision = new AveragingQueue(ServerSettings.TARGET_TPS);
-    private final Supplier<String> collisionCounter = () ->
-            String.format("Collision pair count average: %1.01f", avgCollision.average());
+    /**
+     * the dynamic entities, indexed by proxy. The proxy of an entity is its index in the bounds arrays, and is stored
+     * in {@link CollisionEntity#id}. Unused proxies are null.
+     */
+    private CollisionEntity[] proxies;
+    /** for each axis, the lower respectively upper bounds of all proxies */
+    private final float[][] lowerBounds = new float[3][];
+    private final float[][] upperBounds = new float[3][];
+    /** the number of proxies in use or free */
+    private int nOfProxies = 0;
+    /** proxies of removed entities, to be reused by new entities */
+    private int[] freeProxies;
+    private int nOfFreeProxies = 0;
+
+    /**
+     * for each axis, the lower and upper endpoints of all entities sorted on their value. A lower endpoint is encoded
+     * as {@code 2 * proxy}, an upper endpoint as {@code 2 * proxy + 1}
+     */
+    private final int[][] sortedEndpoints = new int[3][];
+    /** for each axis, the values of {@link #sortedEndpoints} */
+    private final float[][] sortedValues = new float[3][];
+    private int nOfEndpoints = 0;
 
-    private final Collection<Touchable> staticEntities;
-    private Collection<MovingEntity> dynamicEntities;
-    private Collection<MovingEntity> newEntities;
-    private Collection<MovingEntity> removeEntities;
+    /** the static entities, which are not part of the sorted arrays */
+    private final AABBTree<Touchable> staticTree;
+
+    /** the number of axes on which each pair of proxies overlap, mapped by {@link #pairKey}. Absent pairs do not overlap */
+    private final LongIntHashMap axisOverlaps = new LongIntHashMap();
+    /** all pairs of {@link #axisOverlaps} that overlap in all three axes, mapped to 1 */
+    private final LongIntHashMap intersectingPairs = new LongIntHashMap();
+    private final Toolbox.SwapListener swapListener = this::registerSwap;
 
     /**
      * Collects the given entities and allows collision and phisics calculations to influence these entities
-     * @param staticEntities a list of fixed entities. Entities in this collection should not move, but if they do,
-     *                       dynamic objects might phase through when moving in opposite direction. Apart from this
-     *                       case, the collision detection still functions.
+     * @param staticEntities a list of fixed entities. Entities in this collection should not move, as their bounds are
+     *                       only determined once.
      */
     public ProximityDetection(Collection<Touchable> staticEntities) {
-        this.staticEntities = Collections.unmodifiableCollection(staticEntities);
-        this.dynamicEntities = new CopyOnWriteArrayList<>();
-        this.newEntities = new ConcurrentArrayList<>();
-        this.removeEntities = new ConcurrentArrayList<>();
-
-        Logger.printOnline(collisionCounter);
-
-        int nOfEntities = staticEntities.size();
-        xLowerSorted = new CollisionEntity[nOfEntities];
-        yLowerSorted = new CollisionEntity[nOfEntities];
-        zLowerSorted = new CollisionEntity[nOfEntities];
-
-        int i = 0;
-        for (Touchable entity : staticEntities) {
-            CollisionEntity asCollisionEntity = new CollisionEntity(entity);
-            xLowerSorted[i] = asCollisionEntity;
-            yLowerSorted[i] = asCollisionEntity;
-            zLowerSorted[i] = asCollisionEntity;
-            i++;
-        }
-
-        Arrays.sort(xLowerSorted, (a, b) -> Float.compare(a.xLower(), b.xLower()));
-        Arrays.sort(yLowerSorted, (a, b) -> Float.compare(a.yLower(), b.yLower()));
-        Arrays.sort(zLowerSorted, (a, b) -> Float.compare(a.zLower(), b.zLower()));
+        super(staticEntities);
 
+        // static entities never move, so they are not sorted along with the dynamic entities
+        staticTree = new AABBTree<>(staticEntities, ProximityDetection::writeBounds);
+        allocate(INITIAL_CAPACITY);
     }
 
-    @Override
-    public void preUpdateEntities(NetForceProvider gravity) {
-        // add new entities
-        if (!newEntities.isEmpty()) {
-            mergeNewEntities(newEntities);
-            newEntities.clear();
-        }
-
-        if (!removeEntities.isEmpty()) {
-            deleteEntities(removeEntities);
-            removeEntities.clear();
-        }
+    /** (re)creates the arrays to hold the given number of proxies, keeping the current state */
+    private void allocate(int capacity) {
+        proxies = proxies == null ? new CollisionEntity[capacity] : Arrays.copyOf(proxies, capacity);
+        freeProxies = freeProxies == null ? new int[capacity] : Arrays.copyOf(freeProxies, capacity);
 
-        for (MovingEntity entity : dynamicEntities) {
-            DirVector netForce = gravity.entityNetforce(entity);
-            entity.preUpdate(netForce);
+        for (int axis = 0; axis < 3; axis++) {
+            lowerBounds[axis] = grow(lowerBounds[axis], capacity);
+            upperBounds[axis] = grow(upperBounds[axis], capacity);
+            sortedValues[axis] = grow(sortedValues[axis], 2 * capacity);
+            sortedEndpoints[axis] = sortedEndpoints[axis] == null ?
+                    new int[2 * capacity] : Arrays.copyOf(sortedEndpoints[axis], 2 * capacity);
         }
+    }
 
-        for (CollisionEntity entity : entityArray()) {
-            entity.update();
-        }
+    private static float[] grow(float[] array, int length) {
+        return array == null ? new float[length] : Arrays.copyOf(array, length);
+    }
 
-        Toolbox.insertionSort(xLowerSorted, CollisionEntity::xLower);
-        Toolbox.insertionSort(yLowerSorted, CollisionEntity::yLower);
-        Toolbox.insertionSort(zLowerSorted, CollisionEntity::zLower);
+    private static void writeBounds(Touchable entity, float[] dest, int offset) {
+        PosVector middle = entity.getExpectedMiddle();
+        float range = entity.getRange();
+        dest[offset] = middle.x - range;
+        dest[offset + 1] = middle.y - range;
+        dest[offset + 2] = middle.z - range;
+        dest[offset + 3] = middle.x + range;
+        dest[offset + 4] = middle.y + range;
+        dest[offset + 5] = middle.z + range;
     }
 
     @Override
-    public void analyseCollisions(float currentTime, float deltaTime, PathDescription path) {
-//        if (DEBUG) testInvariants();
+    protected void updateBroadphase() {
+        for (int p = 0; p < nOfProxies; p++) {
+            CollisionEntity entity = proxies[p];
+            if (entity == null) continue;
 
-        int remainingLoops = MAX_COLLISION_ITERATIONS;
-        int nOfCollisions;
-
-        /* as a single collision may result in a previously not-intersecting pair to collide,
-         * we shouldn't re-use the getIntersectingPairs method nor reduce by non-collisions.
-         * On the other hand, we may assume collisions of that magnitude appear seldom
-         */
-        PairList<Touchable, MovingEntity> pairs = getIntersectingPairs();
-
-        do {
-            nOfCollisions = 0;
+            entity.update();
+            lowerBounds[X_AXIS][p] = entity.xLower();
+            lowerBounds[Y_AXIS][p] = entity.yLower();
+            lowerBounds[Z_AXIS][p] = entity.zLower();
+            upperBounds[X_AXIS][p] = entity.xUpper();
+            upperBounds[Y_AXIS][p] = entity.yUpper();
+            upperBounds[Z_AXIS][p] = entity.zUpper();
+        }
+
+        for (int axis = 0; axis < 3; axis++) {
+            int[] endpoints = sortedEndpoints[axis];
+            float[] values = sortedValues[axis];
+            float[] lower = lowerBounds[axis];
+            float[] upper = upperBounds[axis];
+
+            for (int i = 0; i < nOfEndpoints; i++) {
+                int point = endpoints[i];
+                values[i] = isLower(point) ? lower[point >> 1] : upper[point >> 1];
+            }
 
-            Collision[] buffer = new Collision[pairs.size()];
-            IntStream.range(0, pairs.size()).parallel()
-                    .forEach(n -> buffer[n] = checkCollisionPair(pairs.left(n), pairs.right(n), deltaTime));
+            // every exchange of two endpoints is exactly one change in overlap of that pair on that axis
+            Toolbox.insertionSort(values, endpoints, nOfEndpoints, swapListener);
+        }
 
-            for (int i = 0; i < buffer.length; i++) {
-                if (buffer[i] == null) continue;
+//        if (DEBUG) testInvariants();
+    }
 
-                nOfCollisions++;
+    @Override
+    protected PairList<Touchable, MovingEntity> getIntersectingPairs() {
+        PairList<Touchable, MovingEntity> allEntityPairs = new PairList<>(intersectingPairs.size());
 
-                Touchable other = pairs.left(i);
-                if (other instanceof MovingEntity) { // if two entities collide
-                    MovingEntity right = pairs.right(i);
-                    MovingEntity left = (MovingEntity) other;
-                    MovingEntity.entityCollision(left, right, deltaTime, buffer[i]);
+        intersectingPairs.forEachKey(key -> {
+            CollisionEntity left = proxies[(int) (key >>> 32)];
+            CollisionEntity right = proxies[(int) key];
+            allEntityPairs.add(left.entity, (MovingEntity) right.entity);
 
-                } else { // if entity collides with terrain
-                    MovingEntity right = pairs.right(i);
-                    right.terrainCollision(deltaTime, buffer[i]);
-                }
+            if (DEBUG && Objects.equals(left.entity, right.entity)) {
+                Logger.WARN.print("duplicates found in intersecting pairs");
             }
+        });
 
-        } while ((nOfCollisions > 0) && (--remainingLoops > 0) && !Thread.interrupted());
-    }
+        // static entities are always on the left
+        BiConsumer<Touchable, MovingEntity> addPair = allEntityPairs::add;
+        for (int p = 0; p < nOfProxies; p++) {
+            if (proxies[p] == null) continue;
 
-    /**
-     * @return null iff neither hits the other, otherwise return the resulting collision
-     */
-    private Collision checkCollisionPair(Touchable either, MovingEntity moving, float deltaTime) {
-        // the isDead checks are for entities that die in a previous collision iteration
-        if (TemporalEntity.isOverdue(moving)) return null;
-        if (TemporalEntity.isOverdue(either)) return null;
-        Collision collision = moving.checkCollisionWith(either, deltaTime);
-        if (collision != null) return collision;
-
-        if (either instanceof MovingEntity) {
-            MovingEntity other = (MovingEntity) either;
-            return other.checkCollisionWith(moving, deltaTime);
+            staticTree.query(
+                    lowerBounds[X_AXIS][p], lowerBounds[Y_AXIS][p], lowerBounds[Z_AXIS][p],
+                    upperBounds[X_AXIS][p], upperBounds[Y_AXIS][p], upperBounds[Z_AXIS][p],
+                    (MovingEntity) proxies[p].entity, addPair
+            );
         }
-        return null;
+
+        return allEntityPairs;
     }
 
     /**
-     * generate a list (possibly empty) of all pairs of objects that may have collided. This can include (parts of) the
-     * ground, but not an object with itself. One pair does not occur the other way around.
-     * @return a collection of pairs of objects that are close to each other
+     * processes the exchange of two endpoints on one axis, where {@code moving} has moved to the lower side of {@code
+     * passed}. If a lower endpoint passes an upper endpoint, the pair starts overlapping on that axis. If an upper
+     * endpoint passes a lower endpoint, the pair stops overlapping on that axis.
      */
-    private PairList<Touchable, MovingEntity> getIntersectingPairs() {
-        CollisionEntity[] entityArray = entityArray();
-        int nOfEntities = entityArray.length;
-
-        // initialize id values to correspond to the array
-        for (int i = 0; i < nOfEntities; i++) {
-            entityArray[i].setId(i);
-        }
+    private void registerSwap(int moving, int passed) {
+        if (isLower(moving) == isLower(passed)) return;
 
-        // this matrix is indexed using the entity id values, with i > j
-        // if (adjacencyMatrix[i][j] == n) then entityArray[i] and entityArray[j] have n coordinates with coinciding intervals
-        int[][] adjacencyMatrix = new int[nOfEntities][nOfEntities];
+        long key = pairKey(moving >> 1, passed >> 1);
+        if (isLower(moving)) {
+            if (axisOverlaps.add(key, 1) == 3) intersectingPairs.put(key, 1);
 
-        checkOverlap(adjacencyMatrix, xLowerSorted, CollisionEntity::xLower, CollisionEntity::xUpper);
-        checkOverlap(adjacencyMatrix, yLowerSorted, CollisionEntity::yLower, CollisionEntity::yUpper);
-        checkOverlap(adjacencyMatrix, zLowerSorted, CollisionEntity::zLower, CollisionEntity::zUpper);
-
-        PairList<Touchable, MovingEntity> allEntityPairs = new PairList<>(nOfEntities);
-
-        // select all source pairs that are 'close' in three coordinates
-        for (int i = 0; i < nOfEntities; i++) {
-            Touchable entity = entityArray[i].entity;
-            // skip world-on-world
-            if (!(entity instanceof MovingEntity)) continue;
-
-            for (int j = 0; j < i; j++) {
-                // count in how many axes i overlaps j.
-                int intervalOverlap = adjacencyMatrix[i][j];
-
-                if (intervalOverlap >= 3) {
-                    allEntityPairs.add(entityArray[j].entity, (MovingEntity) entity);
-
-                    if (DEBUG && Objects.equals(entity, entityArray[j].entity)) {
-                        Logger.WARN.print("duplicates found in intersecting pairs");
-                    }
-                }
-            }
+        } else {
+            // only absent if the endpoint order was changed without registering
+            if (axisOverlaps.get(key) == 0) return;
+            if (axisOverlaps.add(key, -1) == 2) intersectingPairs.remove(key);
         }
+    }
 
-        avgCollision.add(allEntityPairs.size());
-        return allEntityPairs;
+    private static boolean isLower(int endpoint) {
+        return (endpoint & 1) == 0;
+    }
+
+    /** @return a key that is unique for this pair of proxies, regardless of order */
+    private static long pairKey(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
     }
 
     /**
@@ -215,129 +194,49 @@ public class ProximityDetection implements EntityManagement {
         String source = Logger.getCallingMethod(1);
         Logger.DEBUG.printSpamless(source, "\n    " + source + " Checking collision detection invariants");
 
-        // all arrays are of equal length
-        if ((xLowerSorted.length != yLowerSorted.length) || (xLowerSorted.length != zLowerSorted.length)) {
-            Logger.ERROR.print(toString(entityArray()));
-            throw new IllegalStateException("Entity arrays have different lengths: "
-                    + xLowerSorted.length + ", " + yLowerSorted.length + ", " + zLowerSorted.length
-            );
-        }
+        testInvariants(X_AXIS, "x");
+        testInvariants(Y_AXIS, "y");
+        testInvariants(Z_AXIS, "z");
+    }
 
-        // all arrays contain all entities
-        Set<Touchable> allEntities = new HashSet<>();
-        for (CollisionEntity collEty : entityArray()) {
-            allEntities.add(collEty.entity);
-        }
-        for (CollisionEntity collEty : xLowerSorted) {
-            if (!allEntities.contains(collEty.entity)) {
-                throw new IllegalStateException("Array x does not contain entity " + collEty.entity);
-            }
-        }
-        for (CollisionEntity collEty : yLowerSorted) {
-            if (!allEntities.contains(collEty.entity)) {
-                throw new IllegalStateException("Array y does not contain entity " + collEty.entity);
-            }
-        }
-        for (CollisionEntity collEty : zLowerSorted) {
-            if (!allEntities.contains(collEty.entity)) {
-                throw new IllegalStateException("Array z does not contain entity " + collEty.entity);
-            }
+    private void testInvariants(int axis, String axisName) {
+        int[] endpoints = sortedEndpoints[axis];
+        int nOfEntities = nOfProxies - nOfFreeProxies;
+        // the array contains both endpoints of all entities
+        if (nOfEndpoints != 2 * nOfEntities) {
+            Logger.ERROR.print(toString(axis));
+            throw new IllegalStateException("Array " + axisName + " has length " + nOfEndpoints
+                    + " while there are " + nOfEntities + " entities"
+            );
         }
 
-        // x is sorted
         float init = -Float.MAX_VALUE;
-        for (int i = 0; i < xLowerSorted.length; i++) {
-            CollisionEntity collisionEntity = xLowerSorted[i];
-            if (collisionEntity.xLower() < init) {
-                Logger.ERROR.print("Sorting error on x = " + i);
-                Logger.ERROR.print(toString(xLowerSorted));
-                throw new IllegalStateException("Sorting error on x = " + i);
+        for (int i = 0; i < nOfEndpoints; i++) {
+            int point = endpoints[i];
+            if (proxies[point >> 1] == null) {
+                throw new IllegalStateException("Array " + axisName + " contains unused proxy " + (point >> 1));
             }
-            init = collisionEntity.xLower();
-        }
-
-        // y is sorted
-        init = -Float.MAX_VALUE;
-        for (int i = 0; i < yLowerSorted.length; i++) {
-            CollisionEntity collisionEntity = yLowerSorted[i];
-            if (collisionEntity.yLower() < init) {
-                Logger.ERROR.print("Sorting error on y = " + i);
-                Logger.ERROR.print(toString(yLowerSorted));
-                throw new IllegalStateException("Sorting error on y = " + i);
-            }
-            init = collisionEntity.yLower();
-        }
 
-        // z is sorted
-        init = -Float.MAX_VALUE;
-        for (int i = 0; i < zLowerSorted.length; i++) {
-            CollisionEntity collisionEntity = zLowerSorted[i];
-            if (collisionEntity.zLower() < init) {
-                Logger.ERROR.print("Sorting error on z = " + i);
-                Logger.ERROR.print(toString(zLowerSorted));
-                throw new IllegalStateException("Sorting error on z = " + i);
+            float value = isLower(point) ? lowerBounds[axis][point >> 1] : upperBounds[axis][point >> 1];
+            if (value < init) {
+                Logger.ERROR.print("Sorting error on " + axisName + " = " + i);
+                Logger.ERROR.print(toString(axis));
+                throw new IllegalStateException("Sorting error on " + axisName + " = " + i);
             }
-            init = collisionEntity.zLower();
+            init = value;
         }
     }
 
-    private static String toString(CollisionEntity[] entityArray) {
+    private String toString(int axis) {
         StringBuilder s = new StringBuilder();
-        for (int i = 0; i < entityArray.length; i++) {
-            CollisionEntity ety = entityArray[i];
-            s.append(String.format("%3d | %3d : %s\n", i, ety.id, ety.entity));
+        for (int i = 0; i < nOfEndpoints; i++) {
+            int point = sortedEndpoints[axis][i];
+            CollisionEntity owner = proxies[point >> 1];
+            s.append(String.format("%3d | %5s %3d : %s\n", i, isLower(point) ? "lower" : "upper", point >> 1, owner));
         }
         return s.toString();
     }
 
-    /**
-     * iterating over the sorted array, increase the value of all pairs that have coinciding intervals
-     * @param adjacencyMatrix the matrix where the pairs are marked using entity id's
-     * @param sortedArray     an array sorted increasingly on the lower mapping
-     * @param lower           a mapping that maps to the lower value of the interval of the entity
-     * @param upper           a mapping that maps an entity to its upper interval
-     */
-    protected void checkOverlap(int[][] adjacencyMatrix, CollisionEntity[] sortedArray, Function<CollisionEntity, Float> lower, Function<CollisionEntity, Float> upper) {
-        // INVARIANT:
-        // all items i where i.lower < source.lower, are already added to the matrix
-
-        int nOfItems = sortedArray.length;
-        for (int i = 0; i < (nOfItems - 1); i++) {
-            CollisionEntity subject = sortedArray[i];
-
-            // increases the checks count of every source with index less than i, with position less than the given minimum
-            int j = i + 1;
-            CollisionEntity target = sortedArray[j++];
-
-            // while the lowerbound of target is less than the upperbound of our subject
-            while (lower.apply(target) <= upper.apply(subject)) {
-                adjacencyMatrix[subject.id][target.id]++;
-                adjacencyMatrix[target.id][subject.id]++;
-
-                if (j == nOfItems) break;
-                target = sortedArray[j++];
-            }
-        }
-    }
-
-    @Override
-    public void addEntities(Collection<? extends MovingEntity> entities) {
-        newEntities.addAll(entities);
-    }
-
-    @Override
-    public void addEntity(MovingEntity entity) {
-        if (ServerSettings.DEBUG && (dynamicEntities.contains(entity) || newEntities.contains(entity))) {
-            throw new IllegalArgumentException(entity.toString());
-        }
-        newEntities.add(entity);
-    }
-
-    @Override
-    public void removeEntity(MovingEntity entity) {
-        removeEntities.add(entity);
-    }
-
     @Override
     public PosVector rayTrace(PosVector from, PosVector to) {
         float xMin = Math.min(from.x, to.x);
@@ -347,22 +246,29 @@ public class ProximityDetection implements EntityManagement {
         float yMax = Math.max(from.y, to.y);
         float zMax = Math.max(from.z, to.z);
         Collision minColl = null;
+        List<Touchable> candidates = new ArrayList<>();
 
-        int xFrom = Toolbox.binarySearch(xLowerSorted, CollisionEntity::xLower, xMax);
+        int[] xEndpoints = sortedEndpoints[X_AXIS];
+        for (int i = 0; i < nOfEndpoints; i++) {
+            if (sortedValues[X_AXIS][i] > xMax) break;
+            int point = xEndpoints[i];
+            if (!isLower(point)) continue;
 
-        for (int i = xFrom; i < xLowerSorted.length; i++) {
-            CollisionEntity entity = xLowerSorted[i];
-            if (entity.entity instanceof Spectral) continue;
-            if (entity.xUpper() < xMin) continue;
-            if (entity.yUpper() < yMin || entity.yLower() > yMax) continue;
-            if (entity.zUpper() < zMin || entity.zLower() > zMax) continue;
-            Logger.DEBUG.print(entity.x, entity.y, entity.z);
+            int p = point >> 1;
+            if (upperBounds[X_AXIS][p] < xMin) continue;
+            if (upperBounds[Y_AXIS][p] < yMin || lowerBounds[Y_AXIS][p] > yMax) continue;
+            if (upperBounds[Z_AXIS][p] < zMin || lowerBounds[Z_AXIS][p] > zMax) continue;
+            candidates.add(proxies[p].entity);
+        }
+        staticTree.query(xMin, yMin, zMin, xMax, yMax, zMax, candidates::add);
+
+        for (Touchable entity : candidates) {
+            if (entity instanceof Spectral) continue;
 
-            Collision coll = MovingEntity.getPointCollision(null, entity.entity, from, to, 0);
+            Collision coll = MovingEntity.getPointCollision(null, entity, from, to, 0);
             if (coll == null) continue;
-            Logger.WARN.print(coll.hitPosition());
 
-            if (minColl == null || coll.compareTo(minColl) > 0) {
+            if (minColl == null || coll.compareTo(minColl) < 0) {
                 minColl = coll;
             }
         }
@@ -370,147 +276,73 @@ public class ProximityDetection implements EntityManagement {
         return minColl == null ? to : minColl.hitPosition();
     }
 
-    private void mergeNewEntities(Collection<MovingEntity> newEntities) {
-        int nOfNewEntities = newEntities.size();
-        if (nOfNewEntities <= 0) return;
-
-        CollisionEntity[] newXSort = new CollisionEntity[nOfNewEntities];
-        CollisionEntity[] newYSort = new CollisionEntity[nOfNewEntities];
-        CollisionEntity[] newZSort = new CollisionEntity[nOfNewEntities];
-
-        int i = 0;
-        for (MovingEntity newEntity : newEntities) {
-            CollisionEntity asCollisionEntity = new CollisionEntity(newEntity);
-            newXSort[i] = asCollisionEntity;
-            newYSort[i] = asCollisionEntity;
-            newZSort[i] = asCollisionEntity;
-            i++;
-        }
-
-        Toolbox.insertionSort(newXSort, CollisionEntity::xLower);
-        Toolbox.insertionSort(newYSort, CollisionEntity::yLower);
-        Toolbox.insertionSort(newZSort, CollisionEntity::zLower);
-
-        xLowerSorted = Toolbox.mergeArrays(xLowerSorted, newXSort, CollisionEntity::xLower);
-        yLowerSorted = Toolbox.mergeArrays(yLowerSorted, newYSort, CollisionEntity::yLower);
-        zLowerSorted = Toolbox.mergeArrays(zLowerSorted, newZSort, CollisionEntity::zLower);
-
-        dynamicEntities.addAll(newEntities);
-    }
-
     /**
-     * Remove the selected entities off the entity lists in a robust way. Entities that did not exist are ignored, and
-     * doubles are also accepted.
-     * @param targets a collection of entities to be removed
+     * adds the new entities at the upper end of the endpoint arrays. As entities are then considered to be further than
+     * any other, their overlaps are registered by the next insertion sort.
      */
-    private void deleteEntities(Collection<MovingEntity> targets) {
-        xLowerSorted = deleteAll(targets, xLowerSorted);
-        yLowerSorted = deleteAll(targets, yLowerSorted);
-        zLowerSorted = deleteAll(targets, zLowerSorted);
+    @Override
+    protected void mergeNewEntities(Collection<MovingEntity> newEntities) {
+        int required = nOfProxies - nOfFreeProxies + newEntities.size();
+        if (required > proxies.length) allocate(Math.max(required, 2 * proxies.length));
 
-        dynamicEntities.removeAll(targets);
-    }
+        for (MovingEntity newEntity : newEntities) {
+            int proxy = (nOfFreeProxies > 0) ? freeProxies[--nOfFreeProxies] : nOfProxies++;
+            CollisionEntity asCollisionEntity = new CollisionEntity(newEntity);
+            asCollisionEntity.setId(proxy);
+            proxies[proxy] = asCollisionEntity;
 
-    private CollisionEntity[] deleteAll(Collection<MovingEntity> targets, CollisionEntity[] array) {
-        int xi = 0;
-        for (int i = 0; i < array.length; i++) {
-            Touchable entity = array[i].entity;
-            if ((entity instanceof MovingEntity) && targets.contains(entity)) {
-                continue;
+            for (int axis = 0; axis < 3; axis++) {
+                sortedEndpoints[axis][nOfEndpoints] = 2 * proxy;
+                sortedEndpoints[axis][nOfEndpoints + 1] = 2 * proxy + 1;
             }
-            array[xi++] = array[i];
+            nOfEndpoints += 2;
         }
-        return Arrays.copyOf(array, xi);
-    }
-
-    /**
-     * @return an array of the entities, backed by any local representation. Should only be used for querying, otherwise it must be cloned
-     */
-    private CollisionEntity[] entityArray() {
-        return xLowerSorted;
     }
 
     @Override
-    public Collection<Touchable> getStaticEntities() {
-        // is unmodifiable
-        return Collections.unmodifiableCollection(staticEntities);
-    }
+    protected void deleteEntities(Collection<MovingEntity> targets) {
+        boolean anyRemoved = false;
+        for (int p = 0; p < nOfProxies; p++) {
+            if (proxies[p] != null && targets.contains(proxies[p].entity)) {
+                proxies[p] = null;
+                freeProxies[nOfFreeProxies++] = p;
+                anyRemoved = true;
+            }
+        }
+        if (!anyRemoved) return;
+
+        // removing endpoints does not change the relative order of the remaining endpoints
+        int newLength = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            int[] endpoints = sortedEndpoints[axis];
+            float[] values = sortedValues[axis];
+            newLength = 0;
+            for (int i = 0; i < nOfEndpoints; i++) {
+                if (proxies[endpoints[i] >> 1] == null) continue;
+                endpoints[newLength] = endpoints[i];
+                values[newLength] = values[i];
+                newLength++;
+            }
+        }
+        nOfEndpoints = newLength;
 
-    @Override
-    public Collection<MovingEntity> getDynamicEntities() {
-        Collection<MovingEntity> l = new ArrayList<>(dynamicEntities);
-        l.addAll(newEntities);
-        return l;
+        axisOverlaps.removeIf(this::isRemoved);
+        intersectingPairs.removeIf(this::isRemoved);
     }
 
-    @Override
-    public void updateEntities(float currentTime) {
-        for (MovingEntity entity : dynamicEntities) {
-            entity.update();
-        }
+    /** @return true iff either proxy of the pair is no longer in use */
+    private boolean isRemoved(long pairKey) {
+        return proxies[(int) (pairKey >>> 32)] == null || proxies[(int) pairKey] == null;
     }
 
     @Override
     public void cleanUp() {
-        Logger.removeOnlineUpdate(collisionCounter);
-        xLowerSorted = new CollisionEntity[0];
-        yLowerSorted = new CollisionEntity[0];
-        zLowerSorted = new CollisionEntity[0];
-    }
-
-    protected class CollisionEntity {
-        public final Touchable entity;
-        public int id;
-
-        public float range;
-        private float x;
-        private float y;
-        private float z;
-
-        public CollisionEntity(Touchable source) {
-            this.entity = source;
-            update();
-        }
-
-        public void update() {
-            PosVector middle = entity.getExpectedMiddle();
-            this.range = entity.getRange();
-            x = middle.x;
-            y = middle.y;
-            z = middle.z;
-        }
-
-        public void setId(int id) {
-            this.id = id;
-        }
-
-        public float xUpper() {
-            return x + range;
-        }
-
-        public float yUpper() {
-            return y + range;
-        }
-
-        public float zUpper() {
-            return z + range;
-        }
-
-        public float xLower() {
-            return x - range;
-        }
-
-        public float yLower() {
-            return y - range;
-        }
-
-        public float zLower() {
-            return z - range;
-        }
-
-        @Override
-        public String toString() {
-            return entity.toString();
-        }
+        super.cleanUp();
+        Arrays.fill(proxies, null);
+        nOfProxies = 0;
+        nOfFreeProxies = 0;
+        nOfEndpoints = 0;
+        axisOverlaps.clear();
+        intersectingPairs.clear();
     }
 }
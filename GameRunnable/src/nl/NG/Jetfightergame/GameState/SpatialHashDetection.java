@@ -0,0 +1,271 @@
+package nl.NG.Jetfightergame.GameState;
+
+import nl.NG.Jetfightergame.EntityGeneral.Hitbox.Collision;
+import nl.NG.Jetfightergame.EntityGeneral.MovingEntity;
+import nl.NG.Jetfightergame.EntityGeneral.Spectral;
+import nl.NG.Jetfightergame.EntityGeneral.Touchable;
+import nl.NG.Jetfightergame.Tools.DataStructures.PairList;
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+
+import java.util.*;
+
+/**
+ * a broadphase that hashes all entities in a uniform grid. Dynamic entities are hashed anew every tick, static entities
+ * are hashed once in a separate grid. The cell sizes are chosen such that a typical entity covers at most two cells per
+ * axis, which keeps the pair generation linear in the number of entities, regardless of how far they are spread out.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class SpatialHashDetection extends AbstractCollisionDetection {
+    /** entities covering more cells than this on any axis are not hashed, but tested against all others */
+    private static final int MAX_CELLS_PER_AXIS = 4;
+    /** cell size relative to the median diameter of the entities */
+    private static final float CELL_SIZE_FACTOR = 1f;
+    private static final float DEFAULT_CELL_SIZE = 10f;
+    private static final int CELL_BITS = 21;
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+
+    private final List<CollisionEntity> staticCollisionEntities;
+    private final Map<Long, List<CollisionEntity>> staticGrid = new HashMap<>();
+    private final List<CollisionEntity> largeStatics = new ArrayList<>();
+    private final float staticCellSize;
+
+    private final List<CollisionEntity> dynamicCollisionEntities = new ArrayList<>();
+    private final Map<Long, List<CollisionEntity>> dynamicGrid = new HashMap<>();
+    private final Set<CollisionEntity> largeDynamics = new HashSet<>();
+    private float dynamicCellSize = DEFAULT_CELL_SIZE;
+
+    /**
+     * Collects the given entities and allows collision and phisics calculations to influence these entities
+     * @param staticEntities a list of fixed entities. Entities in this collection should not move, as they are hashed
+     *                       only once.
+     */
+    public SpatialHashDetection(Collection<Touchable> staticEntities) {
+        super(staticEntities);
+
+        staticCollisionEntities = new ArrayList<>(staticEntities.size());
+        for (Touchable entity : staticEntities) {
+            staticCollisionEntities.add(new CollisionEntity(entity));
+        }
+
+        staticCellSize = cellSizeOf(staticCollisionEntities);
+        for (CollisionEntity entity : staticCollisionEntities) {
+            if (!insert(staticGrid, entity, staticCellSize)) largeStatics.add(entity);
+        }
+    }
+
+    @Override
+    protected void mergeNewEntities(Collection<MovingEntity> newEntities) {
+        for (MovingEntity entity : newEntities) {
+            dynamicCollisionEntities.add(new CollisionEntity(entity));
+        }
+        dynamicCellSize = cellSizeOf(dynamicCollisionEntities);
+    }
+
+    @Override
+    protected void deleteEntities(Collection<MovingEntity> targets) {
+        dynamicCollisionEntities.removeIf(e -> targets.contains(e.entity));
+        dynamicCellSize = cellSizeOf(dynamicCollisionEntities);
+    }
+
+    @Override
+    protected void updateBroadphase() {
+        // cells that stayed empty for a whole tick are dropped, the others are reused
+        dynamicGrid.values().removeIf(List::isEmpty);
+        dynamicGrid.values().forEach(List::clear);
+        largeDynamics.clear();
+
+        for (CollisionEntity entity : dynamicCollisionEntities) {
+            entity.update();
+            if (!insert(dynamicGrid, entity, dynamicCellSize)) largeDynamics.add(entity);
+        }
+    }
+
+    @Override
+    protected PairList<Touchable, MovingEntity> getIntersectingPairs() {
+        PairList<Touchable, MovingEntity> pairs = new PairList<>(dynamicCollisionEntities.size());
+
+        // dynamic - dynamic
+        for (Map.Entry<Long, List<CollisionEntity>> cell : dynamicGrid.entrySet()) {
+            long cellKey = cell.getKey();
+            List<CollisionEntity> occupants = cell.getValue();
+
+            for (int i = 0; i < occupants.size(); i++) {
+                CollisionEntity a = occupants.get(i);
+                for (int j = i + 1; j < occupants.size(); j++) {
+                    CollisionEntity b = occupants.get(j);
+                    // a pair sharing multiple cells is only reported by the cell holding the lower corner of their overlap
+                    if (a.intersects(b) && ownerCell(a, b, dynamicCellSize) == cellKey) {
+                        pairs.add(a.entity, (MovingEntity) b.entity);
+                    }
+                }
+            }
+        }
+
+        if (!largeDynamics.isEmpty()) {
+            List<CollisionEntity> large = new ArrayList<>(largeDynamics);
+            for (int i = 0; i < large.size(); i++) {
+                CollisionEntity a = large.get(i);
+                for (int j = i + 1; j < large.size(); j++) {
+                    CollisionEntity b = large.get(j);
+                    if (a.intersects(b)) pairs.add(a.entity, (MovingEntity) b.entity);
+                }
+
+                for (CollisionEntity other : dynamicCollisionEntities) {
+                    if (largeDynamics.contains(other)) continue;
+                    if (a.intersects(other)) pairs.add(other.entity, (MovingEntity) a.entity);
+                }
+            }
+        }
+
+        // dynamic - static
+        for (CollisionEntity dynamic : dynamicCollisionEntities) {
+            MovingEntity moving = (MovingEntity) dynamic.entity;
+
+            if (largeDynamics.contains(dynamic) || !queryStatics(dynamic, moving, pairs)) {
+                for (CollisionEntity stat : staticCollisionEntities) {
+                    if (stat.intersects(dynamic)) pairs.add(stat.entity, moving);
+                }
+                continue;
+            }
+
+            for (CollisionEntity stat : largeStatics) {
+                if (stat.intersects(dynamic)) pairs.add(stat.entity, moving);
+            }
+        }
+
+        return pairs;
+    }
+
+    /**
+     * adds all pairs of the given dynamic entity with the hashed static entities to the given list
+     * @return false iff the entity covers too many static cells to query, in which case no pairs are added
+     */
+    private boolean queryStatics(CollisionEntity dynamic, MovingEntity moving, PairList<Touchable, MovingEntity> pairs) {
+        float size = staticCellSize;
+        int xMin = cell(dynamic.xLower(), size);
+        int yMin = cell(dynamic.yLower(), size);
+        int zMin = cell(dynamic.zLower(), size);
+        int xMax = cell(dynamic.xUpper(), size);
+        int yMax = cell(dynamic.yUpper(), size);
+        int zMax = cell(dynamic.zUpper(), size);
+
+        if (xMax - xMin >= MAX_CELLS_PER_AXIS || yMax - yMin >= MAX_CELLS_PER_AXIS || zMax - zMin >= MAX_CELLS_PER_AXIS) {
+            return false;
+        }
+
+        for (int x = xMin; x <= xMax; x++) {
+            for (int y = yMin; y <= yMax; y++) {
+                for (int z = zMin; z <= zMax; z++) {
+                    long cellKey = cellKey(x, y, z);
+                    List<CollisionEntity> occupants = staticGrid.get(cellKey);
+                    if (occupants == null) continue;
+
+                    for (CollisionEntity stat : occupants) {
+                        if (stat.intersects(dynamic) && ownerCell(stat, dynamic, size) == cellKey) {
+                            pairs.add(stat.entity, moving);
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * adds the entity to every cell of the grid it overlaps with.
+     * @return false iff the entity is too large to be hashed, in which case it is not added
+     */
+    private static boolean insert(Map<Long, List<CollisionEntity>> grid, CollisionEntity entity, float cellSize) {
+        int xMin = cell(entity.xLower(), cellSize);
+        int yMin = cell(entity.yLower(), cellSize);
+        int zMin = cell(entity.zLower(), cellSize);
+        int xMax = cell(entity.xUpper(), cellSize);
+        int yMax = cell(entity.yUpper(), cellSize);
+        int zMax = cell(entity.zUpper(), cellSize);
+
+        if (xMax - xMin >= MAX_CELLS_PER_AXIS || yMax - yMin >= MAX_CELLS_PER_AXIS || zMax - zMin >= MAX_CELLS_PER_AXIS) {
+            return false;
+        }
+
+        for (int x = xMin; x <= xMax; x++) {
+            for (int y = yMin; y <= yMax; y++) {
+                for (int z = zMin; z <= zMax; z++) {
+                    grid.computeIfAbsent(cellKey(x, y, z), k -> new ArrayList<>()).add(entity);
+                }
+            }
+        }
+        return true;
+    }
+
+    /** @return the key of the cell holding the lower corner of the overlap of the bounding boxes of a and b */
+    private static long ownerCell(CollisionEntity a, CollisionEntity b, float cellSize) {
+        return cellKey(
+                cell(Math.max(a.xLower(), b.xLower()), cellSize),
+                cell(Math.max(a.yLower(), b.yLower()), cellSize),
+                cell(Math.max(a.zLower(), b.zLower()), cellSize)
+        );
+    }
+
+    private static int cell(float value, float cellSize) {
+        return (int) Math.floor(value / cellSize);
+    }
+
+    /** packs the cell coordinates in one long. Coordinates wrap around after 2^21 cells, which is harmless */
+    private static long cellKey(int x, int y, int z) {
+        return ((x & CELL_MASK) << (2 * CELL_BITS)) | ((y & CELL_MASK) << CELL_BITS) | (z & CELL_MASK);
+    }
+
+    /** @return a cell size based on the median range of the given entities */
+    private static float cellSizeOf(List<CollisionEntity> entities) {
+        if (entities.isEmpty()) return DEFAULT_CELL_SIZE;
+
+        float[] ranges = new float[entities.size()];
+        for (int i = 0; i < ranges.length; i++) {
+            ranges[i] = entities.get(i).range;
+        }
+        Arrays.sort(ranges);
+
+        float median = ranges[ranges.length / 2];
+        return (median > 0) ? 2 * median * CELL_SIZE_FACTOR : DEFAULT_CELL_SIZE;
+    }
+
+    @Override
+    public PosVector rayTrace(PosVector from, PosVector to) {
+        float xMin = Math.min(from.x, to.x);
+        float yMin = Math.min(from.y, to.y);
+        float zMin = Math.min(from.z, to.z);
+        float xMax = Math.max(from.x, to.x);
+        float yMax = Math.max(from.y, to.y);
+        float zMax = Math.max(from.z, to.z);
+        Collision minColl = null;
+
+        List<CollisionEntity> candidates = new ArrayList<>(staticCollisionEntities);
+        candidates.addAll(dynamicCollisionEntities);
+
+        for (CollisionEntity entity : candidates) {
+            if (entity.entity instanceof Spectral) continue;
+            if (entity.xUpper() < xMin || entity.xLower() > xMax) continue;
+            if (entity.yUpper() < yMin || entity.yLower() > yMax) continue;
+            if (entity.zUpper() < zMin || entity.zLower() > zMax) continue;
+
+            Collision coll = MovingEntity.getPointCollision(null, entity.entity, from, to, 0);
+            if (coll == null) continue;
+
+            if (minColl == null || coll.compareTo(minColl) < 0) {
+                minColl = coll;
+            }
+        }
+
+        return minColl == null ? to : minColl.hitPosition();
+    }
+
+    @Override
+    public void cleanUp() {
+        super.cleanUp();
+        staticGrid.clear();
+        largeStatics.clear();
+        dynamicGrid.clear();
+        largeDynamics.clear();
+        dynamicCollisionEntities.clear();
+    }
+}
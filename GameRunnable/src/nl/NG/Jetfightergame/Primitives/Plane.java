@@ -1,6 +1,7 @@
 package nl.NG.Jetfightergame.Primitives;
 
 import nl.NG.Jetfightergame.EntityGeneral.Hitbox.Collision;
+import nl.NG.Jetfightergame.EntityGeneral.Hitbox.CollisionBuffer;
 import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
 import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
 import nl.NG.Jetfightergame.Tools.Vectors.Vector;
@@ -78,6 +79,40 @@ public abstract class Plane {
         return new Collision(scalar, normal, hitPos);
     }
 
+    /**
+     * checks the line piece of the given buffer against this plane, without creating any objects. This is equivalent
+     * to {@link #getCollisionWith(PosVector, DirVector, PosVector)} with a finite line.
+     * @param query a line piece in local space, and the earliest hit found so far
+     * @return true iff this plane is hit strictly earlier than the hit stored in the query, in which case the query now
+     *         stores the hit on this plane
+     */
+    public boolean checkCollision(CollisionBuffer query) {
+        float sx = query.startX;
+        float sy = query.startY;
+        float sz = query.startZ;
+        float dx = query.endX - sx;
+        float dy = query.endY - sy;
+        float dz = query.endZ - sz;
+
+        float lower = dx * normal.x + dy * normal.y + dz * normal.z;
+        if (lower >= 0) return false;
+
+        if (asideHitbox(sx, sy, sz, query.endX, query.endY, query.endZ)) return false;
+
+        PosVector p0 = boundary[0];
+        float upper = (p0.x - sx) * normal.x + (p0.y - sy) * normal.y + (p0.z - sz) * normal.z;
+        float scalar = upper / lower;
+        if ((scalar > 1.0f) || !query.isEarlier(scalar)) return false;
+
+        float hx = sx + dx * scalar;
+        float hy = sy + dy * scalar;
+        float hz = sz + dz * scalar;
+        if (!encapsulates(hx, hy, hz)) return false;
+
+        query.set(scalar, hx, hy, hz, this);
+        return true;
+    }
+
     /**
      * @param direction the direction of a given linepiece
      * @return false if the direction opposes the normal-vector, eg if it could hit the plane
@@ -102,6 +137,13 @@ public abstract class Plane {
         return ((alpha.z() < leastZ) && (beta.z() < leastZ)) || ((alpha.z() > mostZ) && (beta.z() > mostZ));
     }
 
+    /** @see #asideHitbox(PosVector, PosVector) */
+    private boolean asideHitbox(float ax, float ay, float az, float bx, float by, float bz) {
+        if (((ax < leastX) && (bx < leastX)) || ((ax > mostX) && (bx > mostX))) return true;
+        if (((ay < leastY) && (by < leastY)) || ((ay > mostY) && (by > mostY))) return true;
+        return ((az < leastZ) && (bz < leastZ)) || ((az > mostZ) && (bz > mostZ));
+    }
+
     /**
      * determines whether the given point lies on or within the boundary, given that it lies on the infinite extension
      * of this plane
@@ -111,6 +153,30 @@ public abstract class Plane {
      */
     protected abstract boolean encapsulates(PosVector hitPos);
 
+    /**
+     * allocation-free and thread-safe version of {@link #encapsulates(PosVector)}
+     * @precondition (x, y, z) lies on the plane of the points of {@code boundary}
+     */
+    protected abstract boolean encapsulates(float x, float y, float z);
+
+    /**
+     * @return true iff {@code ((to - from) x (point - from)) . ref >= 0}, which is whether the point lies on the inner
+     *         side of the edge (from, to) if ref is the reference vector of that edge
+     */
+    protected static boolean onInnerSide(PosVector from, PosVector to, float x, float y, float z, PosVector ref) {
+        float ex = to.x - from.x;
+        float ey = to.y - from.y;
+        float ez = to.z - from.z;
+        float px = x - from.x;
+        float py = y - from.y;
+        float pz = z - from.z;
+
+        float cx = ey * pz - ez * py;
+        float cy = ez * px - ex * pz;
+        float cz = ex * py - ey * px;
+        return (cx * ref.x + cy * ref.y + cz * ref.z) >= 0;
+    }
+
     /**
      * calculates the new {@param direction}, relative to {@param linePosition} where the given line will hit this plane
      * if this plane was infinite
@@ -125,6 +191,20 @@ public abstract class Plane {
         return upper / lower;
     }
 
+    /**
+     * writes the bounding box of this plane to the given array
+     * @param dest   the destination array
+     * @param offset the index where to write xMin, yMin, zMin, xMax, yMax, zMax, in that order
+     */
+    public void writeBounds(float[] dest, int offset) {
+        dest[offset] = leastX;
+        dest[offset + 1] = leastY;
+        dest[offset + 2] = leastZ;
+        dest[offset + 3] = mostX;
+        dest[offset + 4] = mostY;
+        dest[offset + 5] = mostZ;
+    }
+
     /**
      * @return a stream of the vertices of this object in counterclockwise order
      */
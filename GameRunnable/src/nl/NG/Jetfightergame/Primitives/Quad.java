@@ -60,4 +60,17 @@ public class Quad extends Plane {
         }
         return false;
     }
+
+    @Override
+    protected boolean encapsulates(float x, float y, float z) {
+        PosVector A = boundary[0];
+        PosVector B = boundary[1];
+        PosVector C = boundary[2];
+        PosVector D = boundary[3];
+
+        return onInnerSide(A, B, x, y, z, ABRef)
+                && onInnerSide(B, C, x, y, z, BCRef)
+                && onInnerSide(C, D, x, y, z, CDRef)
+                && onInnerSide(D, A, x, y, z, DARef);
+    }
 }
@@ -60,4 +60,15 @@ public class Triangle extends Plane {
         }
         return false;
     }
+
+    @Override
+    protected boolean encapsulates(float x, float y, float z) {
+        PosVector A = boundary[0];
+        PosVector B = boundary[1];
+        PosVector C = boundary[2];
+
+        return onInnerSide(A, B, x, y, z, ABRef)
+                && onInnerSide(B, C, x, y, z, BCRef)
+                && onInnerSide(C, A, x, y, z, CARef);
+    }
 }
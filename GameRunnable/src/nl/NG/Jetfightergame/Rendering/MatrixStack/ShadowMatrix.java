@@ -7,111 +7,211 @@ import org.joml.AxisAngle4f;
 import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 
-import java.util.Stack;
+import java.util.Arrays;
+import java.util.EmptyStackException;
 
 /**
+ * a matrix stack that only keeps track of the transformations. Levels of the stack and their inverses are allocated
+ * when first used and reused afterwards, such that pushing, popping and mapping only create objects the first time a
+ * level is reached. The inverse of each level is cached until that level changes.
  * @author Geert van Ieperen
  * created on 27-12-2017.
  */
 public class ShadowMatrix implements MatrixStack {
-
-    private Stack<Matrix4f> matrixStack;
+    private static final Matrix4f[] NO_LEVELS = new Matrix4f[0];
+    private static final boolean[] NO_FLAGS = new boolean[0];
+
+    /** the matrices of all levels, allocated on the first {@link #pushMatrix()}. Unused levels may be null */
+    private Matrix4f[] matrixStack = NO_LEVELS;
+    /** the inverses of all levels, each allocated when first used */
+    private Matrix4f[] inverseStack = NO_LEVELS;
+    /** for each level below the current, whether the inverse of that level is up to date */
+    private boolean[] parentHasInverse = NO_FLAGS;
+    private int level = 0;
+
+    /** the current level */
     private Matrix4f matrix;
-    private Matrix4f inverseMatrix;
+    /** the inverse of the current level, or null if not yet allocated */
+    private Matrix4f inverse;
+    /** whether {@link #inverse} is up to date */
+    private boolean hasInverse = false;
 
     public ShadowMatrix() {
-        matrixStack = new Stack<>();
         matrix = new Matrix4f();
-        inverseMatrix = null;
+    }
+
+    /** makes sure the stack can hold the given level, keeping the matrices of the current level */
+    private void ensureDepth(int newLevel) {
+        int oldDepth = matrixStack.length;
+        if (newLevel < oldDepth) return;
+
+        int depth = Math.max(2, 2 * oldDepth);
+        matrixStack = Arrays.copyOf(matrixStack, depth);
+        inverseStack = Arrays.copyOf(inverseStack, depth);
+        parentHasInverse = Arrays.copyOf(parentHasInverse, depth);
+
+        if (oldDepth == 0) {
+            matrixStack[0] = matrix;
+            inverseStack[0] = inverse;
+        }
     }
 
     @Override
     public void rotate(float angle, float x, float y, float z) {
-        rotate(new AxisAngle4f(angle, x, y, z));
+        matrix.rotate(angle, x, y, z);
+        hasInverse = false;
     }
 
     public void rotate(AxisAngle4f rotation){
         matrix.rotate(rotation);
-        inverseMatrix = null;
+        hasInverse = false;
     }
 
     @Override
     public void translate(float x, float y, float z) {
         matrix.translate(x, y, z);
-        inverseMatrix = null;
+        hasInverse = false;
     }
 
     @Override
     public void scale(float x, float y, float z) {
         matrix.scale(x, y, z);
-        inverseMatrix = null;
+        hasInverse = false;
     }
 
     @Override
     public PosVector getPosition(PosVector p) {
-        PosVector result = new PosVector();
-        p.mulPosition(matrix, result);
-        return result;
+        return getPosition(p, new PosVector());
+    }
+
+    /**
+     * maps a position in the current space to world space
+     * @param p    a position in the current space
+     * @param dest the vector to store the result in
+     * @return dest
+     */
+    public PosVector getPosition(PosVector p, PosVector dest) {
+        p.mulPosition(matrix, dest);
+        return dest;
     }
 
     @Override
     public DirVector getDirection(DirVector v) {
-        DirVector result = new DirVector();
-        v.mulDirection(matrix, result);
-        return result;
+        return getDirection(v, new DirVector());
+    }
+
+    /**
+     * maps a direction in the current space to world space
+     * @param v    a direction in the current space
+     * @param dest the vector to store the result in
+     * @return dest
+     */
+    public DirVector getDirection(DirVector v, DirVector dest) {
+        v.mulDirection(matrix, dest);
+        return dest;
     }
 
     @Override
     public void pushMatrix() {
-        matrixStack.push(new Matrix4f(matrix));
-        inverseMatrix = null;
+        ensureDepth(level + 1);
+        parentHasInverse[level] = hasInverse;
+
+        Matrix4f parent = matrix;
+        Matrix4f parentInverse = inverse;
+        level++;
+
+        if (matrixStack[level] == null) matrixStack[level] = new Matrix4f();
+        matrix = matrixStack[level].set(parent);
+        inverse = inverseStack[level];
+
+        if (hasInverse) {
+            if (inverse == null) inverse = inverseStack[level] = new Matrix4f();
+            inverse.set(parentInverse);
+        }
     }
 
     @Override
     public void popMatrix() {
-        matrix = matrixStack.pop();
-        inverseMatrix = null;
+        if (level == 0) throw new EmptyStackException();
+        level--;
+        matrix = matrixStack[level];
+        inverse = inverseStack[level];
+        hasInverse = parentHasInverse[level];
     }
 
     @Override
     public void rotate(Quaternionf rotation) {
         matrix.rotate(rotation);
-        inverseMatrix = null;
+        hasInverse = false;
     }
 
     @Override
     public void translate(Vector v) {
         matrix.translate(v);
-        inverseMatrix = null;
+        hasInverse = false;
     }
 
     @Override
     public void multiplyAffine(Matrix4f postTransformation) {
         // first apply combinedTransformation, then the viewTransformation
         postTransformation.mul(matrix, matrix);
-        inverseMatrix = null;
+        hasInverse = false;
     }
 
     @Override
     public void popAll() {
-        matrix = new Matrix4f();
-        matrixStack = new Stack<>();
-        inverseMatrix = null;
+        if (level > 0) {
+            level = 0;
+            matrix = matrixStack[0];
+            inverse = inverseStack[0];
+        }
+        matrix.identity();
+        hasInverse = false;
     }
 
     @Override
     public String toString() {
         return "ShadowMatrix{\n" +
                 "matrix=" + matrix +
-                ", stackSize=" + matrixStack.size() +
+                ", stackSize=" + level +
                 "\n}";
     }
 
     public PosVector mapToLocal(PosVector p) {
-        if (inverseMatrix == null) inverseMatrix = matrix.invertAffine(new Matrix4f());
+        return mapToLocal(p, new PosVector());
+    }
+
+    /**
+     * maps a position in world space back to the current space
+     * @param p    a position in world space
+     * @param dest the vector to store the result in
+     * @return dest
+     */
+    public PosVector mapToLocal(PosVector p, PosVector dest) {
+        p.mulPosition(getInverse(), dest);
+        return dest;
+    }
+
+    /**
+     * maps a direction in world space back to the current space
+     * @param v    a direction in world space
+     * @param dest the vector to store the result in
+     * @return dest
+     */
+    public DirVector mapToLocal(DirVector v, DirVector dest) {
+        v.mulDirection(getInverse(), dest);
+        return dest;
+    }
 
-        PosVector result = new PosVector();
-        p.mulPosition(inverseMatrix, result);
-        return result;
+    private Matrix4f getInverse() {
+        if (!hasInverse) {
+            if (inverse == null) {
+                inverse = new Matrix4f();
+                if (level < inverseStack.length) inverseStack[level] = inverse;
+            }
+            matrix.invertAffine(inverse);
+            hasInverse = true;
+        }
+        return inverse;
     }
 }
@@ -0,0 +1,340 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import nl.NG.Jetfightergame.Settings.ServerSettings;
+import nl.NG.Jetfightergame.Tools.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+
+/**
+ * the buffers of one non-blocking socket channel of a {@link SelectorServer}. All reading from and writing to the
+ * channel is done by the I/O thread of the server, while the streams of this connection only access the buffers.
+ * Outgoing messages wait in a {@link SendQueue}, which the I/O thread moves to the send buffer while the socket accepts
+ * them.
+ * <p>
+ * Received messages are handed to a {@link BlockingListener} one at a time, once the whole message has arrived. As the
+ * length of a message is not known in advance, the listener reads the message from the buffer as if it is complete; if
+ * it is not, the read is aborted and repeated when more bytes have arrived. This requires that the listener has no
+ * effects before it has read the whole message. Messages that are an exchange with the other side (see {@link
+ * MessageType#exchanges}), as well as the handshake of a new connection, are instead handled by a separate thread that
+ * reads with blocking streams.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+class ChannelConnection implements SendQueue.Drain {
+    private static final IncompleteMessage INCOMPLETE = new IncompleteMessage();
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final Executor exchanges;
+    private final InputStream input = new ChannelInput();
+    private final SendQueue output;
+    /** the thread that reads and writes the channel */
+    private final Thread ioThread;
+
+    private final Object inputLock = new Object();
+    /** received bytes not yet read, in write mode */
+    private ByteBuffer received;
+    /** handles the received messages on the I/O thread, or null if no listener is set */
+    private BlockingListener listener = null;
+    /** whether another thread is reading the input with blocking reads */
+    private boolean isBlocking = true;
+    private boolean endOfStream = false;
+
+    /** bytes to send, in write mode, only accessed by the I/O thread */
+    private ByteBuffer toSend;
+    private volatile boolean isClosed = false;
+
+    /**
+     * creates the buffers of a new channel. Must be called by the I/O thread
+     * @param channel   a non-blocking channel
+     * @param key       the key of the channel, registered for reading
+     * @param exchanges executes handshakes and message exchanges
+     */
+    ChannelConnection(SocketChannel channel, SelectionKey key, Executor exchanges) {
+        this.channel = channel;
+        this.key = key;
+        this.exchanges = exchanges;
+        this.ioThread = Thread.currentThread();
+        this.received = ByteBuffer.allocateDirect(ServerSettings.CONNECTION_BUFFER_SIZE);
+        this.toSend = ByteBuffer.allocateDirect(ServerSettings.CONNECTION_BUFFER_SIZE);
+        this.output = new SendQueue(ServerSettings.SEND_QUEUE_CAPACITY, ServerSettings.SEND_QUEUE_POLICY);
+        output.setDrain(this);
+    }
+
+    /**
+     * the incoming data of this connection. While no listener is set, or while an exchange is handled, reads block
+     * until enough data has arrived.
+     */
+    InputStream getInputStream() {
+        return input;
+    }
+
+    /** the outgoing data of this connection. Flushing hands the messages to the I/O thread */
+    SendQueue getOutputStream() {
+        return output;
+    }
+
+    /**
+     * hands all further messages to the given listener. Must be called by the thread that handled the handshake.
+     * @param listener the receiver of the messages, of which {@link BlockingListener#handleMessage()} is called once for
+     *                 every message
+     */
+    void dispatchTo(BlockingListener listener) {
+        synchronized (inputLock) {
+            this.listener = listener;
+            isBlocking = false;
+        }
+        dispatch();
+    }
+
+    /** reads the available bytes from the channel. Must only be called by the I/O thread */
+    void receive() throws IOException {
+        synchronized (inputLock) {
+            if (!received.hasRemaining()) received = grow(received, 1);
+
+            if (channel.read(received) < 0) {
+                endOfStream = true;
+                key.interestOpsAnd(~SelectionKey.OP_READ);
+            }
+            inputLock.notifyAll();
+        }
+        dispatch();
+    }
+
+    /** writes as much of the queued messages to the channel as possible. Must only be called by the I/O thread */
+    void send() throws IOException {
+        byte[] message;
+        while ((message = output.poll(toSend.remaining())) != null) {
+            toSend.put(message);
+        }
+        if (toSend.position() == 0) {
+            // a message larger than the buffer
+            message = output.poll(Integer.MAX_VALUE);
+            if (message != null) {
+                toSend = grow(toSend, message.length);
+                toSend.put(message);
+            }
+        }
+
+        toSend.flip();
+        channel.write(toSend);
+        toSend.compact();
+
+        if (toSend.position() == 0) {
+            key.interestOpsAnd(~SelectionKey.OP_WRITE);
+            // messages queued after polling must not wait for the next flush
+            if (output.depth() > 0) key.interestOpsOr(SelectionKey.OP_WRITE);
+        }
+    }
+
+    @Override
+    public void onAvailable() {
+        if (isClosed) return;
+        try {
+            key.interestOpsOr(SelectionKey.OP_WRITE);
+            key.selector().wakeup();
+
+        } catch (CancelledKeyException ex) {
+            // the connection was closed concurrently
+        }
+    }
+
+    @Override
+    public void onClose() {
+        close();
+    }
+
+    @Override
+    public boolean isDrainThread() {
+        // messages handled on the I/O thread may reply
+        return Thread.currentThread() == ioThread;
+    }
+
+    /** hands all completely received messages to the listener */
+    private void dispatch() {
+        synchronized (inputLock) {
+            if (isBlocking) return;
+            received.flip();
+
+            try {
+                while (received.hasRemaining() || endOfStream) {
+                    int start = received.position();
+
+                    if (received.hasRemaining() && MessageType.isExchange(received.get(start))) {
+                        isBlocking = true;
+                        exchanges.execute(this::handleExchange);
+                        break;
+                    }
+
+                    try {
+                        boolean proceed = listener.handleMessage();
+                        // at end of stream, a listener that reads nothing would be called indefinitely
+                        if (!proceed || (endOfStream && received.position() == start)) {
+                            close();
+                            break;
+                        }
+
+                    } catch (IncompleteMessage ex) {
+                        received.position(start);
+                        break;
+                    }
+                }
+
+            } catch (IOException ex) {
+                Logger.ERROR.print(ex);
+                close();
+
+            } finally {
+                received.compact();
+            }
+        }
+    }
+
+    /** handles one message with blocking reads, after which dispatching continues */
+    private void handleExchange() {
+        try {
+            if (!listener.handleMessage()) {
+                close();
+                return;
+            }
+
+        } catch (IOException ex) {
+            Logger.ERROR.print(ex);
+            close();
+            return;
+        }
+
+        synchronized (inputLock) {
+            isBlocking = false;
+        }
+        dispatch();
+    }
+
+    /** closes the channel, after which writing to this connection fails and reading gives end of stream */
+    void close() {
+        if (isClosed) return;
+        isClosed = true;
+        output.close();
+
+        synchronized (inputLock) {
+            endOfStream = true;
+            inputLock.notifyAll();
+        }
+
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            Logger.ERROR.print(ex);
+        }
+    }
+
+    /**
+     * @param buffer       a buffer in write mode
+     * @param minRemaining the number of bytes that must fit
+     * @return a buffer in write mode with the contents of the given buffer and at least minRemaining bytes remaining
+     */
+    private static ByteBuffer grow(ByteBuffer buffer, int minRemaining) {
+        int capacity = buffer.capacity();
+        while (capacity - buffer.position() < minRemaining) {
+            capacity *= 2;
+        }
+
+        ByteBuffer larger = ByteBuffer.allocateDirect(capacity);
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    @Override
+    public String toString() {
+        return channel.toString();
+    }
+
+    private class ChannelInput extends InputStream {
+        @Override
+        public int read() throws IOException {
+            synchronized (inputLock) {
+                if (isBlocking) {
+                    received.flip();
+                    try {
+                        while (!received.hasRemaining() && !endOfStream) {
+                            received.compact();
+                            waitForInput();
+                            received.flip();
+                        }
+                        return received.hasRemaining() ? (received.get() & 0xFF) : -1;
+
+                    } finally {
+                        received.compact();
+                    }
+                }
+
+                // during dispatching, the buffer is in read mode
+                if (received.hasRemaining()) return received.get() & 0xFF;
+                if (endOfStream) return -1;
+                throw INCOMPLETE;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+
+            synchronized (inputLock) {
+                if (isBlocking) {
+                    while (received.position() == 0 && !endOfStream) {
+                        waitForInput();
+                    }
+
+                    received.flip();
+                    try {
+                        return get(b, off, len);
+                    } finally {
+                        received.compact();
+                    }
+                }
+
+                if (!received.hasRemaining() && !endOfStream) throw INCOMPLETE;
+                return get(b, off, len);
+            }
+        }
+
+        /** reads at most len bytes off the buffer in read mode, or returns -1 if it is empty */
+        private int get(byte[] b, int off, int len) {
+            if (!received.hasRemaining()) return -1;
+
+            int n = Math.min(len, received.remaining());
+            received.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            synchronized (inputLock) {
+                return isBlocking ? received.position() : received.remaining();
+            }
+        }
+
+        private void waitForInput() throws IOException {
+            try {
+                inputLock.wait();
+            } catch (InterruptedException ex) {
+                throw new IOException(ex);
+            }
+        }
+    }
+
+    /** thrown while dispatching, when a message is read of which not all bytes have arrived */
+    private static class IncompleteMessage extends IOException {
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -19,6 +19,7 @@ import nl.NG.Jetfightergame.Rendering.Particles.ParticleCloud;
 import nl.NG.Jetfightergame.Rendering.Particles.Particles;
 import nl.NG.Jetfightergame.ScreenOverlay.HUD.CountDownTimer;
 import nl.NG.Jetfightergame.Settings.ClientSettings;
+import nl.NG.Jetfightergame.Settings.ServerSettings;
 import nl.NG.Jetfightergame.Sound.AudioSource;
 import nl.NG.Jetfightergame.Tools.DataStructures.Pair;
 import nl.NG.Jetfightergame.Tools.Logger;
@@ -27,6 +28,10 @@ import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
 import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
 
 import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -46,6 +51,7 @@ import static nl.NG.Jetfightergame.Settings.ClientSettings.FIRE_PARTICLE_SIZE;
 public class ClientConnection extends AbstractGameLoop implements BlockingListener, SpawnReceiver, ClientControl {
     private final OutputStream serverOut;
     private final InputStream serverIn;
+    private final DataInputStream serverData;
     private final EnvironmentManager game;
     private final JetFighterProtocol protocol;
     private final boolean isAdmin;
@@ -58,6 +64,38 @@ public class ClientConnection extends AbstractGameLoop implements BlockingListen
     protected final Collection<AudioSource> soundSources = Collections.synchronizedSet(new HashSet<>());
 
     private Lock sendLock = new ReentrantLock();
+    private final SnapshotHistory receivedSnapshots = new SnapshotHistory(ServerSettings.SNAPSHOT_HISTORY_SIZE);
+    /** snapshots arrive on the stream and as datagrams, possibly at the same time */
+    private final Object snapshotLock = new Object();
+    private int lastSnapshot = EntitySnapshot.NONE;
+
+    /** the token and port offered by the server, or 0 if the server does not accept datagrams */
+    private final int datagramToken;
+    private final int datagramPort;
+    private DatagramEndpoint datagrams = null;
+    private SocketAddress serverDatagramAddress;
+    private int datagramSequence = 0;
+    /** local time of the last datagram of the server. While datagrams arrive, controls are only sent as datagrams */
+    private volatile double lastDatagramTime = Double.NEGATIVE_INFINITY;
+    /** whether datagrams of the server arrived in the last update */
+    private boolean datagramsConfirmed = false;
+    /** the link of a server in the same process, or null if snapshots arrive on the stream or as datagrams */
+    private volatile LocalLink localLink = null;
+    /** the controls and their sequence number */
+    private final byte[] controlDatagram = new byte[2 * MessageType.controls.size() + 5];
+    /** predicts the own jet, or null if the jet is only moved by the server */
+    private final ClientPrediction prediction;
+    /** estimates the clock of the server from the round trips of the controls, or null if the timer is not adjusted */
+    private final ClockEstimator clock;
+    /** chooses the render delay from the arrival of snapshots, or null if the delay is fixed */
+    private final PlayoutDelay playout;
+    /** the sequence number of the last controls, if these are not numbered by the prediction */
+    private int inputSequence = 0;
+    /** the round trips of the timer synchronisation that remain, the sum of their offsets, and when the last started */
+    private int syncRoundsLeft = 0;
+    private double syncOffset;
+    private double syncSentTime;
+    private final long startNanos = System.nanoTime();
     private RaceProgress raceProgress;
     protected boolean controlTeardown = false;
     protected float maxServerTime = 0;
@@ -68,6 +106,7 @@ public class ClientConnection extends AbstractGameLoop implements BlockingListen
         super("Connection Controller", ClientSettings.CONNECTION_SEND_FREQUENCY, false);
         this.serverOut = new BufferedOutputStream(sendChannel);
         this.serverIn = receiveChannel;
+        this.serverData = new DataInputStream(serverIn);
         this.name = name;
         this.raceProgress = new RaceProgress();
         this.input = new SubControl(AIController, raceProgress);
@@ -84,6 +123,39 @@ public class ClientConnection extends AbstractGameLoop implements BlockingListen
         this.jet = pair.left;
         game.addEntity(jet);
 
+        Pair<Integer, Integer> offer = protocol.datagramOfferRead();
+        this.datagramToken = offer.left;
+        this.datagramPort = offer.right;
+
+        if (ClientSettings.PREDICT_OWN_JET) {
+            prediction = new ClientPrediction(
+                    jet, ClientSettings.PREDICTION_HISTORY_SIZE,
+                    ClientSettings.PREDICTION_POSITION_TOLERANCE, ClientSettings.PREDICTION_ROTATION_TOLERANCE
+            );
+            Logger.printOnline(prediction::toString);
+        } else {
+            prediction = null;
+        }
+
+        if (ClientSettings.CLOCK_SYNC) {
+            clock = new ClockEstimator(
+                    ClientSettings.CLOCK_HISTORY_SIZE, ClientSettings.CLOCK_FILTER_WINDOW, ClientSettings.CLOCK_DRIFT_POINTS
+            );
+            Logger.printOnline(clock::toString);
+        } else {
+            clock = null;
+        }
+
+        if (ClientSettings.ADAPTIVE_RENDER_DELAY) {
+            playout = new PlayoutDelay(
+                    ClientSettings.RENDER_DELAY_WINDOW, ClientSettings.RENDER_DELAY_PERCENTILE,
+                    0, ClientSettings.RENDER_DELAY_MAX, ClientSettings.RENDER_DELAY
+            );
+            Logger.printOnline(playout::toString);
+        } else {
+            playout = null;
+        }
+
         soundSources.add(new AudioSource(game.backgroundMusic(), BACKGROUND_MUSIC_GAIN, true));
 
         Logger.printOnline(() -> jet.getPosition() + " | " + jet.getForward());
@@ -104,6 +176,12 @@ public class ClientConnection extends AbstractGameLoop implements BlockingListen
 
         serverIn = protocol.getInput();
         serverOut = protocol.getOutput();
+        serverData = new DataInputStream(serverIn);
+        datagramToken = 0;
+        datagramPort = 0;
+        prediction = null;
+        clock = null;
+        playout = null;
         gameTimer.set(new DataInputStream(serverIn).readFloat());
 
         MovingEntity construct = jetReplacement.construct(this, game);
@@ -138,16 +216,17 @@ public class ClientConnection extends AbstractGameLoop implements BlockingListen
                 break;
 
             case SYNC_TIMER:
-                protocol.syncTimerTarget(gameTimer);
-                sendLock.unlock();
+                receiveTimerSync(protocol.syncTimerRead());
                 break;
 
             case PAUSE_GAME:
                 gameTimer.pause();
+                if (clock != null) clock.reset();
                 break;
 
             case UNPAUSE_GAME:
                 gameTimer.unPause();
+                if (clock != null) clock.reset();
                 startTimerSync();
                 break;
 
@@ -156,11 +235,29 @@ public class ClientConnection extends AbstractGameLoop implements BlockingListen
                 game.addEntity(newEntity);
                 break;
 
+            case ENTITY_SPAWN_BATCH:
+                game.addEntities(protocol.newEntitiesRead(this, game));
+                break;
+
             case ENTITY_UPDATE:
                 float t = protocol.entityUpdateRead(game);
                 maxServerTime = Math.max(maxServerTime, t);
                 break;
 
+            case ENTITY_UPDATE_BATCH:
+                receiveSnapshot(serverData, 0);
+                break;
+
+            case INPUT_ACK:
+                receiveInputAck(serverData);
+                break;
+
+            case LOCAL_SNAPSHOT:
+                int snapshotNumber = protocol.localSnapshotRead();
+                LocalLink link = localLink;
+                if (link != null) link.deliver(snapshotNumber);
+                break;
+
             case ENTITY_REMOVE:
                 MovingEntity entity = protocol.entityRemoveRead(game);
                 game.removeEntity(entity);
@@ -217,7 +314,137 @@ public class ClientConnection extends AbstractGameLoop implements BlockingListen
         return true;
     }
 
+    /**
+     * reads the sequence number of the controls acknowledged by the server, and the snapshot that follows it. Together,
+     * these give a sample of the round trip time and the clock of the server.
+     */
+    private void receiveInputAck(DataInput in) throws IOException {
+        double receiveTime = localTime();
+        Pair<Integer, Float> ack = JetFighterProtocol.inputAckRead(in);
+        int acknowledged = ack.left;
+
+        MessageType type = MessageType.get(in.readUnsignedByte());
+        if (type != ENTITY_UPDATE_BATCH) throw new IOException("Expected a snapshot after " + INPUT_ACK + ", got " + type);
+        EntitySnapshot snapshot = receiveSnapshot(in, acknowledged);
+
+        if (clock != null && snapshot != null) {
+            clock.received(acknowledged, receiveTime, snapshot.time, ack.right);
+        }
+    }
+
+    /**
+     * reads a snapshot and applies it to the game, unless a newer snapshot has already been applied. While the own jet
+     * is predicted, its state in the snapshot corrects the prediction instead.
+     * @param in           the stream or datagram to read from
+     * @param acknowledged the sequence number of the last controls the server received, or 0 if unknown
+     * @return the snapshot that was read, or null if its baseline was lost
+     */
+    private EntitySnapshot receiveSnapshot(DataInput in, int acknowledged) throws IOException {
+        synchronized (snapshotLock) {
+            EntitySnapshot snapshot = JetFighterProtocol.entityBatchRead(in, receivedSnapshots);
+            if (snapshot == null) {
+                // the baseline is lost, request a full snapshot
+                acknowledgeSnapshot(EntitySnapshot.NONE);
+                return null;
+            }
+            // a datagram may overtake the stream, or the other way around
+            if (snapshot.number <= lastSnapshot) return snapshot;
+
+            int nOfUnknown = applySnapshot(snapshot, acknowledged);
+            if (nOfUnknown > 0) {
+                // the spawn of an entity has not arrived yet. The server must not send its state relative to this
+                // snapshot, as the client never applied it
+                Logger.DEBUG.printf("Snapshot %d has %d unknown entities", snapshot.number, nOfUnknown);
+                return snapshot;
+            }
+
+            receivedSnapshots.add(snapshot);
+            acknowledgeSnapshot(snapshot.number);
+            return snapshot;
+        }
+    }
+
+    /**
+     * applies a snapshot passed by a server in the same process. These snapshots are not used as baseline, and thus
+     * not acknowledged.
+     * @param snapshot     a snapshot of the server, which is not changed
+     * @param acknowledged the sequence number of the last controls the server received, or 0 if unknown
+     */
+    private void receiveLocalSnapshot(EntitySnapshot snapshot, int acknowledged) {
+        synchronized (snapshotLock) {
+            if (snapshot.number <= lastSnapshot) return;
+            applySnapshot(snapshot, acknowledged);
+        }
+    }
+
+    /**
+     * applies a new snapshot to the game. While the own jet is predicted, the snapshot corrects the prediction instead
+     * @return the number of entities in the snapshot that were not found
+     */
+    private int applySnapshot(EntitySnapshot snapshot, int acknowledged) {
+        int nOfUnknown;
+        if (prediction != null && prediction.isPredicting()) {
+            nOfUnknown = snapshot.apply(game, jet.idNumber());
+            prediction.reconcile(snapshot, acknowledged, game.entityNetforce(jet), gameTimer.time());
+
+        } else {
+            nOfUnknown = snapshot.apply(game);
+        }
+        lastSnapshot = snapshot.number;
+        maxServerTime = Math.max(maxServerTime, snapshot.time);
+        if (playout != null) playout.arrived(snapshot.time, gameTimer.time());
+        return nOfUnknown;
+    }
+
+    /**
+     * receives the entity snapshots of a server in the same process on the given link instead of on the stream. Each
+     * snapshot is taken from the link when its {@link MessageType#LOCAL_SNAPSHOT} message is read from the stream.
+     * @param link the link that the server passes the snapshots of this client to
+     */
+    public void openLocalLink(LocalLink link) {
+        link.setReceiver(this::receiveLocalSnapshot);
+        localLink = link;
+    }
+
+    /**
+     * accepts the offer of the server to send entity states and controls as datagrams. The datagrams of the server are
+     * received on a new thread. Until the first datagram of the server arrives, and whenever no datagram arrived for
+     * {@link ClientSettings#DATAGRAM_TIMEOUT} seconds, controls are sent on the stream as well.
+     * @param server the address of the server
+     * @throws IOException if no datagram channel could be opened
+     */
+    public void openDatagramChannel(InetAddress server) throws IOException {
+        if (datagramPort == 0) {
+            Logger.INFO.print("Server does not accept datagrams");
+            return;
+        }
+
+        serverDatagramAddress = new InetSocketAddress(server, datagramPort);
+        datagrams = new DatagramEndpoint(0, this::receiveDatagram);
+        datagrams.listenInThread(true);
+    }
+
+    private void receiveDatagram(int token, SocketAddress source, DataInputStream messages) throws IOException {
+        if (token != datagramToken) return;
+        lastDatagramTime = localTime();
+
+        while (messages.available() > 0) {
+            MessageType type = MessageType.get(messages.read());
+            switch (type) {
+                case ENTITY_UPDATE_BATCH:
+                    receiveSnapshot(messages, 0);
+                    break;
+                case INPUT_ACK:
+                    receiveInputAck(messages);
+                    break;
+                default:
+                    throw new IOException("Unexpected datagram message " + type);
+            }
+        }
+    }
+
     protected void worldSwitch() {
+        if (prediction != null) prediction.reset();
         AudioSource.disposeAll(soundSources);
         soundSources.clear();
         soundSources.add(new AudioSource(game.backgroundMusic(), BACKGROUND_MUSIC_GAIN, true));
@@ -227,10 +454,58 @@ public class ClientConnection extends AbstractGameLoop implements BlockingListen
         input.enable();
     }
 
-    private void startTimerSync() throws IOException {
+    /**
+     * synchronizes the timer with the server by a number of requests, of which the round trips are measured here. The
+     * server answers each request with a single message, such that it never waits for this client.
+     */
+    private void startTimerSync() {
+        syncRoundsLeft = JetFighterProtocol.TIMER_SYNC_PINGS;
+        syncOffset = 0;
+        syncSentTime = localTime();
+        sendCommand(SYNC_TIMER);
+    }
+
+    /**
+     * @param serverTime the time of the server when it answered the last request
+     */
+    private void receiveTimerSync(float serverTime) {
+        if (syncRoundsLeft == 0) {
+            Logger.WARN.print("Received an unrequested timer synchronisation");
+            return;
+        }
+
+        double roundTrip = localTime() - syncSentTime;
+        syncOffset += serverTime + roundTrip / 2 - gameTimer.time();
+
+        if (--syncRoundsLeft > 0) {
+            syncSentTime = localTime();
+            sendCommand(SYNC_TIMER);
+            return;
+        }
+
+        gameTimer.set(gameTimer.time() + (float) (syncOffset / JetFighterProtocol.TIMER_SYNC_PINGS));
+        if (playout != null) playout.reset();
+    }
+
+    /**
+     * notifies the server that the given snapshot has been received, such that it may be used as baseline for the
+     * following snapshots.
+     * @param snapshotNumber the number of the received snapshot, or {@link EntitySnapshot#NONE} to request a full
+     *                       snapshot
+     */
+    protected void acknowledgeSnapshot(int snapshotNumber) {
         sendLock.lock();
-        serverOut.write(SYNC_TIMER.ordinal());
-        serverOut.flush();
+        try {
+            serverOut.write(SNAPSHOT_ACK.ordinal());
+            protocol.snapshotAckSend(snapshotNumber);
+            serverOut.flush();
+
+        } catch (IOException ex) {
+            Logger.ERROR.print(ex);
+
+        } finally {
+            sendLock.unlock();
+        }
     }
 
     /**
@@ -288,20 +563,132 @@ public class ClientConnection extends AbstractGameLoop implements BlockingListen
             sendLock.lock();
             try {
                 input.update();
-                // axis controls
-                sendControlUnsafe(THROTTLE, input.throttle());
-                sendControlUnsafe(PITCH, input.pitch());
-                sendControlUnsafe(YAW, input.yaw());
-                sendControlUnsafe(ROLL, input.roll());
-                // binary controls
-                sendControlUnsafe(PRIMARY_FIRE, input.primaryFire());
-                sendControlUnsafe(SECONDARY_FIRE, input.secondaryFire());
-
-                serverOut.flush();
+                int inputSequence = nextInputSequence(input, deltaTime);
+                if (clock != null && inputSequence != 0) clock.sent(inputSequence, localTime());
+                if (datagrams != null) sendControlDatagram(input, inputSequence);
+
+                if (!checkDatagrams()) {
+                    // axis controls
+                    sendControlUnsafe(THROTTLE, input.throttle());
+                    sendControlUnsafe(PITCH, input.pitch());
+                    sendControlUnsafe(YAW, input.yaw());
+                    sendControlUnsafe(ROLL, input.roll());
+                    // binary controls
+                    sendControlUnsafe(PRIMARY_FIRE, input.primaryFire());
+                    sendControlUnsafe(SECONDARY_FIRE, input.secondaryFire());
+
+                    if (inputSequence != 0) {
+                        serverOut.write(INPUT_SEQUENCE.ordinal());
+                        protocol.inputSequenceSend(inputSequence);
+                    }
+                    serverOut.flush();
+                }
             } finally {
                 sendLock.unlock();
             }
+
+        } else if (prediction != null) {
+            prediction.reset();
         }
+
+        syncClock();
+        adaptRenderDelay(deltaTime);
+    }
+
+    /**
+     * controls are sent on the stream again when the datagrams of the server stop arriving, as the datagrams of this
+     * client are then likely lost as well
+     * @return true iff a datagram of the server arrived within the timeout
+     */
+    private boolean checkDatagrams() {
+        boolean confirmed = (localTime() - lastDatagramTime) < ClientSettings.DATAGRAM_TIMEOUT;
+
+        if (confirmed != datagramsConfirmed) {
+            if (confirmed) Logger.DEBUG.print("Datagrams of the server arrive, sending controls as datagrams only");
+            else Logger.WARN.print("No datagrams of the server received, sending controls on the stream");
+            datagramsConfirmed = confirmed;
+        }
+        return confirmed;
+    }
+
+    /**
+     * applies the given controls to the own jet, if it is predicted, and numbers them
+     * @return the sequence number of the controls, or 0 if the controls are not numbered
+     */
+    private int nextInputSequence(Controller input, float deltaTime) {
+        if (prediction == null) return (clock == null) ? 0 : ++inputSequence;
+
+        if (gameTimer.isPaused()) {
+            prediction.reset();
+            return 0;
+        }
+
+        return prediction.predict(input, game.entityNetforce(jet), deltaTime, gameTimer.time());
+    }
+
+    /**
+     * moves the game time gradually towards the estimated time of the server, and lets it run at the rate of the server
+     * clock. Only if the difference is too large, the game time jumps.
+     */
+    private void syncClock() {
+        if (clock == null || !clock.hasEstimate() || gameTimer.isPaused()) return;
+
+        double now = localTime();
+        float error = (float) (clock.serverTime(now) - gameTimer.time());
+
+        if (Math.abs(error) > ClientSettings.CLOCK_STEP_THRESHOLD) {
+            Logger.DEBUG.printf("Game time is %.3f seconds off, setting the timer", error);
+            gameTimer.set(gameTimer.time() + error);
+            if (playout != null) playout.reset();
+
+        } else {
+            gameTimer.slew(error, ClientSettings.CLOCK_SLEW_RATE);
+        }
+
+        gameTimer.setRate(1 + (float) clock.drift());
+    }
+
+    /** moves the render delay gradually towards the delay chosen from the arrival of snapshots */
+    private void adaptRenderDelay(float deltaTime) {
+        if (playout == null) return;
+
+        float current = gameTimer.getRenderDelay();
+        float maxChange = ClientSettings.RENDER_DELAY_SLEW_RATE * deltaTime;
+        float change = Math.max(-maxChange, Math.min(maxChange, playout.delay() - current));
+        gameTimer.setRenderDelay(current + change);
+    }
+
+    /** @return the seconds since creating this connection, independent of the game time */
+    private double localTime() {
+        return (System.nanoTime() - startNanos) * 1E-9;
+    }
+
+    /**
+     * sends all controls as one datagram, which also tells the server where to send its datagrams
+     * @param inputSequence the sequence number of the controls, or 0 if the controls are not numbered
+     */
+    private void sendControlDatagram(Controller input, int inputSequence) throws IOException {
+        byte[] message = controlDatagram;
+        message[0] = (byte) THROTTLE.ordinal();
+        message[1] = RemoteControlReceiver.toByte(input.throttle());
+        message[2] = (byte) PITCH.ordinal();
+        message[3] = RemoteControlReceiver.toByte(input.pitch());
+        message[4] = (byte) YAW.ordinal();
+        message[5] = RemoteControlReceiver.toByte(input.yaw());
+        message[6] = (byte) ROLL.ordinal();
+        message[7] = RemoteControlReceiver.toByte(input.roll());
+        message[8] = (byte) PRIMARY_FIRE.ordinal();
+        message[9] = RemoteControlReceiver.toByte(input.primaryFire());
+        message[10] = (byte) SECONDARY_FIRE.ordinal();
+        message[11] = RemoteControlReceiver.toByte(input.secondaryFire());
+        int length = 12;
+
+        if (inputSequence != 0) {
+            ByteBuffer.wrap(message, length, 5).put((byte) INPUT_SEQUENCE.ordinal()).putInt(inputSequence);
+            length += 5;
+        }
+
+        datagrams.send(serverDatagramAddress, datagramToken, ++datagramSequence, message, length);
     }
 
     private void sendControlUnsafe(MessageType type, boolean isEnabled) throws IOException {
@@ -319,6 +706,8 @@ public class ClientConnection extends AbstractGameLoop implements BlockingListen
     @Override
     protected void cleanup() {
         AudioSource.disposeAll(soundSources);
+        if (datagrams != null) datagrams.close();
+        if (localLink != null) localLink.close();
     }
 
     @Override
@@ -0,0 +1,218 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import nl.NG.Jetfightergame.Assets.Entities.FighterJets.AbstractJet;
+import nl.NG.Jetfightergame.Controllers.Controller;
+import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+import org.joml.Quaternionf;
+
+import static nl.NG.Jetfightergame.Assets.Entities.FighterJets.AbstractJet.PHYSICS_STATE_SIZE;
+
+/**
+ * predicts the jet of a client from its own controls, such that the controls take effect without waiting for the
+ * server. Every tick, the controls are applied to the jet locally, and both the controls and the resulting state are
+ * remembered by sequence number. The server tells which controls it had received when it took a snapshot. If the state
+ * of the jet in that snapshot differs from the state predicted for those controls, the jet is set to the state of the
+ * server, and the controls the server had not yet received are applied again. As the predicted states are on the
+ * current game time, the jet is rendered without render delay.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class ClientPrediction {
+    /** throttle, pitch, yaw and roll */
+    private static final int CONTROLS_SIZE = 4;
+
+    private final AbstractJet jet;
+    private final int capacity;
+    private final float positionTolerance;
+    private final float rotationTolerance;
+
+    /** per sequence number modulo capacity, the controls, the time they were applied and the resulting state */
+    private final float[] controls;
+    private final float[] deltaTimes;
+    private final float[] states;
+    private final RecordedControls replay = new RecordedControls();
+
+    /** the sequence number of the last prediction */
+    private int sequence = 0;
+    /** the first sequence number of which the prediction is remembered */
+    private int first = 1;
+    private int nOfCorrections = 0;
+
+    /**
+     * @param jet               the jet of this client, which is rendered as predicted while predictions are made
+     * @param capacity          the number of predictions remembered. Predictions of controls that have not been
+     *                          acknowledged after this many ticks can not be corrected
+     * @param positionTolerance the distance between the predicted and received position that is not corrected
+     * @param rotationTolerance the angle between the predicted and received rotation that is not corrected
+     */
+    public ClientPrediction(AbstractJet jet, int capacity, float positionTolerance, float rotationTolerance) {
+        this.jet = jet;
+        this.capacity = capacity;
+        this.positionTolerance = positionTolerance;
+        this.rotationTolerance = rotationTolerance;
+        this.controls = new float[capacity * CONTROLS_SIZE];
+        this.deltaTimes = new float[capacity];
+        this.states = new float[capacity * PHYSICS_STATE_SIZE];
+    }
+
+    /**
+     * applies the current values of the given controls to the jet, and remembers them
+     * @param input       the controls of the player, already updated
+     * @param netForce    accumulated external forces on the jet
+     * @param deltaTime   the time since the previous prediction
+     * @param currentTime the time of the resulting state
+     * @return the sequence number of these controls, which must be sent to the server together with the controls
+     */
+    public synchronized int predict(Controller input, DirVector netForce, float deltaTime, float currentTime) {
+        sequence++;
+        if (sequence - first >= capacity) first = sequence - capacity + 1;
+
+        int slot = sequence % capacity;
+        int c = slot * CONTROLS_SIZE;
+        controls[c] = input.throttle();
+        controls[c + 1] = input.pitch();
+        controls[c + 2] = input.yaw();
+        controls[c + 3] = input.roll();
+        deltaTimes[slot] = deltaTime;
+
+        apply(slot, netForce);
+        jet.setPredicted(true);
+        jet.addPredictedStatePoint(currentTime);
+        return sequence;
+    }
+
+    /**
+     * compares the state of the jet in the given snapshot with the prediction, and corrects the prediction if these
+     * differ.
+     * @param snapshot     a snapshot of the server
+     * @param acknowledged the sequence number of the last controls the server received before taking the snapshot
+     * @param netForce     accumulated external forces on the jet
+     * @param currentTime  the time of the current state
+     * @return true iff the prediction has been corrected
+     */
+    public synchronized boolean reconcile(
+            EntitySnapshot snapshot, int acknowledged, DirVector netForce, float currentTime
+    ) {
+        if (acknowledged < first || acknowledged > sequence) return false;
+
+        int i = snapshot.indexOf(jet.idNumber());
+        if (i < 0) return false;
+
+        PosVector position = snapshot.position(i, new PosVector());
+        Quaternionf rotation = snapshot.rotation(i, new Quaternionf());
+
+        int s = (acknowledged % capacity) * PHYSICS_STATE_SIZE;
+        float dx = states[s] - position.x;
+        float dy = states[s + 1] - position.y;
+        float dz = states[s + 2] - position.z;
+        float dot = states[s + 3] * rotation.x + states[s + 4] * rotation.y +
+                states[s + 5] * rotation.z + states[s + 6] * rotation.w;
+        float angle = 2 * (float) Math.acos(Math.min(1, Math.abs(dot)));
+
+        if ((dx * dx + dy * dy + dz * dz) <= (positionTolerance * positionTolerance) && angle <= rotationTolerance) {
+            return false;
+        }
+
+        // continue from the state of the server, with the predicted velocity
+        states[s] = position.x;
+        states[s + 1] = position.y;
+        states[s + 2] = position.z;
+        states[s + 3] = rotation.x;
+        states[s + 4] = rotation.y;
+        states[s + 5] = rotation.z;
+        states[s + 6] = rotation.w;
+        jet.setPhysicsState(states, s);
+
+        for (int n = acknowledged + 1; n <= sequence; n++) {
+            apply(n % capacity, netForce);
+        }
+
+        jet.addPredictedStatePoint(currentTime);
+        nOfCorrections++;
+        return true;
+    }
+
+    /** applies the controls of the given slot to the jet, and stores the resulting state in the slot */
+    private void apply(int slot, DirVector netForce) {
+        int c = slot * CONTROLS_SIZE;
+        replay.set(controls[c], controls[c + 1], controls[c + 2], controls[c + 3]);
+
+        jet.predict(replay, netForce, deltaTimes[slot]);
+        jet.getPhysicsState(states, slot * PHYSICS_STATE_SIZE);
+    }
+
+    /**
+     * forgets all predictions, for when the jet is moved by other means than its controls. Acknowledgements of
+     * earlier controls are ignored, and the jet is rendered with the render delay until the next prediction.
+     */
+    public synchronized void reset() {
+        first = sequence + 1;
+        jet.setPredicted(false);
+    }
+
+    /** @return whether there are predictions that the server has not yet corrected or confirmed */
+    public synchronized boolean isPredicting() {
+        return first <= sequence;
+    }
+
+    /** @return the number of times a snapshot differed from the prediction */
+    public synchronized int nOfCorrections() {
+        return nOfCorrections;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Prediction #" + sequence + " (" + nOfCorrections + " corrections)";
+    }
+
+    /** controls with fixed values, to apply remembered controls again */
+    private static class RecordedControls implements Controller {
+        private float throttle, pitch, yaw, roll;
+
+        void set(float throttle, float pitch, float yaw, float roll) {
+            this.throttle = throttle;
+            this.pitch = pitch;
+            this.yaw = yaw;
+            this.roll = roll;
+        }
+
+        @Override
+        public void update() {
+        }
+
+        @Override
+        public float throttle() {
+            return throttle;
+        }
+
+        @Override
+        public float pitch() {
+            return pitch;
+        }
+
+        @Override
+        public float yaw() {
+            return yaw;
+        }
+
+        @Override
+        public float roll() {
+            return roll;
+        }
+
+        @Override
+        public boolean primaryFire() {
+            return false;
+        }
+
+        @Override
+        public boolean secondaryFire() {
+            return false;
+        }
+
+        @Override
+        public boolean isActiveController() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import java.util.Arrays;
+
+/**
+ * estimates the clock of the server from round trips of regular messages, in the way NTP does. Every numbered control
+ * message is a request, and the snapshot that acknowledges it is the reply, together with the time the server held the
+ * controls before sending the snapshot. Each round trip gives a sample of the offset between the local clock and the
+ * server clock, which is accurate up to half the round trip time. Of every window of samples, only the one with the
+ * shortest round trip is kept, such that delayed messages have no effect. A line through the kept samples gives both
+ * the offset and the drift of the server clock.
+ * <p>
+ * All times of the local clock are given by the caller, which makes the estimator independent of the actual clock.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class ClockEstimator {
+    /** drift beyond this rate is considered a measurement error, as no clock is that bad */
+    private static final double MAX_DRIFT = 1E-3;
+
+    private final int windowSize;
+    /** the local time each sequence number was sent, by sequence number modulo its length */
+    private final double[] sendTimes;
+    private final int[] sendSequences;
+
+    /** the sample with the shortest round trip of the current window */
+    private int windowCount = 0;
+    private double bestRoundTrip;
+    private double bestTime;
+    private double bestOffset;
+
+    /** the kept samples, of which the oldest is replaced by the next */
+    private final double[] pointTimes;
+    private final double[] pointOffsets;
+    private int nOfPoints = 0;
+    private int nextPoint = 0;
+
+    /** the estimate: at local time {@code reference}, the server clock is ahead by {@code offset} */
+    private boolean hasEstimate = false;
+    private double reference;
+    private double offset;
+    private double drift;
+    private double roundTrip;
+
+    /**
+     * @param capacity   the number of sent messages remembered. Replies to older messages are ignored
+     * @param windowSize the number of samples of which only the one with the shortest round trip is used
+     * @param nOfPoints  the number of kept samples the drift is estimated from
+     */
+    public ClockEstimator(int capacity, int windowSize, int nOfPoints) {
+        if (windowSize < 1 || nOfPoints < 1) {
+            throw new IllegalArgumentException("window size and number of points must be positive");
+        }
+
+        this.windowSize = windowSize;
+        this.sendTimes = new double[capacity];
+        this.sendSequences = new int[capacity];
+        this.pointTimes = new double[nOfPoints];
+        this.pointOffsets = new double[nOfPoints];
+    }
+
+    /**
+     * remembers when a numbered message was sent
+     * @param sequence  the sequence number of the message, which is not 0
+     * @param localTime the local time of sending
+     */
+    public synchronized void sent(int sequence, double localTime) {
+        int slot = Math.floorMod(sequence, sendTimes.length);
+        sendTimes[slot] = localTime;
+        sendSequences[slot] = sequence;
+    }
+
+    /**
+     * processes a reply of the server.
+     * @param sequence   the sequence number of the message the server replied to
+     * @param localTime  the local time the reply arrived
+     * @param serverTime the server time the reply was sent
+     * @param holdTime   the time between the server receiving the message and sending the reply
+     * @return false iff the message is unknown or too old, in which case the reply is ignored
+     */
+    public synchronized boolean received(int sequence, double localTime, float serverTime, float holdTime) {
+        int slot = Math.floorMod(sequence, sendTimes.length);
+        if (sequence == 0 || sendSequences[slot] != sequence) return false;
+
+        double sample = Math.max(0, (localTime - sendTimes[slot]) - holdTime);
+        // the reply was sent halfway the round trip
+        double sampleOffset = (serverTime + sample / 2) - localTime;
+
+        if (windowCount == 0 || sample < bestRoundTrip) {
+            bestRoundTrip = sample;
+            bestTime = localTime;
+            bestOffset = sampleOffset;
+        }
+        windowCount++;
+
+        if (windowCount >= windowSize) {
+            keep(bestTime, bestOffset);
+            roundTrip = bestRoundTrip;
+            windowCount = 0;
+            fit();
+
+        } else if (nOfPoints == 0 && (!hasEstimate || bestRoundTrip <= roundTrip)) {
+            // until the first window is complete, use the best sample so far
+            reference = bestTime;
+            offset = bestOffset;
+            drift = 0;
+            roundTrip = bestRoundTrip;
+            hasEstimate = true;
+        }
+
+        return true;
+    }
+
+    private void keep(double time, double pointOffset) {
+        pointTimes[nextPoint] = time;
+        pointOffsets[nextPoint] = pointOffset;
+        nextPoint = (nextPoint + 1) % pointTimes.length;
+        if (nOfPoints < pointTimes.length) nOfPoints++;
+    }
+
+    /** fits a line through the kept samples */
+    private void fit() {
+        double meanTime = 0;
+        double meanOffset = 0;
+        for (int i = 0; i < nOfPoints; i++) {
+            meanTime += pointTimes[i];
+            meanOffset += pointOffsets[i];
+        }
+        meanTime /= nOfPoints;
+        meanOffset /= nOfPoints;
+
+        double covariance = 0;
+        double variance = 0;
+        for (int i = 0; i < nOfPoints; i++) {
+            double dt = pointTimes[i] - meanTime;
+            covariance += dt * (pointOffsets[i] - meanOffset);
+            variance += dt * dt;
+        }
+
+        drift = (variance > 0) ? Math.max(-MAX_DRIFT, Math.min(MAX_DRIFT, covariance / variance)) : 0;
+        reference = meanTime;
+        offset = meanOffset;
+        hasEstimate = true;
+    }
+
+    /** @return whether at least one reply has been processed */
+    public synchronized boolean hasEstimate() {
+        return hasEstimate;
+    }
+
+    /**
+     * @param localTime a local time
+     * @return the estimated time of the server at the given local time
+     */
+    public synchronized double serverTime(double localTime) {
+        return localTime + offset + drift * (localTime - reference);
+    }
+
+    /** @return the number of seconds the server clock gains per second of the local clock */
+    public synchronized double drift() {
+        return drift;
+    }
+
+    /** @return the shortest round trip time of the last window */
+    public synchronized double roundTrip() {
+        return roundTrip;
+    }
+
+    /**
+     * forgets all samples, for when the server clock changes by other means than its rate, such as when the server
+     * pauses. Replies to messages sent before are ignored.
+     */
+    public synchronized void reset() {
+        Arrays.fill(sendSequences, 0);
+        windowCount = 0;
+        nOfPoints = 0;
+        nextPoint = 0;
+        hasEstimate = false;
+        drift = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (!hasEstimate) return "Clock estimate: none";
+        return String.format("Clock estimate: %+.2f ms, drift %+.0f ppm, rtt %.2f ms",
+                offset * 1000, drift * 1E6, roundTrip * 1000
+        );
+    }
+}
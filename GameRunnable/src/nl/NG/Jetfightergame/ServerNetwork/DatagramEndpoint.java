@@ -0,0 +1,150 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import nl.NG.Jetfightergame.Settings.ServerSettings;
+import nl.NG.Jetfightergame.Tools.DataStructures.LongIntHashMap;
+import nl.NG.Jetfightergame.Tools.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * an unreliable datagram channel next to the streams of one or more connections, for messages that are superseded by
+ * the next message of the same kind, such as entity states and controls. Every datagram holds the token of the
+ * connection it belongs to, a sequence number and one or more messages. A datagram that arrives after a datagram of the
+ * same connection with a higher sequence number is stale, and dropped.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class DatagramEndpoint implements BlockingListener {
+    /** the token and the sequence number */
+    private static final int HEADER_SIZE = 8;
+
+    private final DatagramChannel channel;
+    private final Receiver receiver;
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(ServerSettings.MAX_DATAGRAM_SIZE);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(ServerSettings.MAX_DATAGRAM_SIZE);
+    /** the highest sequence number received, by token */
+    private final LongIntHashMap lastSequence = new LongIntHashMap();
+    private volatile int nOfStale = 0;
+
+    /**
+     * opens a datagram channel on the given port
+     * @param port     the port to listen to, or 0 for any free port
+     * @param receiver handles all datagrams that are not stale
+     * @throws IOException if the port could not be opened
+     */
+    public DatagramEndpoint(int port, Receiver receiver) throws IOException {
+        this.receiver = receiver;
+        this.channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(port));
+    }
+
+    /** @return the port this endpoint listens to */
+    public int getPort() {
+        return channel.socket().getLocalPort();
+    }
+
+    /**
+     * sends the given messages as one datagram, if it fits.
+     * @param target   the address of the receiver
+     * @param token    the token of the connection
+     * @param sequence a number higher than that of the previous datagram sent on this connection
+     * @param messages one or more complete messages, including their message type
+     * @param length   the number of bytes of messages
+     * @return false iff the messages are too large for one datagram, in which case nothing is sent
+     * @throws IOException if the datagram could not be sent
+     */
+    public synchronized boolean send(SocketAddress target, int token, int sequence, byte[] messages, int length)
+            throws IOException {
+        if (HEADER_SIZE + length > sendBuffer.capacity()) return false;
+
+        sendBuffer.clear();
+        sendBuffer.putInt(token).putInt(sequence).put(messages, 0, length);
+        sendBuffer.flip();
+        channel.send(sendBuffer, target);
+        return true;
+    }
+
+    /**
+     * receives one datagram and hands it to the receiver, unless it is stale. Blocks until a datagram arrives.
+     * @return false iff this endpoint has been closed
+     */
+    @Override
+    public boolean handleMessage() throws IOException {
+        receiveBuffer.clear();
+        SocketAddress source;
+        try {
+            source = channel.receive(receiveBuffer);
+
+        } catch (ClosedChannelException ex) {
+            return false; // when the endpoint closes, do not report this
+        }
+
+        receiveBuffer.flip();
+        // not a datagram of this game
+        if (receiveBuffer.remaining() <= HEADER_SIZE) return true;
+
+        int token = receiveBuffer.getInt();
+        int sequence = receiveBuffer.getInt();
+        synchronized (lastSequence) {
+            int last = lastSequence.get(token);
+            if (last != 0 && sequence <= last) {
+                nOfStale++;
+                return true;
+            }
+            lastSequence.put(token, sequence);
+        }
+
+        byte[] array = receiveBuffer.array();
+        DataInputStream messages = new DataInputStream(
+                new ByteArrayInputStream(array, receiveBuffer.position(), receiveBuffer.remaining())
+        );
+        try {
+            receiver.receive(token, source, messages);
+
+        } catch (IOException ex) {
+            // an invalid datagram does not affect the others
+            Logger.WARN.print("Invalid datagram from " + source + ": " + ex);
+        }
+        return true;
+    }
+
+    /**
+     * forgets the sequence numbers of the given connection, such that a new connection may use this token
+     * @param token the token of a connection
+     */
+    public void forget(int token) {
+        synchronized (lastSequence) {
+            lastSequence.remove(token);
+        }
+    }
+
+    /** @return the number of datagrams dropped because they arrived after a newer datagram */
+    public int nOfStale() {
+        return nOfStale;
+    }
+
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            Logger.ERROR.print(ex);
+        }
+    }
+
+    /** handles the messages of a datagram */
+    public interface Receiver {
+        /**
+         * @param token    the token of the connection that sent the datagram
+         * @param source   the address of the sender
+         * @param messages the messages of the datagram
+         * @throws IOException if the messages are invalid
+         */
+        void receive(int token, SocketAddress source, DataInputStream messages) throws IOException;
+    }
+}
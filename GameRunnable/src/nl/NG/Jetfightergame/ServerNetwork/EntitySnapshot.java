@@ -0,0 +1,468 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import nl.NG.Jetfightergame.EntityGeneral.EntityMapping;
+import nl.NG.Jetfightergame.EntityGeneral.MovingEntity;
+import nl.NG.Jetfightergame.Tools.DataIO;
+import nl.NG.Jetfightergame.Tools.Logger;
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+import org.joml.Quaternionf;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * the position and rotation of a set of entities on one moment in time. Snapshots are numbered, and can be written as
+ * the difference to an earlier snapshot, the baseline, which the receiver must have available. Entities are stored
+ * ordered on id, such that the difference of two snapshots can be determined in one pass.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class EntitySnapshot {
+    /** the snapshot number that indicates the absence of a snapshot */
+    public static final int NONE = -1;
+    /** the position bound that indicates that states are written in full precision */
+    public static final float UNQUANTIZED = 0;
+
+    private static final int STATE_SIZE = 7;
+    private static final byte POSITION_CHANGED = 1;
+    private static final byte ROTATION_CHANGED = 2;
+
+    public final int number;
+    public final float time;
+
+    private int[] ids;
+    /** for each entity, x, y, z of the position, followed by x, y, z, w of the rotation */
+    private float[] states;
+    private int size = 0;
+    private boolean isSorted = true;
+
+    /**
+     * creates an empty snapshot
+     * @param number   the number of this snapshot, larger than the number of any earlier snapshot
+     * @param time     the time of when the entities are on the given state
+     * @param capacity the expected number of entities
+     */
+    public EntitySnapshot(int number, float time, int capacity) {
+        this.number = number;
+        this.time = time;
+        this.ids = new int[Math.max(capacity, 1)];
+        this.states = new float[ids.length * STATE_SIZE];
+    }
+
+    /** adds the state of the given entity to this snapshot */
+    public void add(MovingEntity entity) {
+        add(entity.idNumber(), entity.getPosition(), entity.getRotation());
+    }
+
+    /** adds the given state to this snapshot. Every id may only be added once */
+    public void add(int id, PosVector position, Quaternionf rotation) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            states = Arrays.copyOf(states, size * 2 * STATE_SIZE);
+        }
+        if (size > 0 && ids[size - 1] > id) isSorted = false;
+
+        ids[size] = id;
+        int s = size * STATE_SIZE;
+        states[s] = position.x;
+        states[s + 1] = position.y;
+        states[s + 2] = position.z;
+        states[s + 3] = rotation.x;
+        states[s + 4] = rotation.y;
+        states[s + 5] = rotation.z;
+        states[s + 6] = rotation.w;
+        size++;
+    }
+
+    /** @return the number of entities in this snapshot */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i an index in this snapshot. Entities are indexed in order of id
+     * @return the id of entity i
+     */
+    public int id(int i) {
+        sortById();
+        return ids[i];
+    }
+
+    /**
+     * @param i    an index in this snapshot. Entities are indexed in order of id
+     * @param dest the vector to store the result in
+     * @return dest, set to the position of entity i
+     */
+    public PosVector position(int i, PosVector dest) {
+        sortById();
+        int s = i * STATE_SIZE;
+        dest.set(states[s], states[s + 1], states[s + 2]);
+        return dest;
+    }
+
+    /**
+     * @param i    an index in this snapshot. Entities are indexed in order of id
+     * @param dest the quaternion to store the result in
+     * @return dest, set to the rotation of entity i
+     */
+    public Quaternionf rotation(int i, Quaternionf dest) {
+        sortById();
+        int s = i * STATE_SIZE;
+        dest.set(states[s + 3], states[s + 4], states[s + 5], states[s + 6]);
+        return dest;
+    }
+
+    /**
+     * @param id the id of an entity
+     * @return the index of the entity with the given id, or -1 if this snapshot does not have it
+     */
+    public int indexOf(int id) {
+        sortById();
+        int i = Arrays.binarySearch(ids, 0, size, id);
+        return (i < 0) ? -1 : i;
+    }
+
+    /**
+     * @param i        an index in this snapshot. Entities are indexed in order of id
+     * @param baseline another snapshot, or null
+     * @return true iff the baseline has entity i with exactly the same state
+     */
+    public boolean isUnchanged(int i, EntitySnapshot baseline) {
+        if (baseline == null) return false;
+        sortById();
+        baseline.sortById();
+
+        int j = Arrays.binarySearch(baseline.ids, 0, baseline.size, ids[i]);
+        return (j >= 0) && (changeMask(i, baseline, j) == 0);
+    }
+
+    /**
+     * creates the snapshot of a receiver that only receives the state of some entities of this snapshot. Entities that
+     * are not selected keep the state they have in the baseline, or are left out if the baseline does not have them.
+     * @param baseline   the snapshot the receiver has, or null if it has none
+     * @param isSelected for each index of this snapshot, whether the state of that entity is sent
+     * @return a snapshot with the same number and time as this snapshot
+     */
+    public EntitySnapshot select(EntitySnapshot baseline, boolean[] isSelected) {
+        sortById();
+        if (baseline == null) baseline = new EntitySnapshot(NONE, 0, 1);
+        else baseline.sortById();
+
+        EntitySnapshot result = new EntitySnapshot(number, time, size);
+        for (int i = 0, j = 0; i < size; i++) {
+            if (isSelected[i]) {
+                result.copyFrom(this, i);
+
+            } else {
+                j = baseline.skipTo(ids[i], j);
+                if (j < baseline.size && baseline.ids[j] == ids[i]) result.copyFrom(baseline, j);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param positionBound the position bound used for writing
+     * @return the number of bytes written for one entity of which both position and rotation have changed
+     */
+    public static int entryBytes(float positionBound) {
+        // id, mask, position, rotation
+        return (positionBound == UNQUANTIZED) ? (4 + 1 + 12 + 16) : (4 + 1 + 8 + 6);
+    }
+
+    /**
+     * adds a state point of every entity in this snapshot to the entity with the same id
+     * @param entities the entities to update
+     * @return the number of entities in this snapshot that were not found
+     * @see #apply(EntityMapping, int)
+     */
+    public int apply(EntityMapping entities) {
+        return apply(entities, -1);
+    }
+
+    /**
+     * adds a state point of every entity in this snapshot to the entity with the same id, except for one entity.
+     * Entities that are not found are skipped, as a snapshot may arrive before the spawn of an entity of the same tick.
+     * @param entities   the entities to update
+     * @param excludedId the id of the entity that is not updated
+     * @return the number of entities in this snapshot that were not found
+     */
+    public int apply(EntityMapping entities, int excludedId) {
+        int nOfUnknown = 0;
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == excludedId) continue;
+
+            MovingEntity target = entities.getEntity(ids[i]);
+            if (target == null) {
+                nOfUnknown++;
+                continue;
+            }
+
+            int s = i * STATE_SIZE;
+            PosVector pos = new PosVector(states[s], states[s + 1], states[s + 2]);
+            Quaternionf rot = new Quaternionf(states[s + 3], states[s + 4], states[s + 5], states[s + 6]);
+            target.addStatePoint(time, pos, rot);
+        }
+        return nOfUnknown;
+    }
+
+    /**
+     * writes this snapshot as the difference to the given baseline. Only the fields that changed with respect to the
+     * baseline are written, together with the ids of the entities that are no longer present.
+     * @param out           the stream to write to
+     * @param baseline      a snapshot the receiver has, or null to write this snapshot in full
+     * @param positionBound the bounds of the quantized positions, or {@link #UNQUANTIZED} to write positions and
+     *                      rotations in full precision
+     * @see #readDelta(DataInput, SnapshotHistory, float)
+     * @see DataIO#writeQuantizedPosition(DataOutput, float, float, float, float)
+     */
+    public void writeDelta(DataOutput out, EntitySnapshot baseline, float positionBound) throws IOException {
+        sortById();
+        if (baseline == null) baseline = new EntitySnapshot(NONE, 0, 1);
+        else baseline.sortById();
+
+        out.writeInt(number);
+        out.writeInt(baseline.number);
+        out.writeFloat(time);
+
+        // changed and new entities
+        int nOfChanged = 0;
+        for (int i = 0, j = 0; i < size; i++) {
+            j = baseline.skipTo(ids[i], j);
+            if (changeMask(i, baseline, j) != 0) nOfChanged++;
+        }
+        out.writeInt(nOfChanged);
+
+        for (int i = 0, j = 0; i < size; i++) {
+            j = baseline.skipTo(ids[i], j);
+            byte mask = changeMask(i, baseline, j);
+            if (mask == 0) continue;
+
+            out.writeInt(ids[i]);
+            out.writeByte(mask);
+            int s = i * STATE_SIZE;
+            if ((mask & POSITION_CHANGED) != 0) {
+                if (positionBound == UNQUANTIZED) {
+                    for (int k = 0; k < 3; k++) out.writeFloat(states[s + k]);
+                } else {
+                    DataIO.writeQuantizedPosition(out, states[s], states[s + 1], states[s + 2], positionBound);
+                }
+            }
+            if ((mask & ROTATION_CHANGED) != 0) {
+                if (positionBound == UNQUANTIZED) {
+                    for (int k = 3; k < STATE_SIZE; k++) out.writeFloat(states[s + k]);
+                } else {
+                    DataIO.writeQuantizedQuaternion(out, states[s + 3], states[s + 4], states[s + 5], states[s + 6]);
+                }
+            }
+        }
+
+        // removed entities
+        int nOfRemoved = 0;
+        for (int j = 0, i = 0; j < baseline.size; j++) {
+            i = skipTo(baseline.ids[j], i);
+            if (i == size || ids[i] != baseline.ids[j]) nOfRemoved++;
+        }
+        out.writeInt(nOfRemoved);
+
+        for (int j = 0, i = 0; j < baseline.size; j++) {
+            i = skipTo(baseline.ids[j], i);
+            if (i == size || ids[i] != baseline.ids[j]) out.writeInt(baseline.ids[j]);
+        }
+    }
+
+    /**
+     * reads a snapshot written by {@link #writeDelta(DataOutput, EntitySnapshot, float)}. The message is read entirely,
+     * even if its baseline is not available.
+     * @param in            the stream to read from
+     * @param baselines     the snapshots received earlier
+     * @param positionBound the position bound used when writing
+     * @return the complete snapshot, or null if the baseline of the message is not in the given history
+     */
+    public static EntitySnapshot readDelta(DataInput in, SnapshotHistory baselines, float positionBound)
+            throws IOException {
+        int number = in.readInt();
+        int baselineNumber = in.readInt();
+        float time = in.readFloat();
+
+        EntitySnapshot baseline = (baselineNumber == NONE) ? null : baselines.get(baselineNumber);
+        boolean isMissing = (baselineNumber != NONE) && (baseline == null);
+        // a missing baseline is decoded as empty, only to read the message off the stream
+        if (baseline == null) baseline = new EntitySnapshot(NONE, 0, 1);
+
+        EntitySnapshot result = new EntitySnapshot(number, time, baseline.size);
+        PosVector position = new PosVector();
+        Quaternionf rotation = new Quaternionf();
+        int nOfChanged = in.readInt();
+        int j = 0;
+        for (int c = 0; c < nOfChanged; c++) {
+            int id = in.readInt();
+            byte mask = in.readByte();
+
+            // unchanged entities before this one
+            while (j < baseline.size && baseline.ids[j] < id) {
+                result.copyFrom(baseline, j++);
+            }
+
+            int i = result.size;
+            if (j < baseline.size && baseline.ids[j] == id) {
+                result.copyFrom(baseline, j++);
+            } else {
+                result.copyFrom(null, id);
+            }
+
+            int s = i * STATE_SIZE;
+            if ((mask & POSITION_CHANGED) != 0) {
+                if (positionBound == UNQUANTIZED) {
+                    for (int k = 0; k < 3; k++) result.states[s + k] = in.readFloat();
+                } else {
+                    DataIO.readQuantizedPosition(in, positionBound, position);
+                    result.states[s] = position.x;
+                    result.states[s + 1] = position.y;
+                    result.states[s + 2] = position.z;
+                }
+            }
+            if ((mask & ROTATION_CHANGED) != 0) {
+                if (positionBound == UNQUANTIZED) {
+                    for (int k = 3; k < STATE_SIZE; k++) result.states[s + k] = in.readFloat();
+                } else {
+                    DataIO.readQuantizedQuaternion(in, rotation);
+                    result.states[s + 3] = rotation.x;
+                    result.states[s + 4] = rotation.y;
+                    result.states[s + 5] = rotation.z;
+                    result.states[s + 6] = rotation.w;
+                }
+            }
+        }
+
+        while (j < baseline.size) {
+            result.copyFrom(baseline, j++);
+        }
+
+        int nOfRemoved = in.readInt();
+        int[] removed = new int[nOfRemoved];
+        for (int r = 0; r < nOfRemoved; r++) {
+            removed[r] = in.readInt();
+        }
+
+        if (isMissing) {
+            Logger.WARN.print("Received snapshot " + number + " relative to unknown snapshot " + baselineNumber);
+            return null;
+        }
+
+        result.removeAll(removed);
+        return result;
+    }
+
+    /**
+     * @param i        an index in this snapshot
+     * @param baseline another snapshot
+     * @param j        the index in baseline from where the id of i may be found
+     * @return the fields of entity i that differ from the same entity in the baseline
+     */
+    private byte changeMask(int i, EntitySnapshot baseline, int j) {
+        if (j == baseline.size || baseline.ids[j] != ids[i]) {
+            return POSITION_CHANGED | ROTATION_CHANGED;
+        }
+
+        int s = i * STATE_SIZE;
+        int t = j * STATE_SIZE;
+        byte mask = 0;
+        for (int k = 0; k < 3; k++) {
+            if (states[s + k] != baseline.states[t + k]) mask |= POSITION_CHANGED;
+        }
+        for (int k = 3; k < STATE_SIZE; k++) {
+            if (states[s + k] != baseline.states[t + k]) mask |= ROTATION_CHANGED;
+        }
+        return mask;
+    }
+
+    /** @return the first index from start on of which the id is at least the given id, or size if there is none */
+    private int skipTo(int id, int start) {
+        while (start < size && ids[start] < id) start++;
+        return start;
+    }
+
+    /**
+     * appends entity j of source to this snapshot.
+     * @param source the snapshot to copy from, or null to append an entity with id j and an unset state
+     */
+    private void copyFrom(EntitySnapshot source, int j) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            states = Arrays.copyOf(states, size * 2 * STATE_SIZE);
+        }
+
+        if (source == null) {
+            ids[size] = j;
+        } else {
+            ids[size] = source.ids[j];
+            System.arraycopy(source.states, j * STATE_SIZE, states, size * STATE_SIZE, STATE_SIZE);
+        }
+        size++;
+    }
+
+    /** removes the entities with the given ids, which must be sorted */
+    private void removeAll(int[] removedIds) {
+        int newSize = 0;
+        int r = 0;
+        for (int i = 0; i < size; i++) {
+            while (r < removedIds.length && removedIds[r] < ids[i]) r++;
+            if (r < removedIds.length && removedIds[r] == ids[i]) continue;
+
+            ids[newSize] = ids[i];
+            System.arraycopy(states, i * STATE_SIZE, states, newSize * STATE_SIZE, STATE_SIZE);
+            newSize++;
+        }
+        size = newSize;
+    }
+
+    /**
+     * orders the entities on id. As all methods that read entities do this first, a snapshot that is read by more than
+     * one thread must be sorted before it is shared.
+     */
+    void sortById() {
+        if (isSorted) return;
+
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = ((long) ids[i] << 32) | i;
+        }
+        Arrays.sort(order);
+
+        int[] newIds = new int[ids.length];
+        float[] newStates = new float[states.length];
+        for (int i = 0; i < size; i++) {
+            int source = (int) order[i];
+            newIds[i] = ids[source];
+            System.arraycopy(states, source * STATE_SIZE, newStates, i * STATE_SIZE, STATE_SIZE);
+        }
+
+        ids = newIds;
+        states = newStates;
+        isSorted = true;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof EntitySnapshot)) return false;
+        EntitySnapshot other = (EntitySnapshot) obj;
+        sortById();
+        other.sortById();
+
+        return number == other.number && time == other.time && size == other.size &&
+                Arrays.equals(Arrays.copyOf(ids, size), Arrays.copyOf(other.ids, other.size)) &&
+                Arrays.equals(Arrays.copyOf(states, size * STATE_SIZE), Arrays.copyOf(other.states, other.size * STATE_SIZE));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * number + size;
+    }
+
+    @Override
+    public String toString() {
+        return "EntitySnapshot{" + number + " @ " + time + ", " + size + " entities}";
+    }
+}
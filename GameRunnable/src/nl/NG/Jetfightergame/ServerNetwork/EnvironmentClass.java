@@ -29,6 +29,22 @@ public enum EnvironmentClass {
         }
     }
 
+    /**
+     * @return the largest absolute value of the coordinates of the positions in this world that are sent quantized.
+     * Entities outside these bounds are sent in full precision.
+     */
+    public float worldBound() {
+        switch (this) {
+            case LOBBY:
+                return 512;
+            case CUBE_MAP:
+            case ISLAND_MAP:
+                return 4096;
+            default:
+                return 1024;
+        }
+    }
+
     public static EnvironmentClass get(int id) {
         if (id >= VALUES.length) throw new IllegalArgumentException("Invalid worldclass identifier " + id);
         else return VALUES[id];
@@ -0,0 +1,142 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import nl.NG.Jetfightergame.Settings.ServerSettings;
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * decides for one client which entity states are sent in a tick. Every entity accumulates a priority each tick it is
+ * not sent, based on its distance to the player's jet and whether it targets that jet. Each tick, the entities with
+ * the highest priority are sent until the byte budget is used up. The jet of the player itself is always sent. As the
+ * relevance falls off with the square of the distance, nearby entities are sent every tick, while far entities are
+ * sent once their priority has accumulated.
+ * <p>
+ * As every client receives a different selection, the snapshots this client has received are kept here.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class InterestManager {
+    /** relevance added per tick for entities that target the player */
+    private static final float THREAT_RELEVANCE = 100f;
+    /** relevance of the closest entities */
+    private static final float MAX_RELEVANCE = 100f;
+    /** relevance added per tick to every entity, such that every entity is sent eventually */
+    private static final float MIN_RELEVANCE = 0.01f;
+
+    private final SnapshotHistory sentSnapshots = new SnapshotHistory(ServerSettings.SNAPSHOT_HISTORY_SIZE);
+    private final int byteBudget;
+    private final float interestDistance;
+
+    /** the accumulated priority of the entities not sent, sorted on id */
+    private int[] ids = new int[0];
+    private float[] priorities = new float[0];
+    private int size = 0;
+
+    private int[] newIds = new int[0];
+    private float[] newPriorities = new float[0];
+    private long[] order = new long[0];
+    private boolean[] isSelected = new boolean[0];
+    private final PosVector position = new PosVector();
+
+    /**
+     * @param byteBudget       the number of bytes of entity updates that may be sent each tick. The jet of the player
+     *                         is sent regardless of the budget
+     * @param interestDistance the distance at which an entity gains a priority of 1 per tick
+     */
+    public InterestManager(int byteBudget, float interestDistance) {
+        this.byteBudget = byteBudget;
+        this.interestDistance = interestDistance;
+    }
+
+    /**
+     * @param acknowledged the number of the last snapshot the client acknowledged
+     * @return the snapshot the client acknowledged, or null if it is not available
+     */
+    public EntitySnapshot baseline(int acknowledged) {
+        return sentSnapshots.get(acknowledged);
+    }
+
+    /**
+     * selects the entities of the given snapshot that are sent to this client.
+     * @param snapshot      the states of all entities of this tick
+     * @param baseline      the result of {@link #baseline(int)}
+     * @param focus         the position of the jet of the player
+     * @param focusId       the id of the jet of the player
+     * @param isThreat      for an entity id, whether that entity targets the jet of the player
+     * @param positionBound the position bound used for writing the snapshot
+     * @return the snapshot as the client should have it after receiving this tick
+     */
+    public EntitySnapshot select(
+            EntitySnapshot snapshot, EntitySnapshot baseline, PosVector focus, int focusId, IntPredicate isThreat,
+            float positionBound
+    ) {
+        int n = snapshot.size();
+        if (newIds.length < n) {
+            newIds = new int[n];
+            newPriorities = new float[n];
+            order = new long[n];
+            isSelected = new boolean[n];
+        }
+
+        // accumulate priorities
+        int nOfCandidates = 0;
+        for (int i = 0, j = 0; i < n; i++) {
+            int id = snapshot.id(i);
+            while (j < size && ids[j] < id) j++;
+            float previous = (j < size && ids[j] == id) ? priorities[j] : 0;
+
+            newIds[i] = id;
+            newPriorities[i] = previous + relevance(snapshot, i, focus, focusId, isThreat);
+
+            // an unchanged entity costs nothing to send
+            isSelected[i] = snapshot.isUnchanged(i, baseline);
+            if (!isSelected[i]) {
+                // positive floats have the same ordering as their bits
+                order[nOfCandidates++] = ((long) Float.floatToIntBits(newPriorities[i]) << 32) | i;
+            }
+        }
+
+        // fill the budget in order of priority
+        Arrays.sort(order, 0, nOfCandidates);
+        int budget = byteBudget;
+        int entryBytes = EntitySnapshot.entryBytes(positionBound);
+        for (int k = nOfCandidates - 1; k >= 0; k--) {
+            int i = (int) order[k];
+            boolean isRequired = newPriorities[i] == Float.POSITIVE_INFINITY;
+            if (budget < entryBytes && !isRequired) break;
+
+            budget -= entryBytes;
+            isSelected[i] = true;
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (isSelected[i]) newPriorities[i] = 0;
+        }
+
+        // swap buffers
+        int[] tempIds = ids;
+        ids = newIds;
+        newIds = tempIds;
+        float[] tempPriorities = priorities;
+        priorities = newPriorities;
+        newPriorities = tempPriorities;
+        size = n;
+
+        EntitySnapshot result = snapshot.select(baseline, isSelected);
+        sentSnapshots.add(result);
+        return result;
+    }
+
+    /** @return the priority that entity i of the snapshot gains in one tick */
+    private float relevance(EntitySnapshot snapshot, int i, PosVector focus, int focusId, IntPredicate isThreat) {
+        int id = snapshot.id(i);
+        if (id == focusId) return Float.POSITIVE_INFINITY;
+
+        float scaled = snapshot.position(i, position).distance(focus) / interestDistance;
+        float relevance = Math.min(1 / (scaled * scaled), MAX_RELEVANCE);
+        if (isThreat.test(id)) relevance += THREAT_RELEVANCE;
+
+        return relevance + MIN_RELEVANCE;
+    }
+}
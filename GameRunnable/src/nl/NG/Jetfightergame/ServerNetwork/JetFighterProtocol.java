@@ -14,6 +14,7 @@ import nl.NG.Jetfightergame.GameState.*;
 import nl.NG.Jetfightergame.Rendering.Particles.ParticleCloud;
 import nl.NG.Jetfightergame.Rendering.Particles.Particles;
 import nl.NG.Jetfightergame.ScreenOverlay.HUD.CountDownTimer;
+import nl.NG.Jetfightergame.Settings.ServerSettings;
 import nl.NG.Jetfightergame.Tools.DataIO;
 import nl.NG.Jetfightergame.Tools.DataStructures.Pair;
 import nl.NG.Jetfightergame.Tools.Logger;
@@ -23,6 +24,13 @@ import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
 import org.joml.Quaternionf;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import static nl.NG.Jetfightergame.Settings.ClientSettings.PARTICLE_MODIFIER;
 
@@ -31,11 +39,16 @@ import static nl.NG.Jetfightergame.Settings.ClientSettings.PARTICLE_MODIFIER;
  * @author Geert van Ieperen created on 9-5-2018.
  */
 public class JetFighterProtocol {
-    public static final int versionNumber = 8;
-    private static final byte TIMER_SYNC_PINGS = 10;
+    public static final int versionNumber = 18;
+    /** the game of a server that hosts one game, which is also the first game of a server that hosts several */
+    public static final int DEFAULT_ROOM = 0;
+    /** number of round trips of which the average is used to synchronize the timers */
+    static final byte TIMER_SYNC_PINGS = 10;
 
     private final DataInputStream input;
     private final DataOutputStream output;
+    /** whether entity states are sent quantized, as agreed upon by both sides */
+    private final boolean quantizeStates;
 
     /**
      * creates and connects to the other side. Blocks until the protocol on the other side has also been initialized.
@@ -47,6 +60,7 @@ public class JetFighterProtocol {
         this.output = new DataOutputStream(out);
         output.writeInt(versionNumber);
         StatusCode.OK.write(output);
+        output.writeBoolean(ServerSettings.QUANTIZE_ENTITY_STATES);
         output.flush();
 
         this.input = new DataInputStream(in);
@@ -56,6 +70,8 @@ public class JetFighterProtocol {
             throw new IOException("connected client has version " + reply + " and we have " + versionNumber);
 
         StatusCode.check(input);
+        boolean otherQuantizes = input.readBoolean();
+        quantizeStates = ServerSettings.QUANTIZE_ENTITY_STATES && otherQuantizes;
     }
 
     /**
@@ -69,6 +85,8 @@ public class JetFighterProtocol {
             output = new DataOutputStream(new FileOutputStream(file));
             input = new DataInputStream(System.in);
             output.writeInt(versionNumber);
+            quantizeStates = ServerSettings.QUANTIZE_ENTITY_STATES;
+            output.writeBoolean(quantizeStates);
 
         } else {
             output = new DataOutputStream(System.out);
@@ -76,9 +94,15 @@ public class JetFighterProtocol {
             int fileVersion = input.readInt();
             if (fileVersion != versionNumber)
                 throw new IOException("File has version " + fileVersion + " and we have " + versionNumber);
+            quantizeStates = input.readBoolean();
         }
     }
 
+    /** @return true iff entity states are sent with quantized positions and rotations */
+    public boolean isQuantized() {
+        return quantizeStates;
+    }
+
     /**
      * alternative to creating a new protocol instance. Replies with a denied connection
      * @param out
@@ -89,6 +113,27 @@ public class JetFighterProtocol {
         out.flush();
     }
 
+    /**
+     * sent by a client on a socket before the protocol is created, to choose one of the games of the server
+     * @param out  the output of the connection
+     * @param room the number of the game to join
+     * @see #roomRequestRead(InputStream)
+     */
+    public static void roomRequestSend(OutputStream out, int room) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(room);
+        data.flush();
+    }
+
+    /**
+     * @param in the input of a new connection
+     * @return the number of the game the client wants to join
+     * @see #roomRequestSend(OutputStream, int)
+     */
+    public static int roomRequestRead(InputStream in) throws IOException {
+        return new DataInputStream(in).readInt();
+    }
+
     /**
      * writes the given entity to the DataOutputStream.
      * @see #entityUpdateRead(Environment)
@@ -126,6 +171,112 @@ public class JetFighterProtocol {
         return time;
     }
 
+    /**
+     * writes the given snapshot as a single message to the given stream, including the message type. As this only
+     * depends on the baseline and the encoding, the result can be written to every client that acknowledged the same
+     * baseline and uses the same encoding. The position bound is part of the message, as a snapshot may arrive after
+     * the receiver switched to another world.
+     * @param out      the stream to write the message to
+     * @param snapshot the states of all entities of this tick
+     * @param baseline the last snapshot acknowledged by the receiver, or null if it has none.
+     * @param world    the world of the snapshot if the receiver uses quantized states, or null otherwise
+     * @see #entityBatchRead(DataInput, SnapshotHistory)
+     */
+    public static void entityBatchSend(
+            DataOutputStream out, EntitySnapshot snapshot, EntitySnapshot baseline, EnvironmentClass world
+    ) throws IOException {
+        out.write(MessageType.ENTITY_UPDATE_BATCH.ordinal());
+        float bound = (world == null) ? EntitySnapshot.UNQUANTIZED : world.worldBound();
+        out.writeFloat(bound);
+        snapshot.writeDelta(out, baseline, bound);
+    }
+
+    /**
+     * reads a snapshot off the given input, which is either the stream of this protocol or a datagram. The snapshot is
+     * not applied nor added to the history, as it may be stale.
+     * @param in      the input to read the message from, after the message type
+     * @param history the snapshots received earlier
+     * @return the snapshot that was read, or null if its baseline was not available
+     * @throws IOException if anything goes wrong with the connection
+     * @see #entityBatchSend(DataOutputStream, EntitySnapshot, EntitySnapshot, EnvironmentClass)
+     */
+    public static EntitySnapshot entityBatchRead(DataInput in, SnapshotHistory history) throws IOException {
+        float bound = in.readFloat();
+        return EntitySnapshot.readDelta(in, history, bound);
+    }
+
+    /**
+     * writes the sequence number of the last controls received, which precedes a snapshot such that the client can
+     * compare its prediction with the snapshot, and measure the round trip of its controls
+     * @param out      the stream to write the message to, including its message type
+     * @param sequence the sequence number of the controls, as sent by the client
+     * @param holdTime the seconds between receiving the controls and sending this message
+     * @see #inputAckRead(DataInput)
+     */
+    public static void inputAckSend(DataOutputStream out, int sequence, float holdTime) throws IOException {
+        out.write(MessageType.INPUT_ACK.ordinal());
+        out.writeInt(sequence);
+        out.writeFloat(holdTime);
+    }
+
+    /**
+     * @param in the input to read the message from, after the message type
+     * @return on left the sequence number of the controls, and on right the seconds the server held these
+     * @see #inputAckSend(DataOutputStream, int, float)
+     */
+    public static Pair<Integer, Float> inputAckRead(DataInput in) throws IOException {
+        int sequence = in.readInt();
+        float holdTime = in.readFloat();
+        return new Pair<>(sequence, holdTime);
+    }
+
+    /** client telling the sequence number of the controls it sent */
+    public void inputSequenceSend(int sequence) throws IOException {
+        output.writeInt(sequence);
+    }
+
+    /** @see #inputSequenceSend(int) */
+    public int inputSequenceRead() throws IOException {
+        return input.readInt();
+    }
+
+    /** server offering the client to send entity states and controls as datagrams */
+    public void datagramOfferSend(int token, int port) throws IOException {
+        output.writeInt(token);
+        output.writeInt(port);
+    }
+
+    /**
+     * @return on left the token of the connection, and on right the datagram port of the server, or 0 if the server does
+     * not accept datagrams
+     * @see #datagramOfferSend(int, int)
+     */
+    public Pair<Integer, Integer> datagramOfferRead() throws IOException {
+        int token = input.readInt();
+        int port = input.readInt();
+        return new Pair<>(token, port);
+    }
+
+    /** client acknowledging that the given snapshot has been received */
+    public void snapshotAckSend(int snapshotNumber) throws IOException {
+        output.writeInt(snapshotNumber);
+    }
+
+    /** @see #snapshotAckSend(int) */
+    public int snapshotAckRead() throws IOException {
+        return input.readInt();
+    }
+
+    /** server marking the position in the stream of a snapshot that is passed by a {@link LocalLink} */
+    public void localSnapshotSend(int snapshotNumber) throws IOException {
+        output.writeInt(snapshotNumber);
+    }
+
+    /** @see #localSnapshotSend(int) */
+    public int localSnapshotRead() throws IOException {
+        return input.readInt();
+    }
+
     /** server sending a new entity */
     public void newEntitySend(EntityFactory entity) throws IOException {
         entity.writeFactory(output);
@@ -137,6 +288,60 @@ public class JetFighterProtocol {
         return pre.construct(world, entities);
     }
 
+    /**
+     * server sending many new entities at once, such as all entities of the world to a new player. The entities are
+     * compressed together, as entities of the same class have most of their bytes in common.
+     * @param entities the entities to send, which are constructed in this order
+     * @see #newEntitiesRead(SpawnReceiver, EntityMapping)
+     */
+    public void newEntitiesSend(Collection<EntityFactory> entities) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(ServerSettings.SPAWN_COMPRESSION_LEVEL);
+
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(compressed, deflater))) {
+            for (EntityFactory entity : entities) {
+                entity.writeFactory(out);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        output.writeInt(entities.size());
+        output.writeInt(compressed.size());
+        compressed.writeTo(output);
+    }
+
+    /**
+     * client reading the entities of {@link #newEntitiesSend(Collection)}, and creating instances of these
+     * @return the new entities, in the order they were sent
+     */
+    public List<MovingEntity> newEntitiesRead(SpawnReceiver world, EntityMapping entities) throws IOException {
+        int nOfEntities = input.readInt();
+        int nOfBytes = input.readInt();
+        if (nOfEntities < 0 || nOfBytes < 0) {
+            throw new IOException("Invalid entity batch of " + nOfEntities + " entities in " + nOfBytes + " bytes");
+        }
+
+        // the compressed bytes are read first, as the inflater may read beyond the end of the message
+        byte[] compressed = new byte[nOfBytes];
+        input.readFully(compressed);
+        List<MovingEntity> result = new ArrayList<>(nOfEntities);
+        Inflater inflater = new Inflater();
+
+        try (DataInputStream in = new DataInputStream(
+                new InflaterInputStream(new ByteArrayInputStream(compressed), inflater)
+        )) {
+            for (int i = 0; i < nOfEntities; i++) {
+                EntityFactory factory = EntityFactory.readFactory(in);
+                result.add(factory.construct(world, entities));
+            }
+        } finally {
+            inflater.end();
+        }
+
+        return result;
+    }
+
     /** read a control message off the DataInputStream */
     public void controlRead(RemoteControlReceiver controls, MessageType type) throws IOException {
         int value = input.read();
@@ -234,7 +439,8 @@ public class JetFighterProtocol {
     }
 
     /**
-     * sets up synchronizing time across server-client connection
+     * sets up synchronizing time across server-client connection. This blocks on the round trips, and may thus only be
+     * used while nothing else is sent, such as during the handshake.
      * @param serverTime current time according to the source
      */
     public void syncTimerSource(GameTimer serverTime) throws IOException {
@@ -267,6 +473,23 @@ public class JetFighterProtocol {
         gameTimer.set(serverTime);
     }
 
+    /**
+     * answers a {@link MessageType#SYNC_TIMER} request of the client, which measures the round trip itself
+     * @param serverTime current time according to the server
+     * @see #syncTimerRead()
+     */
+    public void syncTimerSend(GameTimer serverTime) throws IOException {
+        output.writeFloat(serverTime.time());
+    }
+
+    /**
+     * @return the time of the server when it answered the request
+     * @see #syncTimerSend(GameTimer)
+     */
+    public float syncTimerRead() throws IOException {
+        return input.readFloat();
+    }
+
     /** sends an explosion or other effect to the client
      * @see #explosionRead(Environment)  */
     public void explosionSend(PosVector position, DirVector direction, float spread, int density, Color4f color1, Color4f color2, float lingerTime, float particleSize) throws IOException {
@@ -5,22 +5,39 @@ import nl.NG.Jetfightergame.Engine.AbstractGameLoop;
 import nl.NG.Jetfightergame.Settings.ServerSettings;
 import nl.NG.Jetfightergame.Tools.Logger;
 
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketException;
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static nl.NG.Jetfightergame.ServerNetwork.JetFighterProtocol.DEFAULT_ROOM;
 import static nl.NG.Jetfightergame.Settings.ServerSettings.SERVER_PORT;
 
 /**
+ * accepts connections on one port, and hands each to one of its games. The first game runs on a thread of its own, and
+ * the games opened with {@link #openRoom(int, EnvironmentClass, boolean)} share a pool of threads. All games share the
+ * I/O thread of the connections and the datagram channel. A client on a socket chooses its game by sending a room
+ * number before the handshake.
  * @author Geert van Ieperen created on 26-4-2018.
  */
 public class JetFighterServer implements BlockingListener {
-    private ServerSocket socket;
-    private ServerLoop game;
-
+    private final SelectorServer selector;
+    private final ServerLoop game;
+    /** the games of this server by room number, including the first game */
+    private final Map<Integer, Room> rooms = new ConcurrentHashMap<>();
+    /** the datagram channel of all games, or null if all messages are sent on the streams */
+    private final DatagramEndpoint datagrams;
+    /** the connections of all games that may send datagrams, by their token */
+    private final Map<Integer, ServerConnection> datagramConnections = new ConcurrentHashMap<>();
+    /** executes the updates of the games besides the first, or null if no such game has been opened */
+    private ScheduledThreadPoolExecutor tickPool = null;
+
+    /** @return the first game of this server, which must be started by the caller */
     public AbstractGameLoop getRunnable() {
         return game;
     }
@@ -32,8 +49,67 @@ public class JetFighterServer implements BlockingListener {
      * @throws IOException if a serversocket could not be created
      */
     public JetFighterServer(EnvironmentClass world, boolean makeRecording) throws IOException {
-        this.socket = new ServerSocket(SERVER_PORT);
+        this(world, makeRecording, SERVER_PORT);
+    }
+
+    /**
+     * starts a single environment to run exactly once, on the given port
+     * @param world         the world to simulate in.
+     * @param makeRecording if true, the gamestate is written to a file
+     * @param port          the port to listen to, or 0 for any free port
+     * @throws IOException if a serversocket could not be created
+     */
+    public JetFighterServer(EnvironmentClass world, boolean makeRecording, int port) throws IOException {
         this.game = new ServerLoop(EnvironmentClass.LOBBY, world, makeRecording);
+        this.selector = new SelectorServer(port, this::acceptConnection);
+        rooms.put(DEFAULT_ROOM, new Room(game, false));
+
+        if (ServerSettings.USE_DATAGRAMS) {
+            datagrams = new DatagramEndpoint(port, this::receiveDatagram);
+            datagrams.listenInThread(true);
+            game.setDatagramChannel(datagrams, datagramConnections);
+
+        } else {
+            datagrams = null;
+        }
+    }
+
+    /**
+     * opens a new game next to the existing games, of which the first player to join is the host. The game ends like
+     * the first game, after which it is removed and its room number may be used again.
+     * @param room          the number that clients use to join the game
+     * @param world         the world of the race
+     * @param makeRecording if true, the game is written to a file
+     * @return the new game, which is already running
+     * @throws IllegalArgumentException if a game with the given number is still running
+     */
+    public synchronized AbstractGameLoop openRoom(int room, EnvironmentClass world, boolean makeRecording) {
+        Room existing = rooms.get(room);
+        if (existing != null && !existing.game.isStopping()) {
+            throw new IllegalArgumentException("Room " + room + " is already in use");
+        }
+
+        if (tickPool == null) {
+            tickPool = new ScheduledThreadPoolExecutor(ServerSettings.ROOM_TICK_THREADS, action -> {
+                Thread t = new Thread(action, "Room updates");
+                t.setDaemon(true);
+                return t;
+            });
+            // the games end themselves, such that each is cleaned up
+            tickPool.setContinueExistingPeriodicTasksAfterShutdownPolicy(true);
+            tickPool.setRemoveOnCancelPolicy(true);
+        }
+
+        ServerLoop loop = new ServerLoop("Server room " + room, EnvironmentClass.LOBBY, world, makeRecording);
+        if (datagrams != null) loop.setDatagramChannel(datagrams, datagramConnections);
+        Room entry = new Room(loop, true);
+        // a new game may already have taken the number of this game
+        loop.setStopListener(() -> rooms.remove(room, entry));
+        rooms.put(room, entry);
+        loop.startOn(tickPool);
+
+        Logger.INFO.print("Opened room " + room);
+        return loop;
     }
 
     /**
@@ -41,22 +117,42 @@ public class JetFighterServer implements BlockingListener {
      * @param asHost if true, player is considered to host the server
      */
     public void shortConnect(InputStream receive, OutputStream send, boolean asHost) {
+        shortConnect(receive, send, asHost, null);
+    }
+
+    /**
+     * connects a new player in the same process on the given input and output streams
+     * @param asHost if true, player is considered to host the server
+     * @param link   the link on which entity snapshots are passed to the player, or null to send these on the stream
+     */
+    public void shortConnect(InputStream receive, OutputStream send, boolean asHost, LocalLink link) {
         try {
             Logger.DEBUG.print("Creating internal connection" + (asHost ? " with host privileges" : ""));
-            game.connectToPlayer(receive, send, asHost);
+            ServerConnection player = game.connectToPlayer(receive, send, asHost, link);
+            player.listenInThread(true);
 
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * gives the next connection made to the first game of this server host privileges. Does not block, for when another
+     * thread listens to this server.
+     */
+    public void expectHost() {
+        rooms.get(DEFAULT_ROOM).hostPending.set(true);
+    }
+
     /**
      * blocks until one connection is made. The host of this server is set to the next connection.
      */
     public void listenForHost() {
         try {
-            Logger.DEBUG.print("Waiting for host on port " + socket.getLocalPort() + " on address " + socket.getInetAddress());
-            acceptConnection(true);
+            Logger.DEBUG.print("Waiting for host on " + selector.getAddress());
+            expectHost();
+            AtomicBoolean hostPending = rooms.get(DEFAULT_ROOM).hostPending;
+            while (hostPending.get() && selector.handleMessage());
 
         } catch (IOException ex) {
             Logger.ERROR.print(ex);
@@ -64,32 +160,53 @@ public class JetFighterServer implements BlockingListener {
     }
 
     /**
-     * listens to the predefined port, adding all incoming requests to clients. blocks while listening.
+     * accepts, reads and writes all connections that are ready. Blocks until any connection is ready.
      */
     public boolean handleMessage() throws IOException {
-        try {
-            acceptConnection(false);
-        } catch (SocketException sex) {
-            return false; // when the socket closes, do not report this
+        return selector.handleMessage();
+    }
+
+    /** handshake of a new connection, executed in a separate thread */
+    private BlockingListener acceptConnection(InputStream in, OutputStream out) throws IOException {
+        int number = JetFighterProtocol.roomRequestRead(in);
+        Room room = rooms.get(number);
+        if (room == null || room.game.isStopping()) {
+            JetFighterProtocol.denyConnect(out);
+            throw new IOException("Room " + number + " is not open");
         }
-        return true;
+
+        boolean asAdmin = room.hostPending.getAndSet(false);
+        Logger.DEBUG.print("Connection made to room " + number + (asAdmin ? " with host privileges" : ""));
+        return room.game.connectToPlayer(in, out, asAdmin);
     }
 
-    public void acceptConnection(boolean asAdmin) throws IOException {
-        Socket client = socket.accept();
+    private void receiveDatagram(int token, SocketAddress source, DataInputStream messages) throws IOException {
+        ServerConnection conn = datagramConnections.get(token);
+        if (conn != null) conn.receiveDatagram(source, messages);
+    }
 
-        Logger.DEBUG.print("Connection made with " + client + (asAdmin ? " with host privileges" : ""));
-        InputStream in = client.getInputStream();
-        OutputStream out = client.getOutputStream();
-        game.connectToPlayer(in, out, asAdmin);
+    /** @return whether a game with the given number exists, including a game that is still ending */
+    boolean hasRoom(int room) {
+        return rooms.containsKey(room);
     }
 
+    /** @return the address this server listens to */
+    public SocketAddress getAddress() {
+        return selector.getAddress();
+    }
+
+    /** closes all connections, and stops the games that share the pool. The first game is stopped by its caller */
     public void close() {
-        try {
-            socket.close();
-        } catch (IOException e) {
-            Logger.ERROR.print(e);
+        selector.close();
+
+        if (tickPool != null) {
+            for (Room room : rooms.values()) {
+                if (room.game != game) room.game.stopLoop();
+            }
+            tickPool.shutdown();
         }
+
+        if (datagrams != null) datagrams.close();
     }
 
     /** starts a server */
@@ -100,8 +217,21 @@ public class JetFighterServer implements BlockingListener {
         server.listenForHost();
 
         server.listenInThread(true);
-        Logger.DEBUG.print("Listening to port " + server.socket.getLocalPort() + " on address " + server.socket.getInetAddress());
+        Logger.DEBUG.print("Listening on " + server.getAddress());
 
         server.game.run();
+        server.close();
+    }
+
+    /** a game of this server */
+    private static class Room {
+        final ServerLoop game;
+        /** whether the next connection is given host privileges */
+        final AtomicBoolean hostPending;
+
+        Room(ServerLoop game, boolean expectHost) {
+            this.game = game;
+            this.hostPending = new AtomicBoolean(expectHost);
+        }
     }
 }
@@ -0,0 +1,95 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+/**
+ * passes entity snapshots from a server to a client in the same JVM, next to the streams of their connection. The
+ * snapshots are handed over by reference instead of being encoded and decoded, which makes delta compression and
+ * acknowledgements unnecessary. For every snapshot, the server sends a {@link MessageType#LOCAL_SNAPSHOT} message on the
+ * stream, and the client takes the snapshot when it reads that message. Thus the snapshot is handled after the spawns
+ * and world switches sent before it. Like datagrams, snapshots that the client has not taken in time are dropped in
+ * favour of newer ones.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class LocalLink {
+    private static final int CAPACITY = 4;
+
+    private final ArrayDeque<Delivery> deliveries = new ArrayDeque<>(CAPACITY);
+    private Receiver receiver;
+    private boolean isClosed = false;
+
+    /**
+     * sets the client side of this link. Must be called before the first delivery
+     * @param receiver handles the snapshots of the server
+     */
+    public void setReceiver(Receiver receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * makes a snapshot available to the client. The snapshot must not be changed afterwards. Never blocks.
+     * @param snapshot          a snapshot of the server
+     * @param acknowledgedInput the sequence number of the last controls received from the client, or 0 if unknown
+     */
+    public synchronized void send(EntitySnapshot snapshot, int acknowledgedInput) {
+        if (isClosed) return;
+        // reading a snapshot sorts it, which may not happen on two threads at once
+        snapshot.sortById();
+
+        // the oldest snapshot is superseded
+        if (deliveries.size() == CAPACITY) deliveries.poll();
+        deliveries.add(new Delivery(snapshot, acknowledgedInput));
+    }
+
+    /**
+     * hands the snapshot with the given number to the receiver, and discards all older snapshots. Newer snapshots are
+     * kept, as their messages have not been read yet.
+     * @param number the number of the snapshot, as read from the stream
+     * @return false iff the snapshot was dropped or the link is closed
+     * @throws IOException if the receiver could not handle the snapshot
+     */
+    public boolean deliver(int number) throws IOException {
+        Delivery delivery;
+        synchronized (this) {
+            if (isClosed) return false;
+
+            delivery = deliveries.peek();
+            while (delivery != null && delivery.snapshot.number < number) {
+                deliveries.poll();
+                delivery = deliveries.peek();
+            }
+            if (delivery == null || delivery.snapshot.number != number) return false;
+            deliveries.poll();
+        }
+
+        receiver.receive(delivery.snapshot, delivery.acknowledgedInput);
+        return true;
+    }
+
+    /** discards all snapshots that have not been handed over, and all further snapshots */
+    public synchronized void close() {
+        isClosed = true;
+        deliveries.clear();
+    }
+
+    /** handles the snapshots of a link */
+    public interface Receiver {
+        /**
+         * @param snapshot          a snapshot of the server, which must not be changed
+         * @param acknowledgedInput the sequence number of the last controls the server received, or 0 if unknown
+         * @throws IOException if the snapshot could not be handled
+         */
+        void receive(EntitySnapshot snapshot, int acknowledgedInput) throws IOException;
+    }
+
+    private static class Delivery {
+        final EntitySnapshot snapshot;
+        final int acknowledgedInput;
+
+        Delivery(EntitySnapshot snapshot, int acknowledgedInput) {
+            this.snapshot = snapshot;
+            this.acknowledgedInput = acknowledgedInput;
+        }
+    }
+}
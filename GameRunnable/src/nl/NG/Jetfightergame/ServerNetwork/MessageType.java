@@ -14,8 +14,9 @@ public enum MessageType {
     PING, PONG,
     PAUSE_GAME, UNPAUSE_GAME, START_GAME, SHUTDOWN_GAME, WORLD_SWITCH,
     THROTTLE, PITCH, YAW, ROLL, PRIMARY_FIRE, SECONDARY_FIRE,
-    ENTITY_UPDATE, ENTITY_SPAWN, ENTITY_REMOVE, EXPLOSION_SPAWN, BOOSTER_COLOR_CHANGE,
-    PLAYER_SPAWN, PLAYER_UPDATE, RACE_PROGRESS, POWERUP_STATE, POWERUP_COLLECT;
+    ENTITY_UPDATE, ENTITY_UPDATE_BATCH, ENTITY_SPAWN, ENTITY_SPAWN_BATCH, ENTITY_REMOVE, EXPLOSION_SPAWN, BOOSTER_COLOR_CHANGE,
+    PLAYER_SPAWN, PLAYER_UPDATE, RACE_PROGRESS, POWERUP_STATE, POWERUP_COLLECT,
+    SNAPSHOT_ACK, INPUT_SEQUENCE, INPUT_ACK, LOCAL_SNAPSHOT;
 
     private static final MessageType[] VALUES = values();
     public static EnumSet<MessageType> controls = EnumSet.of(THROTTLE, PITCH, YAW, ROLL, PRIMARY_FIRE, SECONDARY_FIRE);
@@ -26,6 +27,13 @@ public enum MessageType {
             CONFIRM_CONNECTION, CONNECTION_CLOSE, CLOSE_REQUEST, PING, PONG,
             PAUSE_GAME, UNPAUSE_GAME, START_GAME, SHUTDOWN_GAME
     );
+    /** messages that are superseded by the next message of the same type, and may thus be dropped */
+    public static EnumSet<MessageType> unreliable = EnumSet.of(ENTITY_UPDATE, ENTITY_UPDATE_BATCH, INPUT_ACK, LOCAL_SNAPSHOT);
+    /**
+     * messages of which the handling requires replies of the other side. None of the game messages do, as the timer
+     * synchronisation is measured by the client
+     */
+    public static EnumSet<MessageType> exchanges = EnumSet.noneOf(MessageType.class);
 
     /**
      * @param id a number n corresponing to an enum ordinal
@@ -38,6 +46,14 @@ public enum MessageType {
         else return VALUES[id];
     }
 
+    /**
+     * @param id a number n corresponding to an enum ordinal, or any other number
+     * @return true iff id is a valid message of which the handling requires replies of the other side
+     */
+    public static boolean isExchange(int id) {
+        return id >= 0 && id < VALUES.length && VALUES[id].isOf(exchanges);
+    }
+
     public static String asString(int id) {
         if (id >= VALUES.length || id < -1) {
             return id + " (Invalid message id)";
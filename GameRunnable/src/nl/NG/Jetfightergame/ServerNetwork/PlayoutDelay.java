@@ -0,0 +1,84 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import java.util.Arrays;
+
+/**
+ * chooses how far rendering runs behind the game time, from the arrival of entity states. Entities are interpolated
+ * between their states, and extrapolated beyond the last state received. To interpolate until the next state arrives,
+ * the render time must stay behind the time of the last state received. For every arrival, the delay that would have
+ * been needed until that moment is a sample: the arrival time minus the time of the newest state that had arrived
+ * before. The playout delay is the given percentile of the last samples, such that only that fraction of arrivals
+ * comes too late.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class PlayoutDelay {
+    private final float[] samples;
+    private final float[] sorted;
+    private final float percentile;
+    private final float minDelay;
+    private final float maxDelay;
+
+    private int nOfSamples = 0;
+    private int nextSample = 0;
+    private float latestState = Float.NEGATIVE_INFINITY;
+    private float delay;
+    private boolean isChanged = false;
+
+    /**
+     * @param windowSize   the number of arrivals the delay is chosen from
+     * @param percentile   the fraction of arrivals that should be in time, between 0 and 1
+     * @param minDelay     the minimum delay
+     * @param maxDelay     the maximum delay, even on a link with more jitter
+     * @param initialDelay the delay until the first samples arrive
+     */
+    public PlayoutDelay(int windowSize, float percentile, float minDelay, float maxDelay, float initialDelay) {
+        this.samples = new float[windowSize];
+        this.sorted = new float[windowSize];
+        this.percentile = percentile;
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay;
+        this.delay = initialDelay;
+    }
+
+    /**
+     * records the arrival of entity states
+     * @param stateTime   the game time of the states
+     * @param arrivalTime the game time of the arrival
+     */
+    public synchronized void arrived(float stateTime, float arrivalTime) {
+        if (latestState != Float.NEGATIVE_INFINITY) {
+            samples[nextSample] = arrivalTime - latestState;
+            nextSample = (nextSample + 1) % samples.length;
+            if (nOfSamples < samples.length) nOfSamples++;
+            isChanged = true;
+        }
+
+        latestState = Math.max(latestState, stateTime);
+    }
+
+    /** @return the smallest delay for which the percentile of the recent arrivals would have been in time */
+    public synchronized float delay() {
+        if (isChanged) {
+            System.arraycopy(samples, 0, sorted, 0, nOfSamples);
+            Arrays.sort(sorted, 0, nOfSamples);
+            int index = Math.min(nOfSamples - 1, (int) Math.ceil(percentile * nOfSamples) - 1);
+
+            delay = Math.max(minDelay, Math.min(maxDelay, sorted[Math.max(0, index)]));
+            isChanged = false;
+        }
+
+        return delay;
+    }
+
+    /**
+     * forgets the time of the last states, for when the game time jumps. The recent samples are kept.
+     */
+    public synchronized void reset() {
+        latestState = Float.NEGATIVE_INFINITY;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Playout delay: %.1f ms (%d samples)", delay * 1000, nOfSamples);
+    }
+}
@@ -0,0 +1,141 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import nl.NG.Jetfightergame.Tools.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * accepts socket connections on a port, and reads and writes all these connections on one thread using a {@link
+ * Selector}. The thread that runs {@link #listen()} is this I/O thread. Writing to a connection only fills its {@link
+ * SendQueue}, such that the game loop never blocks on a socket.
+ * @see ChannelConnection
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class SelectorServer implements BlockingListener {
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ConnectionHandler handler;
+    /** executes handshakes and message exchanges, which only take a thread for as long as they run */
+    private final ExecutorService exchanges = Executors.newCachedThreadPool(action -> {
+        Thread t = new Thread(action, "Exchange-" + getClass().getSimpleName());
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * opens the given port for incoming connections.
+     * @param port    the port to listen to, or 0 for any free port
+     * @param handler handles the handshake of every new connection
+     * @throws IOException if the port could not be opened
+     */
+    public SelectorServer(int port, ConnectionHandler handler) throws IOException {
+        this.handler = handler;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * blocks until any connection is ready, and then accepts, reads and writes all connections that are ready.
+     * @return false iff this server has been closed
+     */
+    @Override
+    public boolean handleMessage() throws IOException {
+        try {
+            selector.select(this::handleKey);
+            return selector.isOpen();
+
+        } catch (ClosedSelectorException ex) {
+            return false; // when the server closes, do not report this
+        }
+    }
+
+    private void handleKey(SelectionKey key) {
+        if (key.isAcceptable()) {
+            try {
+                accept();
+            } catch (IOException ex) {
+                Logger.ERROR.print(ex);
+            }
+            return;
+        }
+
+        ChannelConnection connection = (ChannelConnection) key.attachment();
+        try {
+            if (key.isReadable()) connection.receive();
+            if (key.isValid() && key.isWritable()) connection.send();
+
+        } catch (IOException | CancelledKeyException ex) {
+            Logger.WARN.print("Connection " + connection + " failed: " + ex);
+            connection.close();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel client = serverChannel.accept();
+        if (client == null) return;
+
+        client.configureBlocking(false);
+        SelectionKey key = client.register(selector, SelectionKey.OP_READ);
+        ChannelConnection connection = new ChannelConnection(client, key, exchanges);
+        key.attach(connection);
+
+        exchanges.execute(() -> {
+            try {
+                BlockingListener listener = handler.connect(connection.getInputStream(), connection.getOutputStream());
+                connection.dispatchTo(listener);
+
+            } catch (IOException ex) {
+                Logger.ERROR.print("Could not connect to " + connection + ": " + ex);
+                connection.close();
+            }
+        });
+    }
+
+    /** @return the address this server listens to */
+    public SocketAddress getAddress() {
+        try {
+            return serverChannel.getLocalAddress();
+
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /** closes the port and all connections */
+    public void close() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+            serverChannel.close();
+
+        } catch (IOException ex) {
+            Logger.ERROR.print(ex);
+        }
+        exchanges.shutdown();
+    }
+
+    /** handles the handshake of a new connection */
+    public interface ConnectionHandler {
+        /**
+         * initializes a new connection. This is executed on a separate thread, and may block while reading the given
+         * stream.
+         * @param in  the incoming data of the connection
+         * @param out the outgoing data of the connection
+         * @return the listener that handles all further messages of this connection, on the I/O thread
+         * @throws IOException if the connection could not be established
+         */
+        BlockingListener connect(InputStream in, OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,308 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import nl.NG.Jetfightergame.Tools.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * a bounded queue of outgoing messages of one connection. Writing to this stream collects the bytes of one message,
+ * which is queued by {@link #endMessage(MessageType)}, and flushing hands the queued messages to a {@link Drain} that
+ * sends them on another thread. Thus the sender never waits for the connection, unless the policy is {@link
+ * Policy#BLOCK} and the sender is not the thread of the drain. When the queue is full, the {@link Policy} decides which
+ * messages are dropped, or whether the connection is considered lost.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class SendQueue extends OutputStream {
+    /** what happens when a message does not fit in the queue */
+    public enum Policy {
+        /**
+         * the sender waits until the queue has room. The thread of the drain can not wait for itself, and exceeds the
+         * capacity instead
+         */
+        BLOCK,
+        /** entity updates are dropped, as newer updates follow. If other messages do not fit, the queue overflows */
+        DROP_STALE_UPDATES,
+        /** the queue overflows */
+        DISCONNECT
+    }
+
+    private final int capacity;
+    private final Policy policy;
+    private Drain drain;
+
+    private final ArrayDeque<Message> messages = new ArrayDeque<>();
+    private final ByteArrayOutputStream current = new ByteArrayOutputStream();
+    private int nOfBytes = 0;
+    private int peakBytes = 0;
+    private int nOfDropped = 0;
+    private boolean isOverflown = false;
+    private boolean isClosed = false;
+
+    /**
+     * @param capacity the maximum number of bytes of queued messages. A single message larger than this is always
+     *                 accepted if the queue is empty
+     * @param policy   what to do when a message does not fit
+     */
+    public SendQueue(int capacity, Policy policy) {
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
+    /**
+     * sets the receiver of the messages of this queue. Must be called before the first flush.
+     * @param drain the object that sends the messages
+     */
+    public void setDrain(Drain drain) {
+        this.drain = drain;
+    }
+
+    /**
+     * creates a queue that is sent to the given stream by a new thread. Writes to the stream may block this thread
+     * without affecting the sender of the messages.
+     * @param out      the stream to send to
+     * @param capacity see {@link #SendQueue(int, Policy)}
+     * @param policy   what to do when a message does not fit
+     * @param name     a name for the thread
+     * @return a new queue
+     */
+    public static SendQueue drainInThread(OutputStream out, int capacity, Policy policy, String name) {
+        SendQueue queue = new SendQueue(capacity, policy);
+        Thread sender = new Thread(() -> queue.sendTo(out), "Sender-" + name);
+        sender.setDaemon(true);
+        queue.setDrain(new Drain() {
+            @Override
+            public void onAvailable() {
+                // the sender waits on the queue
+            }
+
+            @Override
+            public void onClose() {
+                try {
+                    out.close();
+                } catch (IOException ex) {
+                    Logger.ERROR.print(ex);
+                }
+            }
+        });
+        sender.start();
+        return queue;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        if (isClosed) throw new IOException("Send queue is closed");
+        current.write(b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        if (isClosed) throw new IOException("Send queue is closed");
+        current.write(b, off, len);
+    }
+
+    /**
+     * queues the bytes written since the previous message as one message. Messages are not sent before {@link #flush()}
+     * @param type the type of the message
+     * @return false iff the message did not fit according to the policy, and the connection should be closed
+     * @throws IOException if this queue is closed
+     */
+    public synchronized boolean endMessage(MessageType type) throws IOException {
+        if (isClosed) throw new IOException("Send queue is closed");
+        byte[] bytes = current.toByteArray();
+        current.reset();
+        return add(bytes, type.isOf(MessageType.unreliable));
+    }
+
+    /**
+     * queues a complete message, which is not copied
+     * @param message    the bytes of the message
+     * @param isReliable if false, this message may be dropped under {@link Policy#DROP_STALE_UPDATES}
+     * @return false iff the message did not fit according to the policy, and the connection should be closed
+     * @throws IOException if this queue is closed
+     */
+    public synchronized boolean offer(byte[] message, boolean isReliable) throws IOException {
+        if (isClosed) throw new IOException("Send queue is closed");
+        return add(message, !isReliable);
+    }
+
+    private boolean add(byte[] bytes, boolean isDroppable) throws IOException {
+        if (bytes.length == 0) return !isOverflown;
+        boolean mayWait = (policy != Policy.BLOCK) || !drain.isDrainThread();
+
+        while (!messages.isEmpty() && nOfBytes + bytes.length > capacity && !isOverflown && mayWait) {
+            switch (policy) {
+                case BLOCK:
+                    notifyAll();
+                    drain.onAvailable();
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                        throw new IOException(ex);
+                    }
+                    if (isClosed) throw new IOException("Send queue is closed");
+                    break;
+
+                case DROP_STALE_UPDATES:
+                    if (dropUpdates() == 0) {
+                        if (isDroppable) {
+                            nOfDropped++;
+                            return true;
+                        }
+                        isOverflown = true;
+                    }
+                    break;
+
+                case DISCONNECT:
+                    isOverflown = true;
+                    break;
+            }
+        }
+
+        if (isOverflown) return false;
+
+        messages.add(new Message(bytes, isDroppable));
+        nOfBytes += bytes.length;
+        peakBytes = Math.max(peakBytes, nOfBytes);
+        return true;
+    }
+
+    /** removes all droppable messages from the queue, and returns the number of bytes removed */
+    private int dropUpdates() {
+        int removed = 0;
+        Iterator<Message> iterator = messages.iterator();
+        while (iterator.hasNext()) {
+            Message message = iterator.next();
+            if (message.isDroppable) {
+                iterator.remove();
+                removed += message.bytes.length;
+                nOfDropped++;
+            }
+        }
+        nOfBytes -= removed;
+        return removed;
+    }
+
+    /** queues the bytes written since the previous message as one message, and hands all messages to the drain */
+    @Override
+    public void flush() throws IOException {
+        synchronized (this) {
+            if (isClosed) throw new IOException("Send queue is closed");
+            if (current.size() > 0) {
+                add(current.toByteArray(), false);
+                current.reset();
+            }
+
+            if (messages.isEmpty()) return;
+            notifyAll();
+        }
+
+        drain.onAvailable();
+    }
+
+    /**
+     * removes the first message, if it fits in the given number of bytes
+     * @param maxBytes the maximum size of the message
+     * @return the first message, or null if there is none or it does not fit
+     */
+    public synchronized byte[] poll(int maxBytes) {
+        Message message = messages.peek();
+        if (message == null || message.bytes.length > maxBytes) return null;
+
+        messages.remove();
+        nOfBytes -= message.bytes.length;
+        notifyAll();
+        return message.bytes;
+    }
+
+    /** sends all messages to the given stream, waiting for new messages, until this queue is closed */
+    private void sendTo(OutputStream out) {
+        try {
+            while (true) {
+                byte[] message;
+                synchronized (this) {
+                    while (messages.isEmpty() && !isClosed) {
+                        wait();
+                    }
+                    if (messages.isEmpty()) return;
+                    message = poll(Integer.MAX_VALUE);
+                }
+
+                out.write(message);
+                if (depth() == 0) out.flush();
+            }
+
+        } catch (IOException | InterruptedException ex) {
+            Logger.ERROR.print(ex);
+            close();
+        }
+    }
+
+    /** @return the number of messages waiting to be sent */
+    public synchronized int depth() {
+        return messages.size();
+    }
+
+    /** @return the number of bytes waiting to be sent */
+    public synchronized int size() {
+        return nOfBytes;
+    }
+
+    /** @return the maximum number of bytes that have been waiting at once */
+    public synchronized int peakSize() {
+        return peakBytes;
+    }
+
+    /** @return the number of messages dropped due to the policy */
+    public synchronized int nOfDropped() {
+        return nOfDropped;
+    }
+
+    /** closes this queue and its drain. Messages that have not been sent are discarded */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (isClosed) return;
+            isClosed = true;
+            messages.clear();
+            nOfBytes = 0;
+            notifyAll();
+        }
+        if (drain != null) drain.onClose();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d messages, %d bytes (peak %d), %d dropped", messages.size(), nOfBytes, peakBytes, nOfDropped);
+    }
+
+    /** the receiver of the messages of a queue, which takes the messages using {@link #poll(int)} */
+    public interface Drain {
+        /** called when messages are available. May be called while holding the lock of the queue */
+        void onAvailable();
+
+        /** called when the queue is closed */
+        void onClose();
+
+        /**
+         * @return true iff the calling thread is the thread that takes the messages of the queue, which therefore must
+         * never wait for the queue to have room
+         */
+        default boolean isDrainThread() {
+            return false;
+        }
+    }
+
+    private static class Message {
+        final byte[] bytes;
+        final boolean isDroppable;
+
+        Message(byte[] bytes, boolean isDroppable) {
+            this.bytes = bytes;
+            this.isDroppable = isDroppable;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import nl.NG.Jetfightergame.EntityGeneral.MovingEntity;
 import nl.NG.Jetfightergame.EntityGeneral.Powerups.PowerupEntity;
 import nl.NG.Jetfightergame.EntityGeneral.Powerups.PowerupType;
 import nl.NG.Jetfightergame.GameState.Player;
+import nl.NG.Jetfightergame.Settings.ServerSettings;
 import nl.NG.Jetfightergame.Tools.DataStructures.Pair;
 import nl.NG.Jetfightergame.Tools.Logger;
 import nl.NG.Jetfightergame.Tools.Vectors.Color4f;
@@ -15,8 +16,12 @@ import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
 import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
 
 import java.io.*;
+import java.net.SocketAddress;
+import java.security.SecureRandom;
+import java.util.Collection;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 import static nl.NG.Jetfightergame.ServerNetwork.MessageType.*;
 
@@ -25,8 +30,14 @@ import static nl.NG.Jetfightergame.ServerNetwork.MessageType.*;
  * @author Geert van Ieperen created on 5-5-2018.
  */
 public class ServerConnection implements BlockingListener, Player {
+    private static final SecureRandom TOKENS = new SecureRandom();
+    /** message type, sequence number and hold time */
+    private static final int INPUT_ACK_SIZE = 9;
     private final InputStream clientIn;
     private final OutputStream clientOut;
+    /** the messages waiting to be sent, or null if messages are written directly */
+    private final SendQueue sendQueue;
+    private final Supplier<String> queueCounter;
     private final String clientName;
     private final boolean hasAdminCapabilities;
 
@@ -37,25 +48,50 @@ public class ServerConnection implements BlockingListener, Player {
 
     private Lock sendLock = new ReentrantLock();
     protected volatile boolean isClosed;
+    /** the number of the last entity snapshot the client has received */
+    private volatile int acknowledgedSnapshot = EntitySnapshot.NONE;
+    /** selects the entity states sent to this client, or null if this client receives all states */
+    private final InterestManager interest;
+
+    /** the channel for entity states, or null if these are sent on the stream */
+    private final DatagramEndpoint datagrams;
+    /** identifies the datagrams of this client, or 0 if datagrams are not used */
+    private final int datagramToken;
+    /** the address of the client, known once it sent a datagram */
+    private volatile SocketAddress datagramTarget = null;
+    private int datagramSequence = 0;
+    /** the sequence number of the last controls received, or 0 if the client does not number its controls */
+    private int lastInput = 0;
+    /** the system time the last controls were received, which the client needs to measure the round trip */
+    private long lastInputNanos = 0;
+    private final Object inputLock = new Object();
+    /** passes snapshots to a client in the same process, or null if snapshots are encoded */
+    private LocalLink localLink = null;
 
     /**
      * construct a server-side connection to a player
      * @param inputStream  the incoming communication from the player
-     * @param outputStream the outgoing communication to the player
+     * @param outputStream the outgoing communication to the player. If this is not a {@link SendQueue}, a queue with a
+     *                     sending thread is created
      * @param server       the object that accepts server-commands
      * @param playerSpawn  the place and state of the player at the moment of spawning. this should be an unoccupied
      *                     place in space
      * @param worldType    the current selected world
      * @param entities     an access point for all entities in the world
      * @param isAdmin      if true, allows the player to send commands of host level.
+     * @param datagrams    the channel offered to the client for entity states and controls, or null if all messages
+     *                     are sent on the stream
      * @throws IOException if any communication error occurs, as defined by the given Input- and OutputStreams
      */
     public ServerConnection(
             InputStream inputStream, OutputStream outputStream,
             GameServer server, EntityState playerSpawn,
-            EnvironmentClass worldType, EntityMapping entities, boolean isAdmin
+            EnvironmentClass worldType, EntityMapping entities, boolean isAdmin, DatagramEndpoint datagrams
     ) throws IOException {
-        this.clientOut = new BufferedOutputStream(outputStream);
+        this.sendQueue = (outputStream instanceof SendQueue) ? (SendQueue) outputStream : SendQueue.drainInThread(
+                outputStream, ServerSettings.SEND_QUEUE_CAPACITY, ServerSettings.SEND_QUEUE_POLICY, "ServerConnection"
+        );
+        this.clientOut = sendQueue;
         this.clientIn = inputStream;
         this.hasAdminCapabilities = isAdmin;
         this.server = server;
@@ -68,12 +104,23 @@ public class ServerConnection implements BlockingListener, Player {
         Pair<String, AbstractJet> p = protocol.playerSpawnAccept(playerSpawn, server, controls, entities, isAdmin);
         clientName = p.left;
         playerJet = p.right;
+
+        this.datagrams = datagrams;
+        this.datagramToken = (datagrams == null) ? 0 : newToken();
+        protocol.datagramOfferSend(datagramToken, (datagrams == null) ? 0 : datagrams.getPort());
+        clientOut.flush();
+
+        interest = ServerSettings.INTEREST_MANAGEMENT ?
+                new InterestManager(ServerSettings.SNAPSHOT_BYTE_BUDGET, ServerSettings.INTEREST_DISTANCE) : null;
+        queueCounter = () -> String.format("%s queue: %s", clientName, sendQueue);
     }
 
     protected ServerConnection(String name, File outputFile, float currentTime) throws IOException {
         this.protocol = new JetFighterProtocol(outputFile, true);
         clientOut = protocol.getOutput();
         clientIn = protocol.getInput();
+        sendQueue = null;
+        queueCounter = null;
         new DataOutputStream(clientOut).writeFloat(currentTime);
 
         clientName = name;
@@ -82,6 +129,9 @@ public class ServerConnection implements BlockingListener, Player {
         server = null;
         playerJet = null;
         controls = new RemoteControlReceiver();
+        interest = null;
+        datagrams = null;
+        datagramToken = 0;
     }
 
     @Override
@@ -106,6 +156,12 @@ public class ServerConnection implements BlockingListener, Player {
         } else if (type.isOf(MessageType.controls)) {
             protocol.controlRead(controls, type);
 
+        } else if (type == SNAPSHOT_ACK) {
+            acknowledgedSnapshot = protocol.snapshotAckRead();
+
+        } else if (type == INPUT_SEQUENCE) {
+            receiveInputSequence(protocol.inputSequenceRead());
+
         } else {
             // type is allowed and not a control message
             Logger.DEBUG.printf("[%s @ %.2f] %s", clientName, server.getTimer().time(), type);
@@ -127,7 +183,10 @@ public class ServerConnection implements BlockingListener, Player {
                     break;
 
                 case SYNC_TIMER:
-                    sendMessage(SYNC_TIMER, () -> protocol.syncTimerSource(server.getTimer()));
+                    sendMessage(SYNC_TIMER, () -> {
+                        protocol.syncTimerSend(server.getTimer());
+                        clientOut.flush();
+                    });
                     break;
 
                 case START_GAME:
@@ -150,6 +209,74 @@ public class ServerConnection implements BlockingListener, Player {
         return isClosed;
     }
 
+    /** @return the token that identifies the datagrams of this client, or 0 if this client does not use datagrams */
+    public int getDatagramToken() {
+        return datagramToken;
+    }
+
+    /**
+     * handles a datagram of this client, which holds controls. From then on, entity states are sent as datagrams.
+     * @param source   the address of the client
+     * @param messages the messages of the datagram
+     * @throws IOException if the datagram holds other messages than controls
+     */
+    public void receiveDatagram(SocketAddress source, DataInputStream messages) throws IOException {
+        datagramTarget = source;
+
+        while (messages.available() > 0) {
+            MessageType type = MessageType.get(messages.read());
+            if (type == INPUT_SEQUENCE) {
+                receiveInputSequence(messages.readInt());
+
+            } else if (type.isOf(MessageType.controls)) {
+                controls.receive(type, messages.read());
+
+            } else {
+                throw new IOException("Unexpected datagram message " + type);
+            }
+        }
+    }
+
+    /** @return a random token that is not 0 */
+    private static int newToken() {
+        int token;
+        do {
+            token = TOKENS.nextInt();
+        } while (token == 0);
+        return token;
+    }
+
+    /**
+     * @return the selection of entity states for this client, or null if this client receives the states of all
+     * entities
+     */
+    public InterestManager getInterest() {
+        return interest;
+    }
+
+    /** @return the messages waiting to be sent to this client, or null if messages are written directly */
+    public SendQueue getSendQueue() {
+        return sendQueue;
+    }
+
+    /** @return a description of the send queue of this client for the debug screen, or null if there is no queue */
+    public Supplier<String> getQueueCounter() {
+        return queueCounter;
+    }
+
+    /** @return true iff this client receives quantized entity states */
+    public boolean isQuantized() {
+        return protocol.isQuantized();
+    }
+
+    /**
+     * @return the number of the last snapshot the client has acknowledged, or {@link EntitySnapshot#NONE} if the client
+     * has none or requested a full snapshot
+     */
+    public int getAcknowledgedSnapshot() {
+        return acknowledgedSnapshot;
+    }
+
     /**
      * sends an update to the client of the given entity's position, rotation and velocity
      * @param entity      the entity to be updated
@@ -161,6 +288,110 @@ public class ServerConnection implements BlockingListener, Player {
         );
     }
 
+    /**
+     * from now on, passes snapshots to the client by reference instead of encoding them.
+     * @param link a link of which the client listens to the other side
+     */
+    public void setLocalLink(LocalLink link) {
+        this.localLink = link;
+    }
+
+    /** @return whether this client runs in the same process, and receives snapshots by {@link #sendSnapshot(EntitySnapshot)} */
+    public boolean isLocal() {
+        return localLink != null;
+    }
+
+    /**
+     * passes a snapshot to a local client, together with the sequence number of the last controls received. The client
+     * takes the snapshot when it reads the {@link MessageType#LOCAL_SNAPSHOT} message that follows the messages sent
+     * earlier, such as the spawns of the entities in the snapshot.
+     * @param snapshot a snapshot of all entities, which must not be changed afterwards
+     * @see #isLocal()
+     */
+    public void sendSnapshot(EntitySnapshot snapshot) {
+        int input;
+        synchronized (inputLock) {
+            input = lastInput;
+        }
+        localLink.send(snapshot, input);
+        sendMessage(LOCAL_SNAPSHOT, () ->
+                protocol.localSnapshotSend(snapshot.number)
+        );
+    }
+
+    /** controls may arrive both on the stream and as datagram, of which only the newest are remembered */
+    private void receiveInputSequence(int sequence) {
+        synchronized (inputLock) {
+            if (sequence <= lastInput) return;
+            lastInput = sequence;
+            lastInputNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * sends an encoded snapshot. If the client numbers its controls, the snapshot is preceded by the sequence number of
+     * the last controls received, such that the client can compare the state of its jet with its prediction. The time
+     * since receiving these controls lets the client measure the round trip time.
+     * @param snapshot the complete message, which must not be changed afterwards
+     * @see #sendEncoded(byte[])
+     */
+    public void sendSnapshot(byte[] snapshot) {
+        int input;
+        float holdTime;
+        synchronized (inputLock) {
+            input = lastInput;
+            holdTime = (System.nanoTime() - lastInputNanos) * 1E-9f;
+        }
+
+        if (input == 0) {
+            sendEncoded(snapshot);
+            return;
+        }
+
+        try {
+            ByteArrayOutputStream message = new ByteArrayOutputStream(INPUT_ACK_SIZE + snapshot.length);
+            JetFighterProtocol.inputAckSend(new DataOutputStream(message), input, holdTime);
+            message.write(snapshot);
+            sendEncoded(message.toByteArray());
+
+        } catch (IOException ex) {
+            // writing to a ByteArrayOutputStream does not fail
+            Logger.ERROR.print(ex);
+        }
+    }
+
+    /**
+     * writes a message that has already been encoded, including its message type. This allows encoding a message once
+     * for all connections. Entity states are sent as datagram if possible.
+     * @param message the complete message, which must not be changed afterwards
+     */
+    public void sendEncoded(byte[] message) {
+        sendLock.lock();
+        try {
+            SocketAddress target = datagramTarget;
+            boolean isUnreliable = MessageType.get(message[0]).isOf(unreliable);
+
+            if (target != null && isUnreliable &&
+                    datagrams.send(target, datagramToken, ++datagramSequence, message, message.length)) {
+                return;
+            }
+
+            if (sendQueue == null) {
+                clientOut.write(message);
+
+            } else {
+                if (!sendQueue.offer(message, !isUnreliable)) overflow();
+            }
+
+        } catch (IOException e) {
+            e.printStackTrace();
+            isClosed = true;
+
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
     /**
      * sends the event of a newly spawned entity
      * @param entity the entity to be sent
@@ -171,6 +402,14 @@ public class ServerConnection implements BlockingListener, Player {
         );
     }
 
+    /** sends the given entities in one compressed message */
+    public void sendEntitySpawns(Collection<EntityFactory> entities) {
+        if (entities.isEmpty()) return;
+        sendMessage(ENTITY_SPAWN_BATCH, () ->
+                protocol.newEntitiesSend(entities)
+        );
+    }
+
     public void sendExplosionSpawn(PosVector position, DirVector direction, float spread, int density, Color4f color1, Color4f color2, float lingerTime, float particleSize) {
         sendMessage(EXPLOSION_SPAWN, () ->
                 protocol.explosionSend(position, direction, spread, density, color1, color2, lingerTime, particleSize)
@@ -219,6 +458,7 @@ public class ServerConnection implements BlockingListener, Player {
         try {
             clientOut.write(type.ordinal());
             action.run();
+            if (sendQueue != null && !sendQueue.endMessage(type)) overflow();
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -229,6 +469,14 @@ public class ServerConnection implements BlockingListener, Player {
         }
     }
 
+    /** closes the connection to a client that does not keep up with the messages sent to it */
+    private void overflow() {
+        if (isClosed) return;
+        Logger.WARN.print(this + " can not keep up with the server, closing connection (" + sendQueue + ")");
+        isClosed = true;
+        sendQueue.close();
+    }
+
     /** send the previously collected data to the clients */
     public void flush() {
         sendLock.lock();
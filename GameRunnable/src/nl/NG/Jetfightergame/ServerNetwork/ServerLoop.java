@@ -1,6 +1,7 @@
 package nl.NG.Jetfightergame.ServerNetwork;
 
 import nl.NG.Jetfightergame.ArtificalIntelligence.RaceAI;
+import nl.NG.Jetfightergame.Assets.Entities.AbstractProjectile;
 import nl.NG.Jetfightergame.Assets.Entities.FighterJets.AbstractJet;
 import nl.NG.Jetfightergame.Assets.Entities.FighterJets.JetSpitsy;
 import nl.NG.Jetfightergame.Controllers.Controller;
@@ -21,17 +22,19 @@ import nl.NG.Jetfightergame.Rendering.Particles.ParticleCloud;
 import nl.NG.Jetfightergame.Settings.ClientSettings;
 import nl.NG.Jetfightergame.Settings.ServerSettings;
 import nl.NG.Jetfightergame.Sound.AudioSource;
+import nl.NG.Jetfightergame.Tools.DataStructures.LongIntHashMap;
 import nl.NG.Jetfightergame.Tools.Logger;
 import nl.NG.Jetfightergame.Tools.Vectors.Color4f;
 import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
 import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.*;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 /**
@@ -51,12 +54,35 @@ public class ServerLoop extends AbstractGameLoop implements GameServer, RaceChan
     private EnvironmentClass raceWorld;
     private final EnvironmentClass lobby;
 
+    private final SnapshotHistory sentSnapshots = new SnapshotHistory(ServerSettings.SNAPSHOT_HISTORY_SIZE);
+    private int nextSnapshotNumber = 0;
+    /** the encoded snapshot of the current tick, by number of the baseline it is relative to and its encoding */
+    private final Map<Long, byte[]> encodedSnapshots = new HashMap<>();
+    private final ByteArrayOutputStream encodingBuffer = new ByteArrayOutputStream();
+    /** the projectiles of this tick that are aimed at an entity, as pairs of projectile id and target id */
+    private final LongIntHashMap threats = new LongIntHashMap();
+
+    /** the channel for entity states and controls, or null if all messages are sent on the streams */
+    private DatagramEndpoint datagrams = null;
+    /** the connections that may send datagrams, by their token */
+    private Map<Integer, ServerConnection> datagramConnections = new ConcurrentHashMap<>();
+
     private boolean worldShouldSwitch = false;
     private volatile boolean allowPlayerJoin = true;
     private int maxRounds = 1;
 
     public ServerLoop(EnvironmentClass lobby, EnvironmentClass raceWorld, boolean makeRecording) {
-        super("Server", ServerSettings.TARGET_TPS, true);
+        this("Server", lobby, raceWorld, makeRecording);
+    }
+
+    /**
+     * @param name          the name of this game, to distinguish it from other games in the same process
+     * @param lobby         the world where players wait for the race
+     * @param raceWorld     the world of the race
+     * @param makeRecording if true, the game is written to a file
+     */
+    public ServerLoop(String name, EnvironmentClass lobby, EnvironmentClass raceWorld, boolean makeRecording) {
+        super(name, ServerSettings.TARGET_TPS, true);
         this.raceProgress = new RaceProgress(8, this);
         this.gameWorld = new EnvironmentManager(lobby, this, raceProgress, true, true);
         this.raceWorld = raceWorld;
@@ -107,9 +133,26 @@ public class ServerLoop extends AbstractGameLoop implements GameServer, RaceChan
      * @param receive  the incoming communication from the player
      * @param send the outgoing communication to the player
      * @param asAdmin if true, the connection has admin capabilities
+     * @return the connection to the player, which should be listened to for further messages
+     * @throws IOException if the connection could not be established
+     */
+    public ServerConnection connectToPlayer(InputStream receive, OutputStream send, boolean asAdmin) throws IOException {
+        return connectToPlayer(receive, send, asAdmin, null);
+    }
+
+    /**
+     * initialize connections with a player in the same process, to which snapshots are passed without encoding them.
+     * @param receive the incoming communication from the player
+     * @param send    the outgoing communication to the player
+     * @param asAdmin if true, the connection has admin capabilities
+     * @param link    the link of which the client listens to the other side, or null if the snapshots are encoded
+     * @return the connection to the player, which should be listened to for further messages
      * @throws IOException if the connection could not be established
+     * @see #connectToPlayer(InputStream, OutputStream, boolean)
      */
-    public void connectToPlayer(InputStream receive, OutputStream send, boolean asAdmin) throws IOException {
+    public ServerConnection connectToPlayer(
+            InputStream receive, OutputStream send, boolean asAdmin, LocalLink link
+    ) throws IOException {
         if (!allowPlayerJoin) {
             Logger.WARN.print("New player tried connecting, but this is disabled");
             JetFighterProtocol.denyConnect(send);
@@ -118,7 +161,7 @@ public class ServerLoop extends AbstractGameLoop implements GameServer, RaceChan
         // establish communication handler
         ServerConnection player = new ServerConnection(
                 receive, send, this,
-                gameWorld.getNewSpawnPosition(), gameWorld.getCurrentType(), gameWorld, asAdmin
+                gameWorld.getNewSpawnPosition(), gameWorld.getCurrentType(), gameWorld, asAdmin, datagrams
         );
 
         EntityFactory factory = player.jet().getFactory();
@@ -129,10 +172,13 @@ public class ServerLoop extends AbstractGameLoop implements GameServer, RaceChan
             player.closeConnection("That name already exists on the server");
         }
 
-        // send all entities until this point (excluding the player's jet)
-        for (MovingEntity entity : gameWorld.getEntities()) {
-            player.sendEntitySpawn(entity.getFactory());
+        // send all entities until this point (excluding the player's jet) in one message
+        Collection<MovingEntity> present = gameWorld.getEntities();
+        List<EntityFactory> entities = new ArrayList<>(present.size());
+        for (MovingEntity entity : present) {
+            entities.add(entity.getFactory());
         }
+        player.sendEntitySpawns(entities);
 
         AbstractJet playerJet = player.jet();
         gameWorld.addEntity(playerJet);
@@ -147,10 +193,25 @@ public class ServerLoop extends AbstractGameLoop implements GameServer, RaceChan
             conn.flush();
         }
 
+        if (link != null) player.setLocalLink(link);
         connections.add(player);
+        if (player.getDatagramToken() != 0) datagramConnections.put(player.getDatagramToken(), player);
+        Logger.printOnline(player.getQueueCounter());
         player.flush();
 
-        player.listenInThread(true);
+        return player;
+    }
+
+    /**
+     * offers a datagram channel to all players that connect from now on. The channel may be shared with other games, and
+     * is listened to and closed by its owner.
+     * @param endpoint    the channel
+     * @param connections the connections that may send datagrams on the channel, by their token. The connections of
+     *                    this game are added and removed by this game
+     */
+    public void setDatagramChannel(DatagramEndpoint endpoint, Map<Integer, ServerConnection> connections) {
+        datagrams = endpoint;
+        datagramConnections = connections;
     }
 
     @Override
@@ -236,6 +297,11 @@ public class ServerLoop extends AbstractGameLoop implements GameServer, RaceChan
                 if (jet != null) removeEntity(conn.jet());
 
                 connections.remove(i--);
+                Logger.removeOnlineUpdate(conn.getQueueCounter());
+                if (datagrams != null) {
+                    datagramConnections.remove(conn.getDatagramToken());
+                    datagrams.forget(conn.getDatagramToken());
+                }
                 if (connections.isEmpty()) stopLoop();
             }
         }
@@ -245,6 +311,8 @@ public class ServerLoop extends AbstractGameLoop implements GameServer, RaceChan
         gameWorld.updateGameLoop();
 
         Collection<MovingEntity> entities = gameWorld.getEntities();
+        EntitySnapshot snapshot = new EntitySnapshot(nextSnapshotNumber++, currentTime, entities.size());
+        threats.clear();
 
         for (MovingEntity ety : entities) {
             if (ety instanceof PowerupEntity) continue;
@@ -253,13 +321,82 @@ public class ServerLoop extends AbstractGameLoop implements GameServer, RaceChan
                 removeEntity(ety);
 
             } else {
-                connections.forEach(conn -> conn.sendEntityUpdate(ety, currentTime));
+                snapshot.add(ety);
+
+                if (ety instanceof AbstractProjectile) {
+                    MovingEntity target = ((AbstractProjectile) ety).getTarget();
+                    if (target != null) threats.put(threatKey(ety.idNumber(), target.idNumber()), 1);
+                }
             }
         }
 
+        sendSnapshot(snapshot);
         connections.forEach(ServerConnection::flush);
     }
 
+    /**
+     * sends the given snapshot to all connections, relative to the last snapshot each connection acknowledged. For
+     * connections that receive all entity states, the snapshot is encoded only once for every distinct baseline and
+     * encoding. Other connections receive their own selection, and local connections receive the snapshot itself.
+     */
+    private void sendSnapshot(EntitySnapshot snapshot) {
+        sentSnapshots.add(snapshot);
+        encodedSnapshots.clear();
+
+        try {
+            for (ServerConnection conn : connections) {
+                if (conn.isLocal()) {
+                    conn.sendSnapshot(snapshot);
+                    continue;
+                }
+
+                boolean quantize = conn.isQuantized();
+                EnvironmentClass world = quantize ? gameWorld.getCurrentType() : null;
+                InterestManager interest = conn.getInterest();
+
+                if (interest != null) {
+                    // if the acknowledged snapshot is too old, the full state is sent
+                    EntitySnapshot baseline = interest.baseline(conn.getAcknowledgedSnapshot());
+                    AbstractJet jet = conn.jet();
+                    int jetId = jet.idNumber();
+                    float bound = quantize ? world.worldBound() : EntitySnapshot.UNQUANTIZED;
+                    EntitySnapshot selection = interest.select(
+                            snapshot, baseline, jet.getPosition(), jetId,
+                            id -> threats.get(threatKey(id, jetId)) != 0, bound
+                    );
+
+                    encodingBuffer.reset();
+                    JetFighterProtocol.entityBatchSend(new DataOutputStream(encodingBuffer), selection, baseline, world);
+                    conn.sendSnapshot(encodingBuffer.toByteArray());
+                    continue;
+                }
+
+                EntitySnapshot baseline = sentSnapshots.get(conn.getAcknowledgedSnapshot());
+                int baselineNumber = (baseline == null) ? EntitySnapshot.NONE : baseline.number;
+                long key = 2L * baselineNumber + (quantize ? 1 : 0);
+
+                byte[] encoded = encodedSnapshots.get(key);
+                if (encoded == null) {
+                    encodingBuffer.reset();
+                    JetFighterProtocol.entityBatchSend(new DataOutputStream(encodingBuffer), snapshot, baseline, world);
+                    encoded = encodingBuffer.toByteArray();
+                    encodedSnapshots.put(key, encoded);
+                }
+
+                conn.sendSnapshot(encoded);
+            }
+
+        } catch (IOException ex) {
+            // writing to a ByteArrayOutputStream does not fail
+            Logger.ERROR.print(ex);
+        }
+    }
+
+    /** @return the key in {@link #threats} of a projectile aimed at the target */
+    private static long threatKey(int projectileId, int targetId) {
+        return ((long) projectileId << 32) | (targetId & 0xFFFFFFFFL);
+    }
+
     private void startStateWriter() {
         try {
             StateWriter st = new StateWriter(globalTime.time());
@@ -309,6 +446,11 @@ public class ServerLoop extends AbstractGameLoop implements GameServer, RaceChan
             if (!conn.isClosed()) {
                 conn.send(MessageType.SHUTDOWN_GAME);
             }
+            Logger.removeOnlineUpdate(conn.getQueueCounter());
+            if (datagrams != null) {
+                datagramConnections.remove(conn.getDatagramToken());
+                datagrams.forget(conn.getDatagramToken());
+            }
         }
 
         gameWorld.cleanUp();
@@ -327,10 +469,11 @@ public class ServerLoop extends AbstractGameLoop implements GameServer, RaceChan
         gameWorld.switchTo(world);
 
         // sync new world with players
+        List<Player> racers = new ArrayList<>();
         for (ServerConnection player : connections) {
             if (player instanceof StateWriter) continue;
 
-            int pInd = raceProgress.addPlayer(player);
+            raceProgress.addPlayer(player);
             AbstractJet jet = player.jet();
             jet.set(gameWorld.getNewSpawnPosition());
             jet.setPowerup(PowerupType.NONE);
@@ -340,24 +483,30 @@ public class ServerLoop extends AbstractGameLoop implements GameServer, RaceChan
             player.sendEntityUpdate(jet, globalTime.time());
 
             gameWorld.addEntity(jet);
-            for (ServerConnection conn : connections) {
-                if (conn != player) conn.sendEntitySpawn(jet.getFactory());
-                conn.sendPlayerSpawn(player, pInd);
-            }
+            racers.add(player);
         }
 
         // add npc players
         if (maxRounds > 0) for (Player npc : npcPlayers) {
-            int pInd = raceProgress.addPlayer(npc);
+            raceProgress.addPlayer(npc);
             AbstractJet jet = npc.jet();
             jet.set(gameWorld.getNewSpawnPosition());
             jet.setPowerup(PowerupType.NONE);
             jet.addSpeedModifier(0, countDown);
             gameWorld.addEntity(jet);
+            racers.add(npc);
+        }
 
-            for (ServerConnection conn : connections) {
-                conn.sendEntitySpawn(jet.getFactory());
-                conn.sendPlayerSpawn(npc, pInd);
+        // send the jets of the other racers in one message
+        for (ServerConnection conn : connections) {
+            List<EntityFactory> jets = new ArrayList<>(racers.size());
+            for (Player racer : racers) {
+                if (racer != conn) jets.add(racer.jet().getFactory());
+            }
+            conn.sendEntitySpawns(jets);
+
+            for (Player racer : racers) {
+                conn.sendPlayerSpawn(racer, raceProgress.getPlayerInd(racer));
             }
         }
     }
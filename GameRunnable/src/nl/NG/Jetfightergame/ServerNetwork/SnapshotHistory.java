@@ -0,0 +1,37 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+/**
+ * a fixed number of the most recent snapshots, accessible by snapshot number. Snapshots must be added in order of
+ * number.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class SnapshotHistory {
+    private final EntitySnapshot[] snapshots;
+
+    /** @param capacity the number of snapshots kept */
+    public SnapshotHistory(int capacity) {
+        snapshots = new EntitySnapshot[capacity];
+    }
+
+    /** stores the given snapshot, replacing the oldest snapshot if the history is full */
+    public synchronized void add(EntitySnapshot snapshot) {
+        snapshots[Math.floorMod(snapshot.number, snapshots.length)] = snapshot;
+    }
+
+    /**
+     * @param number the number of a snapshot
+     * @return the snapshot with the given number, or null if it is not in this history
+     */
+    public synchronized EntitySnapshot get(int number) {
+        if (number == EntitySnapshot.NONE) return null;
+        EntitySnapshot snapshot = snapshots[Math.floorMod(number, snapshots.length)];
+        return (snapshot != null && snapshot.number == number) ? snapshot : null;
+    }
+
+    /** removes all snapshots */
+    public synchronized void clear() {
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = null;
+        }
+    }
+}
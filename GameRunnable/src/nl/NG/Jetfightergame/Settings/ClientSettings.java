@@ -28,6 +28,13 @@ public final class ClientSettings {
     public static int TARGET_FPS = 60;
     // rendering is delayed by RENDER_DELAY seconds to smooth out rendering and prevent extrapolation
     public static float RENDER_DELAY = 1f / ServerSettings.TARGET_TPS;
+    // when adaptive, the delay starts at RENDER_DELAY and follows the percentile of entity states that should arrive in
+    // time, changing at most RENDER_DELAY_SLEW_RATE seconds per second
+    public static boolean ADAPTIVE_RENDER_DELAY = true;
+    public static int RENDER_DELAY_WINDOW = 128;
+    public static float RENDER_DELAY_PERCENTILE = 0.95f;
+    public static float RENDER_DELAY_MAX = 0.5f;
+    public static float RENDER_DELAY_SLEW_RATE = 0.1f;
     public static float FOV = (float) Math.toRadians(60);
     // absolute size of frustum
     public static float Z_NEAR = 0.05f;
@@ -47,6 +54,27 @@ public final class ClientSettings {
     public static float PITCH_MODIFIER = 0.05f;
     public static float ROLL_MODIFIER = 0.05f;
     public static int CONNECTION_SEND_FREQUENCY = ServerSettings.TARGET_TPS;
+    /** the room of a server with several games that is joined */
+    public static int SERVER_ROOM = 0;
+    /** seconds without datagrams of the server after which controls are sent on the stream again */
+    public static float DATAGRAM_TIMEOUT = 1f;
+
+    /** prediction of the own jet; a snapshot that differs more than the tolerances from the prediction corrects it */
+    public static boolean PREDICT_OWN_JET = true;
+    public static int PREDICTION_HISTORY_SIZE = 64;
+    public static float PREDICTION_POSITION_TOLERANCE = 0.1f;
+    public static float PREDICTION_ROTATION_TOLERANCE = 0.02f;
+
+    /**
+     * clock synchronisation; of every window of round trips only the shortest is used, and the game time is moved at
+     * most CLOCK_SLEW_RATE seconds per second towards the server time, unless it differs more than the threshold
+     */
+    public static boolean CLOCK_SYNC = true;
+    public static int CLOCK_HISTORY_SIZE = 128;
+    public static int CLOCK_FILTER_WINDOW = 8;
+    public static int CLOCK_DRIFT_POINTS = 64;
+    public static float CLOCK_SLEW_RATE = 0.05f;
+    public static float CLOCK_STEP_THRESHOLD = 0.25f;
 
     /** sound */
     public static float MASTER_GAIN = 0.5f;
@@ -97,6 +125,7 @@ public final class ClientSettings {
             gen.writeStringField("JET_TYPE", JET_TYPE.toString());
             gen.writeBooleanField("LOGGER_PRINT_CALLSITES", Logger.doPrintCallsites);
             gen.writeNumberField("NUMBER_OF_NPCS", ServerSettings.NOF_FUN);
+            gen.writeBooleanField("SPATIAL_HASH_COLLISION", ServerSettings.SPATIAL_HASH_COLLISION);
             gen.writeArrayFieldStart("JET_COLOR");
             {
                 gen.writeNumber((int) (JET_COLOR.red * 255));
@@ -171,6 +200,9 @@ public final class ClientSettings {
                 case "NUMBER_OF_NPCS":
                     ServerSettings.NOF_FUN = result.intValue();
                     break;
+                case "SPATIAL_HASH_COLLISION":
+                    ServerSettings.SPATIAL_HASH_COLLISION = result.booleanValue();
+                    break;
                 case "JET_COLOR":
                     assert result.isArray();
                     Iterator<JsonNode> values = result.elements();
@@ -1,6 +1,7 @@
 package nl.NG.Jetfightergame.Settings;
 
 import nl.NG.Jetfightergame.Assets.Entities.FighterJets.JetBasic;
+import nl.NG.Jetfightergame.ServerNetwork.SendQueue;
 
 
 /**
@@ -13,6 +14,8 @@ import nl.NG.Jetfightergame.Assets.Entities.FighterJets.JetBasic;
 public final class ServerSettings {
     public static boolean DEBUG = false;
     public static boolean SERVER_MAKE_REPLAY = true;
+    /** find collision pairs with a spatial hash instead of sorted endpoints */
+    public static boolean SPATIAL_HASH_COLLISION = false;
 
     /** general settings */
     public static final String GAME_NAME = "Jet Fighter Game"; // laaaame
@@ -20,6 +23,29 @@ public final class ServerSettings {
 
     /** connection settings */
     public static int SERVER_PORT = 3039;
+    /** initial size in bytes of the send and receive buffers of each connection, which grow when necessary */
+    public static int CONNECTION_BUFFER_SIZE = 8192;
+    /** number of threads that update the games of a server besides its first game, which has a thread of its own */
+    public static int ROOM_TICK_THREADS = Runtime.getRuntime().availableProcessors();
+    /** send entity states and controls as datagrams next to the stream, if the other side can receive these */
+    public static boolean USE_DATAGRAMS = true;
+    /** maximum size in bytes of a datagram, below the common MTU. Larger entity state messages are sent on the stream */
+    public static int MAX_DATAGRAM_SIZE = 1400;
+    /** maximum number of bytes waiting to be sent to one player, and what happens when a player falls behind */
+    public static int SEND_QUEUE_CAPACITY = 1 << 20;
+    public static SendQueue.Policy SEND_QUEUE_POLICY = SendQueue.Policy.DROP_STALE_UPDATES;
+    /** send entity states with quantized positions and rotations, if the other side supports this */
+    public static boolean QUANTIZE_ENTITY_STATES = true;
+    /** select the entity states sent to each player by relevance, within a byte budget per tick */
+    public static boolean INTEREST_MANAGEMENT = true;
+    /** leaves room for the headers of the message and the datagram */
+    public static int SNAPSHOT_BYTE_BUDGET = 1200;
+    /** distance at which an entity gains a priority of 1 per tick, relative to the 100 of entities next to a jet */
+    public static float INTEREST_DISTANCE = 300f;
+    /** level of the compression of entities sent together, from 1 (fastest) to 9 (smallest) */
+    public static int SPAWN_COMPRESSION_LEVEL = 6;
+    /** number of sent snapshots kept as possible baseline for delta compression, about two seconds */
+    public static final int SNAPSHOT_HISTORY_SIZE = 2 * TARGET_TPS;
 
     /** collision detection */
     public static final int MAX_COLLISION_ITERATIONS = 100 / TARGET_TPS;
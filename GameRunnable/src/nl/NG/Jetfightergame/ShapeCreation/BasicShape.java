@@ -1,10 +1,14 @@
 package nl.NG.Jetfightergame.ShapeCreation;
 
+import nl.NG.Jetfightergame.EntityGeneral.Hitbox.Collision;
+import nl.NG.Jetfightergame.EntityGeneral.Hitbox.CollisionBuffer;
 import nl.NG.Jetfightergame.Primitives.Plane;
 import nl.NG.Jetfightergame.Primitives.Quad;
 import nl.NG.Jetfightergame.Primitives.Triangle;
 import nl.NG.Jetfightergame.Rendering.MatrixStack.GL2;
 import nl.NG.Jetfightergame.Settings.ServerSettings;
+import nl.NG.Jetfightergame.Tools.DataStructures.AABBTree;
+import nl.NG.Jetfightergame.Tools.Extreme;
 import nl.NG.Jetfightergame.Tools.Logger;
 import nl.NG.Jetfightergame.Tools.Resource;
 import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
@@ -22,9 +26,13 @@ import java.util.stream.Stream;
  */
 @SuppressWarnings("unchecked")
 public class BasicShape implements Shape {
+    /** shapes with fewer planes than this are checked plane by plane */
+    private static final int MIN_PLANES_FOR_TREE = 32;
 
     private List<PosVector> vertices = Collections.EMPTY_LIST;
     private List<Plane> triangles = Collections.EMPTY_LIST;
+    /** hierarchy of the triangles, or null if there are too few triangles */
+    private AABBTree<Plane> planeTree;
     private Mesh mesh;
 
     /** @see ShapeParameters#ShapeParameters(String[]) */
@@ -51,12 +59,14 @@ public class BasicShape implements Shape {
         this.triangles = faces.stream()
                 .map(f -> BasicShape.toPlanes(f, this.vertices, normals))
                 .collect(Collectors.toList());
+        this.planeTree = createTree(triangles);
         this.mesh = (loadMesh && !faces.isEmpty()) ? new Mesh(this.vertices, normals, faces, drawMethod) : null;
     }
 
     private BasicShape(List<Plane> triangles, Mesh mesh) {
         vertices = new ArrayList<>();
         this.triangles = triangles;
+        this.planeTree = createTree(triangles);
         this.mesh = mesh;
 
         for (Plane t : triangles) {
@@ -125,6 +135,49 @@ public class BasicShape implements Shape {
         return shapes;
     }
 
+    private static AABBTree<Plane> createTree(List<Plane> triangles) {
+        if (triangles.size() < MIN_PLANES_FOR_TREE) return null;
+        return new AABBTree<>(triangles, Plane::writeBounds);
+    }
+
+    /**
+     * {@inheritDoc}
+     * For larger shapes, only the planes of which the bounding box overlaps with that of the line are checked.
+     */
+    @Override
+    public Collision getCollision(PosVector linePosition, DirVector direction, PosVector endPoint) {
+        if (planeTree == null || endPoint == null) {
+            return Shape.super.getCollision(linePosition, direction, endPoint);
+        }
+
+        Extreme<Collision> firstCrash = new Extreme<>(false);
+        planeTree.query(
+                Math.min(linePosition.x, endPoint.x), Math.min(linePosition.y, endPoint.y), Math.min(linePosition.z, endPoint.z),
+                Math.max(linePosition.x, endPoint.x), Math.max(linePosition.y, endPoint.y), Math.max(linePosition.z, endPoint.z),
+                plane -> firstCrash.check(plane.getCollisionWith(linePosition, direction, endPoint))
+        );
+        return firstCrash.get();
+    }
+
+    @Override
+    public boolean checkCollision(CollisionBuffer query) {
+        if (planeTree == null) {
+            boolean isHit = false;
+            for (int i = 0; i < triangles.size(); i++) {
+                isHit |= triangles.get(i).checkCollision(query);
+            }
+            return isHit;
+        }
+
+        float previous = query.timeScalar();
+        planeTree.query(
+                Math.min(query.startX, query.endX), Math.min(query.startY, query.endY), Math.min(query.startZ, query.endZ),
+                Math.max(query.startX, query.endX), Math.max(query.startY, query.endY), Math.max(query.startZ, query.endZ),
+                query, Plane::checkCollision
+        );
+        return query.timeScalar() < previous;
+    }
+
     @Override
     public Iterable<? extends Plane> getPlanes() {
         return Collections.unmodifiableList(triangles);
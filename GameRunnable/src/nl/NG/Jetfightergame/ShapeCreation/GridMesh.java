@@ -1,6 +1,7 @@
 package nl.NG.Jetfightergame.ShapeCreation;
 
 import nl.NG.Jetfightergame.EntityGeneral.Hitbox.Collision;
+import nl.NG.Jetfightergame.EntityGeneral.Hitbox.CollisionBuffer;
 import nl.NG.Jetfightergame.Primitives.Plane;
 import nl.NG.Jetfightergame.Primitives.Quad;
 import nl.NG.Jetfightergame.Rendering.MatrixStack.GL2;
@@ -134,6 +135,27 @@ public class GridMesh implements Shape {
         return firstCrash.get();
     }
 
+    @Override
+    public boolean checkCollision(CollisionBuffer query) {
+        float sourceX = (query.startX - minimumTranspose.x()) * normalizingScalar.x();
+        float sourceY = (query.startY - minimumTranspose.y()) * normalizingScalar.y();
+        float destX = (query.endX - minimumTranspose.x()) * normalizingScalar.x();
+        float destY = (query.endY - minimumTranspose.y()) * normalizingScalar.y();
+
+        int leastX = max(0, (int) Math.floor(min(sourceX, destX)) - 1);
+        int mostX = min(xSize, (int) Math.ceil(max(sourceX, destX)) + 1);
+        int leastY = max(0, (int) Math.floor(min(sourceY, destY)) - 1);
+        int mostY = min(ySize, (int) Math.ceil(max(sourceY, destY)) + 1);
+
+        boolean isHit = false;
+        for (int x = leastX; x < mostX; x++) {
+            for (int y = leastY; y < mostY; y++) {
+                isHit |= planeGrid[x][y].checkCollision(query);
+            }
+        }
+        return isHit;
+    }
+
     @Override
     public void render(GL2.Painter lock) {
         graphicalGrid.render(lock);
@@ -1,6 +1,7 @@
 package nl.NG.Jetfightergame.ShapeCreation;
 
 import nl.NG.Jetfightergame.EntityGeneral.Hitbox.Collision;
+import nl.NG.Jetfightergame.EntityGeneral.Hitbox.CollisionBuffer;
 import nl.NG.Jetfightergame.Primitives.Plane;
 import nl.NG.Jetfightergame.Rendering.MatrixStack.Renderable;
 import nl.NG.Jetfightergame.Tools.DataStructures.Pair;
@@ -44,6 +45,21 @@ public interface Shape extends Renderable {
                 .orElse(null);
     }
 
+    /**
+     * checks the line piece of the query against this shape, and stores the first hit in the query if it is earlier
+     * than the hit already stored there. This is the allocation-free equivalent of
+     * {@link #getCollision(PosVector, DirVector, PosVector)}.
+     * @param query a line piece in local space, and the earliest hit found so far
+     * @return true iff the query was updated with a hit on this shape
+     */
+    default boolean checkCollision(CollisionBuffer query) {
+        boolean isHit = false;
+        for (Plane plane : getPlanes()) {
+            isHit |= plane.checkCollision(query);
+        }
+        return isHit;
+    }
+
     /** @see #getPlanes() */
     default Stream<? extends Plane> getPlaneStream() {
         return StreamSupport.stream(getPlanes().spliterator(), false);
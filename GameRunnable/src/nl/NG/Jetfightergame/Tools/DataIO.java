@@ -57,4 +57,123 @@ public class DataIO {
     public static Color4f readColor(DataInput in) throws IOException {
         return new Color4f(in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat());
     }
+
+    /** number of bits of each coordinate of a quantized position */
+    private static final int POSITION_BITS = 21;
+    private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+    /** the value written instead of a quantized position, for positions outside the bounds */
+    private static final long OUT_OF_BOUNDS = -1L;
+    /** number of bits of each of the three smallest components of a quantized quaternion */
+    private static final int ROTATION_BITS = 15;
+    private static final int ROTATION_MASK = (1 << ROTATION_BITS) - 1;
+    private static final float SQRT_2 = (float) Math.sqrt(2);
+
+    /**
+     * writes the given position as three fixed-point numbers relative to the given bounds, using 8 bytes. The error
+     * of each coordinate is at most {@code bound / (2^21 - 1)}. Positions outside the bounds are written in full, using
+     * 20 bytes.
+     * @param bound the largest absolute value of any coordinate of a quantized position
+     */
+    public static void writeQuantizedPosition(DataOutput out, float x, float y, float z, float bound) throws IOException {
+        if (Math.abs(x) > bound || Math.abs(y) > bound || Math.abs(z) > bound) {
+            out.writeLong(OUT_OF_BOUNDS);
+            out.writeFloat(x);
+            out.writeFloat(y);
+            out.writeFloat(z);
+            return;
+        }
+
+        long bits = (toFixedPoint(x, bound) << (2 * POSITION_BITS)) |
+                (toFixedPoint(y, bound) << POSITION_BITS) |
+                toFixedPoint(z, bound);
+        out.writeLong(bits);
+    }
+
+    /** @see #writeQuantizedPosition(DataOutput, float, float, float, float) */
+    public static void writeQuantizedPosition(DataOutput out, Vector3f v, float bound) throws IOException {
+        writeQuantizedPosition(out, v.x, v.y, v.z, bound);
+    }
+
+    /**
+     * reads a position written by {@link #writeQuantizedPosition(DataOutput, float, float, float, float)}
+     * @param bound the bound used when writing
+     * @param dest  the vector to store the result in
+     * @return dest
+     */
+    public static <V extends Vector3f> V readQuantizedPosition(DataInput in, float bound, V dest) throws IOException {
+        long bits = in.readLong();
+        if (bits == OUT_OF_BOUNDS) {
+            dest.set(in.readFloat(), in.readFloat(), in.readFloat());
+
+        } else {
+            dest.set(
+                    fromFixedPoint(bits >>> (2 * POSITION_BITS), bound),
+                    fromFixedPoint(bits >>> POSITION_BITS, bound),
+                    fromFixedPoint(bits, bound)
+            );
+        }
+        return dest;
+    }
+
+    private static long toFixedPoint(float value, float bound) {
+        return Math.round((value + bound) / (2 * bound) * POSITION_MASK);
+    }
+
+    private static float fromFixedPoint(long bits, float bound) {
+        return ((bits & POSITION_MASK) / (float) POSITION_MASK) * (2 * bound) - bound;
+    }
+
+    /**
+     * writes the given unit quaternion in 6 bytes, as the index of its largest component and the three other components
+     * with 15 bits each. The error of each component is less than 1e-4.
+     */
+    public static void writeQuantizedQuaternion(DataOutput out, float x, float y, float z, float w) throws IOException {
+        float[] c = {x, y, z, w};
+        int largest = 0;
+        for (int i = 1; i < 4; i++) {
+            if (Math.abs(c[i]) > Math.abs(c[largest])) largest = i;
+        }
+        // q and -q are the same rotation, so the largest component is made positive
+        float sign = (c[largest] < 0) ? -1 : 1;
+
+        long bits = largest;
+        for (int i = 0; i < 4; i++) {
+            if (i == largest) continue;
+            // the other components are in [-1/sqrt(2), 1/sqrt(2)]
+            float scaled = (sign * c[i] * SQRT_2 + 1) / 2;
+            long value = Math.round(Math.max(0, Math.min(1, scaled)) * ROTATION_MASK);
+            bits = (bits << ROTATION_BITS) | value;
+        }
+
+        out.writeShort((int) (bits >>> 32));
+        out.writeInt((int) bits);
+    }
+
+    /** @see #writeQuantizedQuaternion(DataOutput, float, float, float, float) */
+    public static void writeQuantizedQuaternion(DataOutput out, Quaternionf rot) throws IOException {
+        writeQuantizedQuaternion(out, rot.x, rot.y, rot.z, rot.w);
+    }
+
+    /**
+     * reads a quaternion written by {@link #writeQuantizedQuaternion(DataOutput, float, float, float, float)}
+     * @param dest the quaternion to store the result in
+     * @return dest
+     */
+    public static Quaternionf readQuantizedQuaternion(DataInput in, Quaternionf dest) throws IOException {
+        long bits = ((long) in.readUnsignedShort() << 32) | (in.readInt() & 0xFFFFFFFFL);
+        int largest = (int) (bits >>> (3 * ROTATION_BITS));
+
+        float[] c = new float[4];
+        float sumOfSquares = 0;
+        for (int i = 3; i >= 0; i--) {
+            if (i == largest) continue;
+            float scaled = (bits & ROTATION_MASK) / (float) ROTATION_MASK;
+            c[i] = (scaled * 2 - 1) / SQRT_2;
+            sumOfSquares += c[i] * c[i];
+            bits >>>= ROTATION_BITS;
+        }
+        c[largest] = (float) Math.sqrt(Math.max(0, 1 - sumOfSquares));
+
+        return dest.set(c[0], c[1], c[2], c[3]);
+    }
 }
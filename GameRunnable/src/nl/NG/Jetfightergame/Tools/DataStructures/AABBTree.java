@@ -0,0 +1,173 @@
+package nl.NG.Jetfightergame.Tools.DataStructures;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * an immutable bounding volume hierarchy of axis aligned boxes, meant for items that never move. The tree is built
+ * once, top-down, by splitting the items on the median of the longest axis.
+ * @param <T> the type of the items
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+@SuppressWarnings("unchecked")
+public class AABBTree<T> {
+    /** maximum number of items in one leaf */
+    private static final int LEAF_SIZE = 4;
+
+    private final T[] items;
+    /** bounds of the items, indexed as item * 6: xMin, yMin, zMin, xMax, yMax, zMax */
+    private final float[] itemBounds;
+
+    /** bounds of the nodes, in the same layout as the item bounds */
+    private float[] nodeBounds;
+    /** for inner nodes the index of the left child (the right child is left + 1), for leaves -1 */
+    private int[] nodeChild;
+    /** for leaves, the range of items [start, end) in {@link #items} */
+    private int[] nodeStart;
+    private int[] nodeEnd;
+    private int nOfNodes = 0;
+
+    /**
+     * builds a tree of the given items
+     * @param source the items, which should not move afterwards
+     * @param bounds a function that gives the bounding box of an item
+     */
+    public AABBTree(Collection<? extends T> source, Bounds<? super T> bounds) {
+        int n = source.size();
+        items = (T[]) source.toArray();
+        itemBounds = new float[n * 6];
+        for (int i = 0; i < n; i++) {
+            bounds.write(items[i], itemBounds, i * 6);
+        }
+
+        int maxNodes = Math.max(1, 2 * n);
+        nodeBounds = new float[maxNodes * 6];
+        nodeChild = new int[maxNodes];
+        nodeStart = new int[maxNodes];
+        nodeEnd = new int[maxNodes];
+
+        if (n > 0) {
+            // items are reordered along with their bounds, so every leaf holds a contiguous range
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) order[i] = i;
+            nOfNodes = 1;
+            build(0, order, 0, n);
+
+            Object[] sortedItems = new Object[n];
+            float[] sortedBounds = new float[n * 6];
+            for (int i = 0; i < n; i++) {
+                sortedItems[i] = items[order[i]];
+                System.arraycopy(itemBounds, order[i] * 6, sortedBounds, i * 6, 6);
+            }
+            System.arraycopy(sortedItems, 0, items, 0, n);
+            System.arraycopy(sortedBounds, 0, itemBounds, 0, n * 6);
+        }
+    }
+
+    /** makes node a parent of the items order[start] to order[end - 1] */
+    private void build(int node, Integer[] order, int start, int end) {
+        int b = node * 6;
+        nodeBounds[b] = nodeBounds[b + 1] = nodeBounds[b + 2] = Float.POSITIVE_INFINITY;
+        nodeBounds[b + 3] = nodeBounds[b + 4] = nodeBounds[b + 5] = Float.NEGATIVE_INFINITY;
+        for (int i = start; i < end; i++) {
+            int e = order[i] * 6;
+            for (int k = 0; k < 3; k++) {
+                nodeBounds[b + k] = Math.min(nodeBounds[b + k], itemBounds[e + k]);
+                nodeBounds[b + 3 + k] = Math.max(nodeBounds[b + 3 + k], itemBounds[e + 3 + k]);
+            }
+        }
+
+        if (end - start <= LEAF_SIZE) {
+            nodeChild[node] = -1;
+            nodeStart[node] = start;
+            nodeEnd[node] = end;
+            return;
+        }
+
+        // split on the longest axis
+        float xSize = nodeBounds[b + 3] - nodeBounds[b];
+        float ySize = nodeBounds[b + 4] - nodeBounds[b + 1];
+        float zSize = nodeBounds[b + 5] - nodeBounds[b + 2];
+        int axis = (xSize >= ySize && xSize >= zSize) ? 0 : (ySize >= zSize) ? 1 : 2;
+
+        Arrays.sort(order, start, end, (p, q) -> Float.compare(middle(p, axis), middle(q, axis)));
+        int split = (start + end) / 2;
+
+        int left = nOfNodes;
+        nOfNodes += 2;
+        nodeChild[node] = left;
+        build(left, order, start, split);
+        build(left + 1, order, split, end);
+    }
+
+    private float middle(int item, int axis) {
+        return itemBounds[item * 6 + axis] + itemBounds[item * 6 + 3 + axis];
+    }
+
+    /**
+     * calls the action on every item of which the bounding box overlaps the given box
+     * @param action an action to execute on every item found
+     */
+    public void query(float xMin, float yMin, float zMin, float xMax, float yMax, float zMax, Consumer<? super T> action) {
+        query(xMin, yMin, zMin, xMax, yMax, zMax, action, (item, act) -> act.accept(item));
+    }
+
+    /**
+     * calls the action on every item of which the bounding box overlaps the given box, together with the given
+     * argument. This method does not create any objects, if the action does not.
+     * @param argument the second argument to the action
+     * @param action   an action to execute on every item found
+     */
+    public <A> void query(
+            float xMin, float yMin, float zMin, float xMax, float yMax, float zMax,
+            A argument, BiConsumer<? super T, A> action
+    ) {
+        if (nOfNodes == 0) return;
+        query(0, xMin, yMin, zMin, xMax, yMax, zMax, argument, action);
+    }
+
+    private <A> void query(
+            int node, float xMin, float yMin, float zMin, float xMax, float yMax, float zMax,
+            A argument, BiConsumer<? super T, A> action
+    ) {
+        if (!overlaps(nodeBounds, node * 6, xMin, yMin, zMin, xMax, yMax, zMax)) return;
+
+        int child = nodeChild[node];
+        if (child < 0) {
+            for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+                if (overlaps(itemBounds, i * 6, xMin, yMin, zMin, xMax, yMax, zMax)) {
+                    action.accept(items[i], argument);
+                }
+            }
+
+        } else {
+            query(child, xMin, yMin, zMin, xMax, yMax, zMax, argument, action);
+            query(child + 1, xMin, yMin, zMin, xMax, yMax, zMax, argument, action);
+        }
+    }
+
+    private static boolean overlaps(
+            float[] bounds, int b, float xMin, float yMin, float zMin, float xMax, float yMax, float zMax
+    ) {
+        return bounds[b] <= xMax && bounds[b + 3] >= xMin
+                && bounds[b + 1] <= yMax && bounds[b + 4] >= yMin
+                && bounds[b + 2] <= zMax && bounds[b + 5] >= zMin;
+    }
+
+    /** @return the number of items in this tree */
+    public int size() {
+        return items.length;
+    }
+
+    /** writes the bounding box of an item */
+    public interface Bounds<T> {
+        /**
+         * @param item   the item to describe
+         * @param dest   the array to write the bounds to
+         * @param offset the index where to write xMin, yMin, zMin, xMax, yMax, zMax, in that order
+         */
+        void write(T item, float[] dest, int offset);
+    }
+}
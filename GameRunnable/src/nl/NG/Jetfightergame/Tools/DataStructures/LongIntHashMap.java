@@ -0,0 +1,165 @@
+package nl.NG.Jetfightergame.Tools.DataStructures;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * a map from long keys to int values that stores both in primitive arrays, using open addressing with linear probing.
+ * Absent keys have value 0, and setting the value of a key to 0 removes it. The key {@link Long#MIN_VALUE} is
+ * reserved. This class is not thread-safe.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class LongIntHashMap {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+
+    public LongIntHashMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private int slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /** @return the index of the key, or of the empty slot where it would be placed */
+    private int find(long key) {
+        int i = slotOf(key);
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /** @return the value of the given key, or 0 if it is absent */
+    public int get(long key) {
+        return values[find(key)];
+    }
+
+    /**
+     * sets the value of the key
+     * @param value the new value. If this is 0, the key is removed
+     */
+    public void put(long key, int value) {
+        assert key != EMPTY;
+        int i = find(key);
+
+        if (keys[i] != EMPTY) {
+            if (value == 0) removeAt(i);
+            else values[i] = value;
+
+        } else if (value != 0) {
+            keys[i] = key;
+            values[i] = value;
+            if (++size > keys.length / 2) grow();
+        }
+    }
+
+    /**
+     * adds the given amount to the value of the key
+     * @return the new value of the key. If this is 0, the key is removed
+     */
+    public int add(long key, int delta) {
+        int i = find(key);
+        int value = values[i] + delta;
+        if (keys[i] != EMPTY) {
+            if (value == 0) removeAt(i);
+            else values[i] = value;
+
+        } else {
+            put(key, value);
+        }
+        return value;
+    }
+
+    /** @return the value the key had before it was removed, or 0 if it was absent */
+    public int remove(long key) {
+        int i = find(key);
+        if (keys[i] == EMPTY) return 0;
+
+        int value = values[i];
+        removeAt(i);
+        return value;
+    }
+
+    /**
+     * removes all keys that satisfy the given predicate. The predicate may be called more than once for the same key
+     */
+    public void removeIf(LongPredicate predicate) {
+        int i = 0;
+        while (i < keys.length) {
+            // removing shifts a later key into slot i, so i is only advanced if nothing was removed
+            if (keys[i] != EMPTY && predicate.test(keys[i])) {
+                removeAt(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /** executes the action on every key in this map, in no particular order */
+    public void forEachKey(LongConsumer action) {
+        for (long key : keys) {
+            if (key != EMPTY) action.accept(key);
+        }
+    }
+
+    /** @return the number of keys in this map */
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /** removes slot i by shifting back the keys of the same cluster that would no longer be found */
+    private void removeAt(int i) {
+        int hole = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            long key = keys[j];
+            if (key == EMPTY) break;
+
+            // the key may move to the hole if its home slot does not lie between the hole and j
+            int home = slotOf(key);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = key;
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = EMPTY;
+        values[hole] = 0;
+        size--;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int j = find(oldKeys[i]);
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+}
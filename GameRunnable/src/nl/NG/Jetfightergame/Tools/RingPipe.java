@@ -0,0 +1,208 @@
+package nl.NG.Jetfightergame.Tools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A pipe that supplies an InputStream and an OutputStream, for exactly one reading thread and one writing thread. The
+ * bytes are passed through a ring buffer without locks: each side only changes its own position in the buffer, and
+ * arrays are copied at once. A side that has to wait for the other first spins for a short while, and then parks until
+ * the other side wakes it. Written bytes become readable when the OutputStream is flushed, or when the buffer is full.
+ * <p>
+ * Like {@link StreamPipe}, reading an array blocks until the whole array is read, or until the OutputStream is closed.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class RingPipe {
+    /**
+     * the number of times a waiting side checks the other side before parking. On one processor, spinning only delays
+     * the other side
+     */
+    private static final int SPIN_COUNT = (Runtime.getRuntime().availableProcessors() > 1) ? 200 : 0;
+
+    private final byte[] buffer;
+    private final int mask;
+    private final RingInput source = new RingInput();
+    private final RingOutput sink = new RingOutput();
+
+    /** the number of bytes ever made readable, only changed by the writing thread */
+    private final AtomicLong head = new AtomicLong();
+    /** the number of bytes ever read, only changed by the reading thread */
+    private final AtomicLong tail = new AtomicLong();
+    private volatile Thread waitingReader = null;
+    private volatile Thread waitingWriter = null;
+    private volatile boolean isOutputClosed = false;
+    private volatile boolean isInputClosed = false;
+
+    /**
+     * @param bufferSize the minimum number of bytes the pipe can hold, which is rounded up to a power of two
+     */
+    public RingPipe(int bufferSize) {
+        if (bufferSize < 1) throw new IllegalArgumentException("buffer must have size at least 1, got " + bufferSize);
+
+        int capacity = 1;
+        while (capacity < bufferSize) capacity <<= 1;
+
+        buffer = new byte[capacity];
+        mask = capacity - 1;
+    }
+
+    public InputStream getInputStream() {
+        return source;
+    }
+
+    public OutputStream getOutputStream() {
+        return sink;
+    }
+
+    private static void wake(Thread waiting) {
+        if (waiting != null) LockSupport.unpark(waiting);
+    }
+
+    private class RingInput extends InputStream {
+        private final byte[] single = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            int n = read(single, 0, 1);
+            return (n < 0) ? -1 : (single[0] & 0xFF);
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            Objects.checkFromIndexSize(offset, length, bytes.length);
+            if (length == 0) return 0;
+
+            long position = tail.get();
+            int done = 0;
+
+            while (done < length) {
+                long available = awaitBytes(position);
+                if (available == 0) break; // closed
+
+                int n = (int) Math.min(available, length - done);
+                int start = (int) position & mask;
+                int firstPart = Math.min(n, buffer.length - start);
+                System.arraycopy(buffer, start, bytes, offset + done, firstPart);
+                System.arraycopy(buffer, 0, bytes, offset + done + firstPart, n - firstPart);
+
+                position += n;
+                done += n;
+                tail.set(position);
+                wake(waitingWriter);
+            }
+
+            return (done == 0) ? -1 : done;
+        }
+
+        /** @return the number of readable bytes, which is 0 only if the OutputStream is closed */
+        private long awaitBytes(long position) throws IOException {
+            int spins = 0;
+            while (true) {
+                long available = head.get() - position;
+                if (available > 0) return available;
+                // the last bytes are published before closing
+                if (isOutputClosed) return head.get() - position;
+
+                if (spins < SPIN_COUNT) {
+                    spins++;
+                    Thread.onSpinWait();
+                    continue;
+                }
+
+                waitingReader = Thread.currentThread();
+                if (head.get() == position && !isOutputClosed) LockSupport.park(this);
+                waitingReader = null;
+
+                if (Thread.interrupted()) throw new IOException("Interrupted while waiting for input");
+            }
+        }
+
+        @Override
+        public int available() {
+            return (int) (head.get() - tail.get());
+        }
+
+        @Override
+        public void close() {
+            isInputClosed = true;
+            wake(waitingWriter);
+        }
+    }
+
+    private class RingOutput extends OutputStream {
+        /** the number of bytes ever written, of which those after head are not yet readable */
+        private long position = 0;
+        private long published = 0;
+
+        @Override
+        public void write(int b) throws IOException {
+            awaitSpace();
+            buffer[(int) position & mask] = (byte) b;
+            position++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            Objects.checkFromIndexSize(offset, length, bytes.length);
+
+            int done = 0;
+            while (done < length) {
+                long space = awaitSpace();
+
+                int n = (int) Math.min(space, length - done);
+                int start = (int) position & mask;
+                int firstPart = Math.min(n, buffer.length - start);
+                System.arraycopy(bytes, offset + done, buffer, start, firstPart);
+                System.arraycopy(bytes, offset + done + firstPart, buffer, 0, n - firstPart);
+
+                position += n;
+                done += n;
+            }
+        }
+
+        /** @return the number of bytes that can be written, which is at least 1 */
+        private long awaitSpace() throws IOException {
+            int spins = 0;
+            while (true) {
+                if (isOutputClosed || isInputClosed) throw new IOException("Tried writing on closed channel");
+
+                long space = buffer.length - (position - tail.get());
+                if (space > 0) return space;
+                // the reader can only make room when it can read the buffer
+                flush();
+
+                if (spins < SPIN_COUNT) {
+                    spins++;
+                    Thread.onSpinWait();
+                    continue;
+                }
+
+                waitingWriter = Thread.currentThread();
+                if (position - tail.get() == buffer.length && !isInputClosed) LockSupport.park(this);
+                waitingWriter = null;
+
+                if (Thread.interrupted()) throw new IOException("Interrupted while waiting to write");
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (position == published) return;
+            published = position;
+            head.set(position);
+            wake(waitingReader);
+        }
+
+        @Override
+        public void close() {
+            if (isOutputClosed) return;
+            flush();
+            isOutputClosed = true;
+            wake(waitingReader);
+        }
+    }
+}
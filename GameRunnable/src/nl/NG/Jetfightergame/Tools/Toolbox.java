@@ -12,8 +12,9 @@ import org.joml.Quaternionf;
 
 import java.util.Arrays;
 import java.util.Random;
-import java.util.function.Function;
+import java.util.function.BiConsumer;
 import java.util.function.IntConsumer;
+import java.util.function.ToDoubleFunction;
 
 import static org.lwjgl.openal.AL10.*;
 import static org.lwjgl.opengl.GL11.*;
@@ -168,10 +169,24 @@ public final class Toolbox {
      * @param map   maps a moving source to the value to be sorted upon
      * @modifies items
      */
-    public static <Type> void insertionSort(Type[] items, Function<Type, Float> map) {
+    public static <Type> void insertionSort(Type[] items, ToDoubleFunction<Type> map) {
+        insertionSort(items, map, (moving, passed) -> {});
+    }
+
+    /**
+     * performs an incremental insertion-sort on (preferably nearly-sorted) the given array, and reports every exchange
+     * of two items. As the sort is stable, items with equal values are never exchanged.
+     * @param items  the array to sort
+     * @param map    maps a moving source to the value to be sorted upon
+     * @param onSwap is called with (moving, passed) every time item {@code moving} is moved in front of item {@code
+     *               passed}
+     * @modifies items
+     */
+    public static <Type> void insertionSort(Type[] items, ToDoubleFunction<Type> map, BiConsumer<Type, Type> onSwap) {
         // iterate incrementally over the array
         for (int head = 1; head < items.length; head++) {
             Type subject = items[head];
+            double value = map.applyAsDouble(subject);
 
             // decrement for the right position
             int empty = head;
@@ -179,8 +194,9 @@ public final class Toolbox {
             while (empty > 0) {
                 Type target = items[empty - 1];
 
-                if (map.apply(target) > map.apply(subject)) {
+                if (map.applyAsDouble(target) > value) {
                     items[empty] = target;
+                    onSwap.accept(subject, target);
                     empty--;
                 } else break;
             }
@@ -188,6 +204,43 @@ public final class Toolbox {
         }
     }
 
+    /**
+     * performs an incremental insertion-sort on (preferably nearly-sorted) primitive keys, exchanging the items along
+     * with their keys. Every exchange of two items is reported. As the sort is stable, items with equal keys are never
+     * exchanged. This method does not create any objects.
+     * @param keys   the values to be sorted upon
+     * @param items  the items belonging to the keys
+     * @param size   the number of keys to sort, starting from index 0
+     * @param onSwap is called with (moving, passed) every time item {@code moving} is moved in front of item {@code
+     *               passed}
+     * @modifies keys, items
+     */
+    public static void insertionSort(float[] keys, int[] items, int size, SwapListener onSwap) {
+        for (int head = 1; head < size; head++) {
+            float value = keys[head];
+            if (keys[head - 1] <= value) continue;
+
+            int subject = items[head];
+            int empty = head;
+
+            while (empty > 0 && keys[empty - 1] > value) {
+                int target = items[empty - 1];
+                keys[empty] = keys[empty - 1];
+                items[empty] = target;
+                onSwap.onSwap(subject, target);
+                empty--;
+            }
+            keys[empty] = value;
+            items[empty] = subject;
+        }
+    }
+
+    /** a listener to the exchanges of {@link #insertionSort(float[], int[], int, SwapListener)} */
+    public interface SwapListener {
+        /** item {@code moving} has moved in front of item {@code passed} */
+        void onSwap(int moving, int passed);
+    }
+
     /**
      * merges a joining array into this array, and removes {@link TemporalEntity} entities that are overdue as in {@link
      * TemporalEntity#isOverdue()}
@@ -196,7 +249,7 @@ public final class Toolbox {
      * @param map  maps a moving source to the value to be sorted upon
      * @return a sorted array of living entities from both host and join combined.
      */
-    public static <Type> Type[] mergeArrays(Type[] host, Type[] join, Function<Type, Float> map) {
+    public static <Type> Type[] mergeArrays(Type[] host, Type[] join, ToDoubleFunction<Type> map) {
         int hLength = host.length;
         int jLength = join.length;
 
@@ -219,7 +272,7 @@ public final class Toolbox {
                 Type joinItem = join[jIndex];
 
                 // select the smallest
-                if (map.apply(hostItem) < map.apply(joinItem)) {
+                if (map.applyAsDouble(hostItem) < map.applyAsDouble(joinItem)) {
                     results[i] = hostItem;
                     hIndex++;
 
@@ -285,7 +338,7 @@ public final class Toolbox {
         }
     }
 
-    public static <Type> int binarySearch(Type[] array, Function<Type, Float> map, float value) {
+    public static <Type> int binarySearch(Type[] array, ToDoubleFunction<Type> map, float value) {
         int low = 0;
         int high = array.length - 1;
 
@@ -293,7 +346,7 @@ public final class Toolbox {
             int mid = (low + high) >>> 1;
             Type e = array[mid];
 
-            float cmp = map.apply(e);
+            double cmp = map.applyAsDouble(e);
             if (cmp < value)
                 low = mid + 1;
             else if (cmp > value)
@@ -0,0 +1,50 @@
+package nl.NG.Jetfightergame.Engine;
+
+import nl.NG.Jetfightergame.EntityGeneral.Touchable;
+import nl.NG.Jetfightergame.GameState.ProximityDetection;
+
+import java.util.Collection;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * the adjacency matrix approach that {@link ProximityDetection} used before its incremental sweep-and-prune, kept as
+ * reference for tests and benchmarks.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public abstract class AdjacencyMatrixDetection extends ProximityDetection {
+
+    public AdjacencyMatrixDetection(Collection<Touchable> staticEntities) {
+        super(staticEntities);
+    }
+
+    /**
+     * iterating over the sorted array, increase the value of all pairs that have coinciding intervals. This is the
+     * non-incremental equivalent of the overlap tracking of {@link ProximityDetection}
+     * @param adjacencyMatrix the matrix where the pairs are marked using entity id's
+     * @param sortedArray     an array sorted increasingly on the lower mapping
+     * @param lower           a mapping that maps to the lower value of the interval of the entity
+     * @param upper           a mapping that maps an entity to its upper interval
+     */
+    protected void checkOverlap(int[][] adjacencyMatrix, CollisionEntity[] sortedArray, ToDoubleFunction<CollisionEntity> lower, ToDoubleFunction<CollisionEntity> upper) {
+        // INVARIANT:
+        // all items i where i.lower < source.lower, are already added to the matrix
+
+        int nOfItems = sortedArray.length;
+        for (int i = 0; i < (nOfItems - 1); i++) {
+            CollisionEntity subject = sortedArray[i];
+
+            // increases the checks count of every source with index less than i, with position less than the given minimum
+            int j = i + 1;
+            CollisionEntity target = sortedArray[j++];
+
+            // while the lowerbound of target is less than the upperbound of our subject
+            while (lower.applyAsDouble(target) <= upper.applyAsDouble(subject)) {
+                adjacencyMatrix[subject.id][target.id]++;
+                adjacencyMatrix[target.id][subject.id]++;
+
+                if (j == nOfItems) break;
+                target = sortedArray[j++];
+            }
+        }
+    }
+}
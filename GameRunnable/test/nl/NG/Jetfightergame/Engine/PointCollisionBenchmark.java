@@ -0,0 +1,138 @@
+package nl.NG.Jetfightergame.Engine;
+
+import nl.NG.Jetfightergame.EntityGeneral.Hitbox.Collision;
+import nl.NG.Jetfightergame.EntityGeneral.MovingEntity;
+import nl.NG.Jetfightergame.EntityGeneral.StaticEntity;
+import nl.NG.Jetfightergame.EntityGeneral.Touchable;
+import nl.NG.Jetfightergame.Rendering.Material;
+import nl.NG.Jetfightergame.Rendering.MatrixStack.ShadowMatrix;
+import nl.NG.Jetfightergame.ShapeCreation.CustomShape;
+import nl.NG.Jetfightergame.ShapeCreation.Shape;
+import nl.NG.Jetfightergame.Tools.Logger;
+import nl.NG.Jetfightergame.Tools.Vectors.Color4f;
+import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * compares the allocation-free point collision of {@link MovingEntity#getPointCollision(MovingEntity, Touchable,
+ * PosVector, PosVector, float)} with the object-based approach it replaced. This is not part of the regular test suite,
+ * as it only prints its results.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class PointCollisionBenchmark {
+    private static final int WARMUP_CHECKS = 200_000;
+    private static final int MEASURED_CHECKS = 500_000;
+    private static final int ROUNDS = 6;
+    private static final int GRID_SIZE = 40;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    public void benchmarkTerrain() {
+        run("terrain", new StaticEntity(terrain(), Material.ROUGH, Color4f.WHITE));
+    }
+
+    @Test
+    public void benchmarkSmallShape() {
+        CustomShape frame = new CustomShape();
+        frame.addQuad(new PosVector(1, 1, 0), new PosVector(-1, 1, 0));
+        frame.addQuad(new PosVector(1, 1, 2), new PosVector(-1, 1, 2));
+        run("quads", new StaticEntity(frame.wrapUp(false), Material.ROUGH, Color4f.WHITE, new PosVector(GRID_SIZE / 2f, GRID_SIZE / 2f, 0), 10));
+    }
+
+    private void run(String name, Touchable target) {
+        Random random = new Random(1);
+        PosVector[] starts = new PosVector[1024];
+        PosVector[] ends = new PosVector[starts.length];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = new PosVector(random.nextFloat() * GRID_SIZE, random.nextFloat() * GRID_SIZE, random.nextFloat() * 6);
+            ends[i] = starts[i].add(new DirVector(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, -random.nextFloat()).scale(4), new PosVector());
+        }
+
+        int nOfHits = 0;
+        for (int i = 0; i < WARMUP_CHECKS; i++) {
+            int k = i % starts.length;
+            Collision a = MovingEntity.getPointCollision(null, target, starts[k], ends[k], 0);
+            Collision b = objectPointCollision(target, starts[k], ends[k]);
+            assert (a == null) == (b == null);
+            if (a != null) nOfHits++;
+        }
+
+        long threadID = Thread.currentThread().getId();
+        long kernelTime = 0, kernelBytes = 0, objectTime = 0, objectBytes = 0;
+        // alternate between both, such that neither profits from warming up longer
+        for (int round = 0; round < ROUNDS; round++) {
+            long bytesStart = threads.getThreadAllocatedBytes(threadID);
+            long timeStart = System.nanoTime();
+            for (int i = 0; i < MEASURED_CHECKS; i++) {
+                int k = i % starts.length;
+                MovingEntity.getPointCollision(null, target, starts[k], ends[k], 0);
+            }
+            long timeMid = System.nanoTime();
+            long bytesMid = threads.getThreadAllocatedBytes(threadID);
+            for (int i = 0; i < MEASURED_CHECKS; i++) {
+                int k = i % starts.length;
+                objectPointCollision(target, starts[k], ends[k]);
+            }
+            long timeEnd = System.nanoTime();
+            long bytesEnd = threads.getThreadAllocatedBytes(threadID);
+
+            kernelTime += timeMid - timeStart;
+            kernelBytes += bytesMid - bytesStart;
+            objectTime += timeEnd - timeMid;
+            objectBytes += bytesEnd - bytesMid;
+        }
+
+        double nOfChecks = (double) MEASURED_CHECKS * ROUNDS;
+        Logger.INFO.printf("%8s (%d%% hits) | kernel: %6.1f ns, %6.1f bytes per check | objects: %6.1f ns, %6.1f bytes per check",
+                name, nOfHits * 100 / WARMUP_CHECKS,
+                kernelTime / nOfChecks, kernelBytes / nOfChecks, objectTime / nOfChecks, objectBytes / nOfChecks
+        );
+    }
+
+    /** the point collision as it was before the collision kernel, for a static target */
+    private static Collision objectPointCollision(Touchable target, PosVector startPosition, PosVector endPosition) {
+        Collision[] firstHit = new Collision[1];
+        PosVector startPosCopy = new PosVector(startPosition);
+
+        final ShadowMatrix sm = new ShadowMatrix();
+        final Consumer<Shape> addCollisions = shape -> {
+            PosVector startPoint = sm.mapToLocal(startPosCopy);
+            PosVector endPoint = sm.mapToLocal(endPosition);
+            DirVector direction = startPoint.to(endPoint, new DirVector());
+
+            Collision newCrash = shape.getCollision(startPoint, direction, endPoint);
+            if (newCrash != null) {
+                newCrash.convertToGlobal(sm, null);
+                Collision min = firstHit[0];
+                if (min == null || newCrash.compareTo(min) < 0) {
+                    firstHit[0] = newCrash;
+                }
+            }
+        };
+
+        target.toLocalSpace(sm, () -> target.create(sm, addCollisions));
+        return firstHit[0];
+    }
+
+    private static Shape terrain() {
+        Random random = new Random(2);
+        CustomShape frame = new CustomShape();
+        DirVector up = new DirVector(0, 0, 1);
+        for (int x = 0; x < GRID_SIZE; x++) {
+            for (int y = 0; y < GRID_SIZE; y++) {
+                PosVector a = new PosVector(x, y, random.nextFloat());
+                PosVector b = new PosVector(x + 1, y, random.nextFloat());
+                PosVector c = new PosVector(x + 1, y + 1, random.nextFloat());
+                frame.addTriangle(a, b, c, up);
+            }
+        }
+        return frame.wrapUp(false);
+    }
+}
@@ -0,0 +1,128 @@
+package nl.NG.Jetfightergame.Engine;
+
+import nl.NG.Jetfightergame.Assets.Entities.FallingCube;
+import nl.NG.Jetfightergame.EntityGeneral.MovingEntity;
+import nl.NG.Jetfightergame.EntityGeneral.Touchable;
+import nl.NG.Jetfightergame.GameState.ProximityDetection;
+import nl.NG.Jetfightergame.Rendering.Material;
+import nl.NG.Jetfightergame.Tools.DataStructures.PairList;
+import nl.NG.Jetfightergame.Tools.Logger;
+import nl.NG.Jetfightergame.Tools.Toolbox;
+import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+import org.joml.Quaternionf;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * compares the incremental sweep-and-prune of {@link ProximityDetection} with the adjacency matrix approach it
+ * replaced. This is not part of the regular test suite, as it takes a while and only prints its results.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+@SuppressWarnings("unchecked")
+public class ProximityDetectionBenchmark extends AdjacencyMatrixDetection {
+    private static final int WARMUP_TICKS = 10;
+    private static final int MEASURED_TICKS = 40;
+    /** average distance between two entities */
+    private static final float SPACING = 5f;
+
+    private final StaticTimer timer = new StaticTimer(20);
+    private final List<BenchCube> cubes = new ArrayList<>();
+
+    public ProximityDetectionBenchmark() {
+        super(Collections.EMPTY_LIST);
+    }
+
+    @Test
+    public void benchmark100() {
+        run(100);
+    }
+
+    @Test
+    public void benchmark1000() {
+        run(1000);
+    }
+
+    @Test
+    public void benchmark5000() {
+        run(5000);
+    }
+
+    private void run(int nOfEntities) {
+        Random random = new Random(nOfEntities);
+        float worldSize = (float) Math.cbrt(nOfEntities) * SPACING;
+        for (int i = 0; i < nOfEntities; i++) {
+            PosVector pos = new PosVector(random.nextFloat(), random.nextFloat(), random.nextFloat()).scale(worldSize);
+            DirVector vel = new DirVector(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+            cubes.add(new BenchCube(i, pos, vel.scale(20), timer));
+        }
+        addEntities(cubes);
+
+        long incremental = 0;
+        long matrix = 0;
+        int pairCount = 0;
+        for (int tick = 0; tick < WARMUP_TICKS + MEASURED_TICKS; tick++) {
+            timer.updateGameTime();
+
+            long start = System.nanoTime();
+            preUpdateEntities(e -> DirVector.zeroVector());
+            pairCount = getIntersectingPairs().size();
+            long mid = System.nanoTime();
+            matrixPairs();
+            long end = System.nanoTime();
+
+            updateEntities(timer.time());
+
+            if (tick >= WARMUP_TICKS) {
+                incremental += mid - start;
+                matrix += end - mid;
+            }
+        }
+
+        Logger.INFO.printf("%5d entities, %4d pairs | incremental: %8.3f ms/tick | matrix: %8.3f ms/tick",
+                nOfEntities, pairCount, incremental * 1E-6 / MEASURED_TICKS, matrix * 1E-6 / MEASURED_TICKS
+        );
+    }
+
+    /** the pair detection as it was before the incremental approach, including the entity update */
+    private PairList<Touchable, MovingEntity> matrixPairs() {
+        int nOfEntities = cubes.size();
+        CollisionEntity[] entities = new CollisionEntity[nOfEntities];
+        for (int i = 0; i < nOfEntities; i++) {
+            BenchCube cube = cubes.get(i);
+            cube.preUpdate(DirVector.zeroVector());
+            entities[i] = new CollisionEntity(cube);
+            entities[i].setId(i);
+        }
+
+        CollisionEntity[] xLowerSorted = entities.clone();
+        CollisionEntity[] yLowerSorted = entities.clone();
+        CollisionEntity[] zLowerSorted = entities.clone();
+        Toolbox.insertionSort(xLowerSorted, CollisionEntity::xLower);
+        Toolbox.insertionSort(yLowerSorted, CollisionEntity::yLower);
+        Toolbox.insertionSort(zLowerSorted, CollisionEntity::zLower);
+
+        int[][] adjacencyMatrix = new int[nOfEntities][nOfEntities];
+        checkOverlap(adjacencyMatrix, xLowerSorted, CollisionEntity::xLower, CollisionEntity::xUpper);
+        checkOverlap(adjacencyMatrix, yLowerSorted, CollisionEntity::yLower, CollisionEntity::yUpper);
+        checkOverlap(adjacencyMatrix, zLowerSorted, CollisionEntity::zLower, CollisionEntity::zUpper);
+
+        PairList<Touchable, MovingEntity> pairs = new PairList<>(nOfEntities);
+        for (int i = 0; i < nOfEntities; i++) {
+            for (int j = 0; j < i; j++) {
+                if (adjacencyMatrix[i][j] >= 3) pairs.add(entities[j].entity, cubes.get(i));
+            }
+        }
+        return pairs;
+    }
+
+    private static class BenchCube extends FallingCube {
+        BenchCube(int id, PosVector position, DirVector velocity, GameTimer timer) {
+            super(id, Material.SILVER, 100f, 1f, position, velocity, new Quaternionf(), timer, null);
+        }
+    }
+}
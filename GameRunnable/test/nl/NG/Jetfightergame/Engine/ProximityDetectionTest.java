@@ -1,25 +1,37 @@
 package nl.NG.Jetfightergame.Engine;
 
 import nl.NG.Jetfightergame.Assets.Entities.FallingCube;
-import nl.NG.Jetfightergame.GameState.ProximityDetection;
+import nl.NG.Jetfightergame.Assets.Shapes.GeneralShapes;
+import nl.NG.Jetfightergame.EntityGeneral.MovingEntity;
+import nl.NG.Jetfightergame.EntityGeneral.Touchable;
+import nl.NG.Jetfightergame.Tools.DataStructures.AABBTree;
 import nl.NG.Jetfightergame.Tools.DataStructures.Pair;
+import nl.NG.Jetfightergame.Tools.DataStructures.PairList;
 import nl.NG.Jetfightergame.Tools.Logger;
 import nl.NG.Jetfightergame.Tools.Toolbox;
+import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
 import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+import org.joml.Quaternionf;
+import org.junit.Assert;
+import org.junit.BeforeClass;
 import org.junit.Test;
 
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.*;
 
 /**
  * @author Geert van Ieperen created on 18-3-2018.
  */
 @SuppressWarnings("unchecked")
-public class ProximityDetectionTest extends ProximityDetection {
+public class ProximityDetectionTest extends AdjacencyMatrixDetection {
     public ProximityDetectionTest() {
         super(Collections.EMPTY_LIST);
     }
 
+    @BeforeClass
+    public static void initShapes() {
+        GeneralShapes.init(false);
+    }
+
     @Test
     public void testInsertionSort() {
         int id = 1;
@@ -28,6 +40,17 @@ public class ProximityDetectionTest extends ProximityDetection {
         Logger.DEBUG.print(Arrays.asList(nums));
     }
 
+    @Test
+    public void testRayTraceNearest() {
+        FallingCube near = new FallingCube(1, new PosVector(10, 0, 0));
+        FallingCube far = new FallingCube(2, new PosVector(20, 0, 0));
+        addEntities(Arrays.asList(far, near));
+        preUpdateEntities(e -> DirVector.zeroVector());
+
+        PosVector hit = rayTrace(new PosVector(0, 0, 0), new PosVector(40, 0, 0));
+        Assert.assertTrue("hit at " + hit, hit.x < 15);
+    }
+
     @Test
     public void testCheckOverlapOneAxis() {
 
@@ -92,6 +115,141 @@ public class ProximityDetectionTest extends ProximityDetection {
         assert matrix [3][2] == 3: "[3][2] => " + matrix[3][2];
     }
 
+    @Test
+    public void testIncrementalPairsMatchMatrix() {
+        Random random = new Random(42);
+        List<FallingCube> cubes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            cubes.add(new FallingCube(i, randomPosition(random)));
+        }
+        addEntities(cubes);
+
+        for (int tick = 0; tick < 20; tick++) {
+            preUpdateEntities(e -> DirVector.zeroVector());
+            Assert.assertEquals("tick " + tick, matrixPairs(cubes), asIdPairs(getIntersectingPairs()));
+
+            for (FallingCube cube : cubes) {
+                PosVector next = cube.getExpectedMiddle().add(randomPosition(random).scale(0.1f), new PosVector());
+                cube.set(next, DirVector.zeroVector(), new Quaternionf(), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testPairsWithRemovedEntities() {
+        Random random = new Random(13);
+        List<FallingCube> cubes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            cubes.add(new FallingCube(i, randomPosition(random)));
+        }
+        addEntities(cubes);
+        int nextId = cubes.size();
+
+        for (int tick = 0; tick < 20; tick++) {
+            // removed proxies are reused by the new entities
+            for (int i = 0; i < 3; i++) {
+                removeEntity(cubes.remove(random.nextInt(cubes.size())));
+                FallingCube cube = new FallingCube(nextId++, randomPosition(random));
+                addEntity(cube);
+                cubes.add(cube);
+            }
+
+            preUpdateEntities(e -> DirVector.zeroVector());
+            Assert.assertEquals("tick " + tick, matrixPairs(cubes), asIdPairs(getIntersectingPairs()));
+
+            for (FallingCube cube : cubes) {
+                PosVector next = cube.getExpectedMiddle().add(randomPosition(random).scale(0.1f), new PosVector());
+                cube.set(next, DirVector.zeroVector(), new Quaternionf(), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testStaticTreeQuery() {
+        Random random = new Random(7);
+        List<Touchable> cubes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            cubes.add(new FallingCube(i, randomPosition(random)));
+        }
+        AABBTree<Touchable> tree = new AABBTree<>(cubes, (cube, dest, offset) -> {
+            PosVector mid = cube.getExpectedMiddle();
+            float r = cube.getRange();
+            dest[offset] = mid.x - r;
+            dest[offset + 1] = mid.y - r;
+            dest[offset + 2] = mid.z - r;
+            dest[offset + 3] = mid.x + r;
+            dest[offset + 4] = mid.y + r;
+            dest[offset + 5] = mid.z + r;
+        });
+
+        for (int i = 0; i < 50; i++) {
+            PosVector min = randomPosition(random);
+            PosVector max = min.add(randomPosition(random).scale(0.3f), new PosVector());
+
+            Set<Touchable> expected = new HashSet<>();
+            for (Touchable cube : cubes) {
+                PosVector mid = cube.getExpectedMiddle();
+                float r = cube.getRange();
+                if (mid.x + r < min.x || mid.x - r > max.x) continue;
+                if (mid.y + r < min.y || mid.y - r > max.y) continue;
+                if (mid.z + r < min.z || mid.z - r > max.z) continue;
+                expected.add(cube);
+            }
+
+            List<Touchable> found = new ArrayList<>();
+            tree.query(min.x, min.y, min.z, max.x, max.y, max.z, found::add);
+            Assert.assertEquals(expected.size(), found.size());
+            Assert.assertEquals(expected, new HashSet<>(found));
+        }
+    }
+
+    private static PosVector randomPosition(Random random) {
+        return new PosVector(random.nextFloat() * 20, random.nextFloat() * 20, random.nextFloat() * 20);
+    }
+
+    /** computes the intersecting pairs using the non-incremental adjacency matrix */
+    private Set<Long> matrixPairs(List<FallingCube> cubes) {
+        CollisionEntity[] entities = new CollisionEntity[cubes.size()];
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = new CollisionEntity(cubes.get(i));
+            entities[i].setId(i);
+        }
+
+        CollisionEntity[] xLowerSorted = entities.clone();
+        CollisionEntity[] yLowerSorted = entities.clone();
+        CollisionEntity[] zLowerSorted = entities.clone();
+        Toolbox.insertionSort(xLowerSorted, CollisionEntity::xLower);
+        Toolbox.insertionSort(yLowerSorted, CollisionEntity::yLower);
+        Toolbox.insertionSort(zLowerSorted, CollisionEntity::zLower);
+
+        int[][] matrix = new int[entities.length][entities.length];
+        checkOverlap(matrix, xLowerSorted, CollisionEntity::xLower, CollisionEntity::xUpper);
+        checkOverlap(matrix, yLowerSorted, CollisionEntity::yLower, CollisionEntity::yUpper);
+        checkOverlap(matrix, zLowerSorted, CollisionEntity::zLower, CollisionEntity::zUpper);
+
+        Set<Long> pairs = new HashSet<>();
+        for (int i = 0; i < entities.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (matrix[i][j] >= 3) pairs.add(idPair(cubes.get(i), cubes.get(j)));
+            }
+        }
+        return pairs;
+    }
+
+    private static Set<Long> asIdPairs(PairList<Touchable, MovingEntity> pairs) {
+        Set<Long> result = new HashSet<>();
+        for (int i = 0; i < pairs.size(); i++) {
+            result.add(idPair((MovingEntity) pairs.left(i), pairs.right(i)));
+        }
+        return result;
+    }
+
+    private static long idPair(MovingEntity a, MovingEntity b) {
+        int low = Math.min(a.idNumber(), b.idNumber());
+        int high = Math.max(a.idNumber(), b.idNumber());
+        return ((long) high << 32) | low;
+    }
+
     private class TestEntity extends CollisionEntity {
         public TestEntity(float zPos, int id) {
             super(new FallingCube(id, new PosVector(0, 0, zPos)));
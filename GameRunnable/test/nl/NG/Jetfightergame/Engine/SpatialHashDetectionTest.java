@@ -0,0 +1,102 @@
+package nl.NG.Jetfightergame.Engine;
+
+import nl.NG.Jetfightergame.Assets.Entities.FallingCube;
+import nl.NG.Jetfightergame.EntityGeneral.MovingEntity;
+import nl.NG.Jetfightergame.EntityGeneral.Touchable;
+import nl.NG.Jetfightergame.GameState.SpatialHashDetection;
+import nl.NG.Jetfightergame.Rendering.Material;
+import nl.NG.Jetfightergame.Tools.DataStructures.PairList;
+import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+import org.joml.Quaternionf;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class SpatialHashDetectionTest extends SpatialHashDetection {
+    private static final float WORLD_SIZE = 60f;
+    private static final List<Touchable> STATICS = new ArrayList<>();
+
+    static {
+        Random random = new Random(1);
+        for (int i = 0; i < 40; i++) {
+            STATICS.add(new FallingCube(1000 + i, randomPosition(random)));
+        }
+        STATICS.add(new LargeCube(2000, randomPosition(random)));
+    }
+
+    public SpatialHashDetectionTest() {
+        super(STATICS);
+    }
+
+    @Test
+    public void testPairsMatchBruteForce() {
+        Random random = new Random(42);
+        List<FallingCube> cubes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            cubes.add(new FallingCube(i, randomPosition(random)));
+        }
+        cubes.add(new LargeCube(500, randomPosition(random)));
+        cubes.add(new LargeCube(501, randomPosition(random)));
+        addEntities(cubes);
+
+        for (int tick = 0; tick < 20; tick++) {
+            preUpdateEntities(e -> DirVector.zeroVector());
+
+            PairList<Touchable, MovingEntity> pairs = getIntersectingPairs();
+            Set<Long> found = new HashSet<>();
+            for (int i = 0; i < pairs.size(); i++) {
+                boolean isNew = found.add(idPair((MovingEntity) pairs.left(i), pairs.right(i)));
+                Assert.assertTrue("duplicate pair on tick " + tick, isNew);
+            }
+            Assert.assertEquals("tick " + tick, bruteForcePairs(cubes), found);
+
+            for (FallingCube cube : cubes) {
+                PosVector next = cube.getExpectedMiddle().add(randomPosition(random).scale(0.05f), new PosVector());
+                cube.set(next, DirVector.zeroVector(), new Quaternionf(), 0);
+            }
+        }
+    }
+
+    private static PosVector randomPosition(Random random) {
+        return new PosVector(random.nextFloat(), random.nextFloat(), random.nextFloat()).scale(WORLD_SIZE);
+    }
+
+    private static Set<Long> bruteForcePairs(List<FallingCube> cubes) {
+        Set<Long> pairs = new HashSet<>();
+        for (int i = 0; i < cubes.size(); i++) {
+            FallingCube a = cubes.get(i);
+            for (int j = 0; j < i; j++) {
+                if (intersects(a, cubes.get(j))) pairs.add(idPair(a, cubes.get(j)));
+            }
+            for (Touchable stat : STATICS) {
+                if (intersects(a, stat)) pairs.add(idPair(a, (MovingEntity) stat));
+            }
+        }
+        return pairs;
+    }
+
+    private static boolean intersects(Touchable a, Touchable b) {
+        PosVector aMid = a.getExpectedMiddle();
+        PosVector bMid = b.getExpectedMiddle();
+        float reach = a.getRange() + b.getRange();
+        return Math.abs(aMid.x - bMid.x) <= reach && Math.abs(aMid.y - bMid.y) <= reach && Math.abs(aMid.z - bMid.z) <= reach;
+    }
+
+    private static long idPair(MovingEntity a, MovingEntity b) {
+        int low = Math.min(a.idNumber(), b.idNumber());
+        int high = Math.max(a.idNumber(), b.idNumber());
+        return ((long) high << 32) | low;
+    }
+
+    /** a cube large enough to not be hashed */
+    private static class LargeCube extends FallingCube {
+        LargeCube(int id, PosVector position) {
+            super(id, Material.SILVER, 100f, 20f, position, DirVector.zeroVector(), new Quaternionf(), new StaticTimer(20), null);
+        }
+    }
+}
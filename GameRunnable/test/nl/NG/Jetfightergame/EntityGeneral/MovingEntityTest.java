@@ -0,0 +1,93 @@
+package nl.NG.Jetfightergame.EntityGeneral;
+
+import nl.NG.Jetfightergame.Assets.Entities.FallingCube;
+import nl.NG.Jetfightergame.Assets.Shapes.GeneralShapes;
+import nl.NG.Jetfightergame.Engine.GameTimer;
+import nl.NG.Jetfightergame.Engine.StaticTimer;
+import nl.NG.Jetfightergame.EntityGeneral.Hitbox.Collision;
+import nl.NG.Jetfightergame.Rendering.Material;
+import nl.NG.Jetfightergame.Rendering.MatrixStack.ShadowMatrix;
+import nl.NG.Jetfightergame.ShapeCreation.Shape;
+import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+import org.joml.Quaternionf;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class MovingEntityTest {
+
+    @BeforeClass
+    public static void loadShapes() {
+        GeneralShapes.init(false);
+    }
+
+    /**
+     * the cached hitpoints and the swept-sphere rejection of checkCollisionWith must give the same result as checking
+     * the points of the shapes directly
+     */
+    @Test
+    public void testCollisionMatchesShapePoints() {
+        Random random = new Random(5);
+        StaticTimer timer = new StaticTimer(20);
+        timer.updateGameTime();
+        float deltaTime = timer.getGameTime().difference();
+        int nOfHits = 0;
+
+        for (int i = 0; i < 2000; i++) {
+            TestCube a = new TestCube(2 * i, randomVector(random, 3).toPosVector(), randomVector(random, 40), timer);
+            TestCube b = new TestCube(2 * i + 1, randomVector(random, 3).toPosVector(), randomVector(random, 40), timer);
+            a.preUpdate(DirVector.zeroVector());
+            b.preUpdate(DirVector.zeroVector());
+
+            boolean expected = a.pointCollision(b, deltaTime);
+            boolean actual = a.checkCollisionWith(b, deltaTime) != null;
+            assertEquals("pair " + i, expected, actual);
+            if (expected) nOfHits++;
+        }
+
+        // both hits and misses are tested
+        assertTrue(nOfHits > 100);
+        assertTrue(nOfHits < 1900);
+    }
+
+    private static DirVector randomVector(Random random, float scale) {
+        return new DirVector(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f).scale(2 * scale);
+    }
+
+    private static class TestCube extends FallingCube {
+        TestCube(int id, PosVector position, DirVector velocity, GameTimer timer) {
+            super(id, Material.SILVER, 100f, 1f, position, velocity, new Quaternionf().rotateXYZ(id, 2 * id, 3 * id), timer, null);
+        }
+
+        /** @return whether any hitpoint collides with other, without early rejection */
+        boolean pointCollision(Touchable other, float deltaTime) {
+            List<PosVector> start = worldPoints(false);
+            List<PosVector> end = worldPoints(true);
+            for (int i = 0; i < start.size(); i++) {
+                Collision c = getPointCollision(this, other, start.get(i), end.get(i), deltaTime);
+                if (c != null) return true;
+            }
+            return false;
+        }
+
+        /** collects the points of this cube in world space, by walking the shapes */
+        private List<PosVector> worldPoints(boolean extrapolate) {
+            ShadowMatrix sm = new ShadowMatrix();
+            List<PosVector> points = new ArrayList<>();
+            Consumer<Shape> collect = shape -> shape.getPointStream().map(sm::getPosition).forEach(points::add);
+            toLocalSpace(sm, () -> create(sm, collect), extrapolate);
+            return points;
+        }
+    }
+}
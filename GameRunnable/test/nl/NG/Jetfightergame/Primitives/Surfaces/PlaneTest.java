@@ -1,6 +1,7 @@
 package nl.NG.Jetfightergame.Primitives.Surfaces;
 
 import nl.NG.Jetfightergame.EntityGeneral.Hitbox.Collision;
+import nl.NG.Jetfightergame.EntityGeneral.Hitbox.CollisionBuffer;
 import nl.NG.Jetfightergame.Primitives.Plane;
 import nl.NG.Jetfightergame.Tools.Toolbox;
 import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
@@ -30,6 +31,13 @@ public class PlaneTest {
 
         Collision box = instance.getCollisionWith(first, dir, second);
 
+        // the allocation-free variant must agree
+        CollisionBuffer query = new CollisionBuffer();
+        query.setLine(first, second);
+        boolean isHit = instance.checkCollision(query);
+        assert isHit == (box != null) : "checkCollision gave " + isHit + " where getCollisionWith gave " + box;
+        assert !isHit || Toolbox.almostZero(query.timeScalar() - box.timeScalar);
+
         PosVector result = new PosVector();
 
         if (box != null) {
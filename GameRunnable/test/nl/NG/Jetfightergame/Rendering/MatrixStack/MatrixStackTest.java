@@ -71,6 +71,46 @@ public class MatrixStackTest {
         assert answer.toString().equals(target.toString()) : "mapping " + target + " forth and back gives " + answer;
     }
 
+    @Test
+    public void SM_InverseAfterPopTest() {
+        ShadowMatrix sm = new ShadowMatrix();
+        sm.translate(2, 2, 2);
+        final PosVector target = new PosVector(3, 3, 3);
+        PosVector before = sm.mapToLocal(target);
+
+        // grows the stack several times
+        for (int i = 0; i < 20; i++) {
+            sm.pushMatrix();
+            sm.rotate(new DirVector(1, 0, 0), (float) Math.toRadians(90));
+            sm.scale(2);
+            sm.mapToLocal(target);
+        }
+        for (int i = 0; i < 20; i++) {
+            sm.popMatrix();
+        }
+
+        PosVector after = sm.mapToLocal(target, new PosVector());
+        assert after.toString().equals(before.toString()) : "mapping " + target + " gave " + before + " before pushing and " + after + " after popping";
+    }
+
+    @Test
+    public void SM_InverseInheritedTest() {
+        ShadowMatrix sm = new ShadowMatrix();
+        sm.translate(2, 2, 2);
+        final PosVector target = new PosVector(3, 3, 3);
+        PosVector parent = sm.mapToLocal(target);
+
+        sm.pushMatrix();
+        PosVector child = sm.mapToLocal(target);
+        assert child.toString().equals(parent.toString()) : "unchanged level maps " + target + " to " + child + " instead of " + parent;
+
+        sm.scale(2);
+        sm.pushMatrix();
+        sm.popAll();
+        PosVector reset = sm.mapToLocal(target);
+        assert reset.toString().equals(target.toString()) : "after popAll, " + target + " is mapped to " + reset;
+    }
+
     @Test
     public void MatrixGetPositionTest() throws IOException {
         new GLFWWindow("test");
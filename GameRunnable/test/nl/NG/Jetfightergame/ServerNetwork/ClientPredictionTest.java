@@ -0,0 +1,342 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import nl.NG.Jetfightergame.Assets.Entities.FighterJets.AbstractJet;
+import nl.NG.Jetfightergame.Assets.Shapes.GeneralShapes;
+import nl.NG.Jetfightergame.Controllers.Controller;
+import nl.NG.Jetfightergame.Engine.GameTimer;
+import nl.NG.Jetfightergame.EntityGeneral.Factory.EntityFactory;
+import nl.NG.Jetfightergame.EntityGeneral.Powerups.PowerupEntity;
+import nl.NG.Jetfightergame.EntityGeneral.Powerups.PowerupType;
+import nl.NG.Jetfightergame.GameState.SpawnReceiver;
+import nl.NG.Jetfightergame.Rendering.Material;
+import nl.NG.Jetfightergame.Rendering.MatrixStack.MatrixStack;
+import nl.NG.Jetfightergame.Rendering.Particles.ParticleCloud;
+import nl.NG.Jetfightergame.ShapeCreation.Shape;
+import nl.NG.Jetfightergame.Sound.AudioSource;
+import nl.NG.Jetfightergame.Sound.MovingAudioSource;
+import nl.NG.Jetfightergame.Tools.Vectors.Color4f;
+import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+import org.joml.Quaternionf;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static nl.NG.Jetfightergame.Assets.Entities.FighterJets.AbstractJet.PHYSICS_STATE_SIZE;
+import static org.junit.Assert.*;
+
+/**
+ * predicts a jet with fixed controls, and reconciles the prediction with snapshots that either match the prediction or
+ * not
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class ClientPredictionTest {
+    private static final int JET_ID = 3;
+    private static final int CAPACITY = 8;
+    private static final float DELTA_TIME = 0.05f;
+    private static final float START_TIME = 10f;
+    private static final float EPSILON = 1e-3f;
+    private static final DirVector NO_FORCE = DirVector.zeroVector();
+    private static final Controller CONTROLS = new FixedControls(1f, 0.3f, 0.2f, 0.1f);
+
+    private GameTimer timer;
+    private TestJet jet;
+    private ClientPrediction prediction;
+    /** per sequence number, the state of the jet after the prediction of that number */
+    private float[][] predicted;
+
+    @BeforeClass
+    public static void initShapes() {
+        GeneralShapes.init(false);
+    }
+
+    private void setUp(boolean isHeadless) {
+        timer = new GameTimer(START_TIME);
+        timer.pause();
+        jet = new TestJet(timer, new Deposit(timer, isHeadless));
+        prediction = new ClientPrediction(jet, CAPACITY, 0.1f, 0.02f);
+    }
+
+    /** predicts the given number of ticks, and remembers the resulting states */
+    private void predict(int nOfTicks) {
+        predicted = new float[nOfTicks + 1][PHYSICS_STATE_SIZE];
+        for (int n = 1; n <= nOfTicks; n++) {
+            timer.set(START_TIME + n * DELTA_TIME);
+            assertEquals(n, prediction.predict(CONTROLS, NO_FORCE, DELTA_TIME, timer.time()));
+            jet.getPhysicsState(predicted[n], 0);
+        }
+    }
+
+    /** a snapshot with the state predicted for the given sequence number, moved by the given offset */
+    private EntitySnapshot snapshotOf(int sequence, DirVector offset) {
+        float[] state = predicted[sequence];
+        PosVector position = new PosVector(state[0], state[1], state[2]).add(offset, new PosVector());
+        Quaternionf rotation = new Quaternionf(state[3], state[4], state[5], state[6]);
+
+        EntitySnapshot snapshot = new EntitySnapshot(sequence, START_TIME + sequence * DELTA_TIME, 1);
+        snapshot.add(JET_ID, position, rotation);
+        return snapshot;
+    }
+
+    private void assertState(PosVector expected, float[] actual) {
+        assertEquals(expected.x, actual[0], EPSILON);
+        assertEquals(expected.y, actual[1], EPSILON);
+        assertEquals(expected.z, actual[2], EPSILON);
+    }
+
+    private float[] currentState() {
+        float[] state = new float[PHYSICS_STATE_SIZE];
+        jet.getPhysicsState(state, 0);
+        return state;
+    }
+
+    @Test
+    public void testMatchIsNotCorrected() {
+        setUp(true);
+        predict(6);
+
+        assertTrue(prediction.isPredicting());
+        assertFalse(prediction.reconcile(snapshotOf(3, DirVector.zeroVector()), 3, NO_FORCE, timer.time()));
+        assertEquals(0, prediction.nOfCorrections());
+        assertArrayEquals(predicted[6], currentState(), 0);
+    }
+
+    @Test
+    public void testDivergenceIsReplayed() {
+        setUp(true);
+        predict(6);
+
+        // the movement does not depend on the position, thus the replay ends moved by the same offset
+        DirVector offset = new DirVector(5, -2, 1);
+        assertTrue(prediction.reconcile(snapshotOf(3, offset), 3, NO_FORCE, timer.time()));
+        assertEquals(1, prediction.nOfCorrections());
+
+        float[] last = predicted[6];
+        PosVector expected = new PosVector(last[0], last[1], last[2]).add(offset, new PosVector());
+        assertState(expected, currentState());
+
+        // the replayed predictions are the new reference
+        assertFalse(prediction.reconcile(snapshotOf(6, offset), 6, NO_FORCE, timer.time()));
+        assertEquals(1, prediction.nOfCorrections());
+    }
+
+    @Test
+    public void testReset() {
+        setUp(true);
+        predict(6);
+
+        prediction.reset();
+        assertFalse(prediction.isPredicting());
+        assertFalse(prediction.reconcile(snapshotOf(3, new DirVector(5, 0, 0)), 3, NO_FORCE, timer.time()));
+        assertEquals(0, prediction.nOfCorrections());
+        assertArrayEquals(predicted[6], currentState(), 0);
+
+        // predictions after the reset are corrected again
+        timer.set(START_TIME + 7 * DELTA_TIME);
+        assertEquals(7, prediction.predict(CONTROLS, NO_FORCE, DELTA_TIME, timer.time()));
+        assertTrue(prediction.isPredicting());
+    }
+
+    @Test
+    public void testAcknowledgementOutsideHistory() {
+        setUp(true);
+        predict(3 * CAPACITY);
+        float[] last = currentState();
+
+        // these controls are forgotten, and can not be compared
+        int forgotten = 2 * CAPACITY;
+        assertFalse(prediction.reconcile(snapshotOf(forgotten, new DirVector(5, 0, 0)), forgotten, NO_FORCE, timer.time()));
+        // these controls were never sent
+        int future = 3 * CAPACITY + 1;
+        EntitySnapshot snapshot = snapshotOf(3 * CAPACITY, new DirVector(5, 0, 0));
+        assertFalse(prediction.reconcile(snapshot, future, NO_FORCE, timer.time()));
+
+        assertEquals(0, prediction.nOfCorrections());
+        assertArrayEquals(last, currentState(), 0);
+
+        // the oldest remembered controls can still be corrected
+        int oldest = 3 * CAPACITY - CAPACITY + 1;
+        assertTrue(prediction.reconcile(snapshotOf(oldest, new DirVector(5, 0, 0)), oldest, NO_FORCE, timer.time()));
+    }
+
+    @Test
+    public void testRenderedWithoutDelay() {
+        setUp(false);
+        predict(6);
+        timer.updateRenderTime();
+        assertTrue(timer.getRenderDelay() > 0);
+
+        // the jet is drawn on its last prediction, not on the state of one render delay ago
+        float[] last = predicted[6];
+        assertState(jet.getPosition(), last);
+    }
+
+    @Test
+    public void testRenderedWithDelayAfterReset() {
+        setUp(false);
+        predict(6);
+        prediction.reset();
+        timer.updateRenderTime();
+
+        // the states that follow are of the server, and thus behind the game time
+        float[] last = predicted[6];
+        assertTrue(jet.getPosition().distance(last[0], last[1], last[2]) > EPSILON);
+
+        timer.set(START_TIME + 7 * DELTA_TIME);
+        prediction.predict(CONTROLS, NO_FORCE, DELTA_TIME, timer.time());
+        jet.getPhysicsState(last, 0);
+        timer.updateRenderTime();
+        assertState(jet.getPosition(), last);
+    }
+
+    /** a jet without shape or sound */
+    private static class TestJet extends AbstractJet {
+        TestJet(GameTimer timer, SpawnReceiver deposit) {
+            super(
+                    JET_ID, PosVector.zeroVector(), new Quaternionf(), Material.SILVER, 40f, 0.4f, 1500f, 3f,
+                    2f, 3f, 3f, 0.7f, timer, 0.5f, 0.7f, deposit, null, Color4f.WHITE
+            );
+        }
+
+        @Override
+        public void create(MatrixStack ms, Consumer<Shape> action) {
+        }
+
+        @Override
+        protected void updateShape(float deltaTime) {
+        }
+
+        @Override
+        public EntityFactory getFactory() {
+            return null;
+        }
+
+        @Override
+        public PosVector getPilotEyePosition() {
+            return getPosition();
+        }
+
+        @Override
+        public float getRange() {
+            return 1;
+        }
+
+        @Override
+        public PosVector getExpectedMiddle() {
+            return new PosVector(extraPosition);
+        }
+
+        @Override
+        protected MovingAudioSource getBoosterSound() {
+            return null;
+        }
+    }
+
+    private static class FixedControls implements Controller {
+        private final float throttle, pitch, yaw, roll;
+
+        FixedControls(float throttle, float pitch, float yaw, float roll) {
+            this.throttle = throttle;
+            this.pitch = pitch;
+            this.yaw = yaw;
+            this.roll = roll;
+        }
+
+        @Override
+        public void update() {
+        }
+
+        @Override
+        public float throttle() {
+            return throttle;
+        }
+
+        @Override
+        public float pitch() {
+            return pitch;
+        }
+
+        @Override
+        public float yaw() {
+            return yaw;
+        }
+
+        @Override
+        public float roll() {
+            return roll;
+        }
+
+        @Override
+        public boolean primaryFire() {
+            return false;
+        }
+
+        @Override
+        public boolean secondaryFire() {
+            return false;
+        }
+
+        @Override
+        public boolean isActiveController() {
+            return true;
+        }
+    }
+
+    /** receives nothing, with or without interpolation */
+    private static class Deposit implements SpawnReceiver {
+        private final GameTimer timer;
+        private final boolean isHeadless;
+
+        Deposit(GameTimer timer, boolean isHeadless) {
+            this.timer = timer;
+            this.isHeadless = isHeadless;
+        }
+
+        @Override
+        public void add(EntityFactory entityFactory) {
+        }
+
+        @Override
+        public void add(ParticleCloud particles) {
+        }
+
+        @Override
+        public void add(AudioSource source) {
+        }
+
+        @Override
+        public GameTimer getTimer() {
+            return timer;
+        }
+
+        @Override
+        public void addExplosion(
+                PosVector position, DirVector direction, Color4f color1, Color4f color2, float power, int density,
+                float lingerTime, float particleSize
+        ) {
+        }
+
+        @Override
+        public void powerupCollect(PowerupEntity powerup, float collectionTime, boolean isCollected) {
+        }
+
+        @Override
+        public void playerPowerupState(AbstractJet jet, PowerupType newType) {
+        }
+
+        @Override
+        public void addGravitySource(Supplier<PosVector> position, float magnitude, float duration) {
+        }
+
+        @Override
+        public void boosterColorChange(AbstractJet jet, Color4f color1, Color4f color2, float duration) {
+        }
+
+        @Override
+        public boolean isHeadless() {
+            return isHeadless;
+        }
+    }
+}
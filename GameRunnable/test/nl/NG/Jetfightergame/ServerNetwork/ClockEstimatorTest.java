@@ -0,0 +1,108 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * simulates a server with a clock that is offset from and runs faster than the local clock, connected by a link with
+ * jitter and occasional latency spikes.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class ClockEstimatorTest {
+    private static final double SERVER_OFFSET = 12.5;
+    private static final double SKEW = 2E-4;
+    private static final double BASE_DELAY = 0.020;
+    private static final double JITTER = 0.010;
+    private static final double SPIKE = 0.300;
+    private static final double SEND_INTERVAL = 1.0 / 30;
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void testOffsetAndDrift() {
+        ClockEstimator clock = new ClockEstimator(128, 8, 64);
+        double end = simulate(clock, 60, 0);
+
+        assertTrue(clock.hasEstimate());
+        assertEquals(serverTime(end), clock.serverTime(end), 0.005);
+        assertEquals(SKEW, clock.drift(), 1E-4);
+    }
+
+    @Test
+    public void testSpikesIgnored() {
+        ClockEstimator clock = new ClockEstimator(128, 8, 64);
+        double end = simulate(clock, 60, 0.1);
+
+        // the spikes would cause errors in the order of SPIKE / 2
+        assertEquals(serverTime(end), clock.serverTime(end), 0.005);
+    }
+
+    @Test
+    public void testFirstSample() {
+        ClockEstimator clock = new ClockEstimator(128, 8, 64);
+        assertFalse(clock.hasEstimate());
+
+        clock.sent(1, 1.0);
+        // server received at 1.01 local, held the message 0.02 and replied at 1.03 local
+        assertTrue(clock.received(1, 1.04, (float) serverTime(1.03), 0.02f));
+
+        assertTrue(clock.hasEstimate());
+        assertEquals(serverTime(1.04), clock.serverTime(1.04), 1E-3);
+        assertEquals(0.02, clock.roundTrip(), 1E-6);
+    }
+
+    @Test
+    public void testUnknownIgnored() {
+        ClockEstimator clock = new ClockEstimator(4, 1, 1);
+        for (int i = 1; i <= 5; i++) {
+            clock.sent(i, i);
+        }
+
+        // sequence 1 is overwritten by 5
+        assertFalse(clock.received(1, 6, 0, 0));
+        assertFalse(clock.received(0, 6, 0, 0));
+        assertTrue(clock.received(5, 6, 0, 0));
+
+        clock.reset();
+        assertFalse(clock.hasEstimate());
+        assertFalse(clock.received(4, 6, 0, 0));
+    }
+
+    /**
+     * sends numbered messages for the given time, of which the server acknowledges the last it received in each reply
+     * @return the local time at the end of the simulation
+     */
+    private double simulate(ClockEstimator clock, double duration, double spikeChance) {
+        int sequence = 0;
+        double time = 0;
+
+        while (time < duration) {
+            sequence++;
+            clock.sent(sequence, time);
+
+            double arrival = time + delay(spikeChance);
+            // the server replies at its next tick
+            double hold = random.nextDouble() * SEND_INTERVAL;
+            double reply = arrival + hold;
+            double received = reply + delay(spikeChance);
+
+            clock.received(sequence, received, (float) serverTime(reply), (float) (hold * (1 + SKEW)));
+            time += SEND_INTERVAL;
+        }
+
+        return time;
+    }
+
+    private double delay(double spikeChance) {
+        double delay = BASE_DELAY + random.nextDouble() * JITTER;
+        if (random.nextDouble() < spikeChance) delay += SPIKE;
+        return delay;
+    }
+
+    private static double serverTime(double localTime) {
+        return SERVER_OFFSET + localTime * (1 + SKEW);
+    }
+}
@@ -0,0 +1,81 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import nl.NG.Jetfightergame.Settings.ServerSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class DatagramEndpointTest {
+    private static final int TOKEN = 42;
+
+    private final BlockingQueue<Integer> received = new LinkedBlockingQueue<>();
+    private DatagramEndpoint receiver;
+    private DatagramEndpoint sender;
+    private SocketAddress target;
+
+    @Before
+    public void setUp() throws IOException {
+        receiver = new DatagramEndpoint(0, (token, source, messages) -> {
+            if (token == TOKEN) received.add(messages.readInt());
+        });
+        receiver.listenInThread(true);
+        sender = new DatagramEndpoint(0, (token, source, messages) -> {});
+        target = new InetSocketAddress(InetAddress.getLoopbackAddress(), receiver.getPort());
+    }
+
+    @After
+    public void tearDown() {
+        receiver.close();
+        sender.close();
+    }
+
+    @Test(timeout = 5000)
+    public void testReceive() throws IOException, InterruptedException {
+        assertTrue(send(1, 100));
+        assertEquals(100, (int) received.take());
+        assertTrue(send(2, 200));
+        assertEquals(200, (int) received.take());
+    }
+
+    @Test(timeout = 5000)
+    public void testStaleDropped() throws IOException, InterruptedException {
+        assertTrue(send(5, 500));
+        assertEquals(500, (int) received.take());
+
+        // a datagram that was overtaken by a newer one
+        assertTrue(send(4, 400));
+        assertTrue(send(6, 600));
+        assertEquals(600, (int) received.take());
+        assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, receiver.nOfStale());
+
+        // after forgetting, the sequence may restart
+        receiver.forget(TOKEN);
+        assertTrue(send(1, 100));
+        assertEquals(100, (int) received.take());
+    }
+
+    @Test
+    public void testTooLarge() throws IOException {
+        byte[] message = new byte[ServerSettings.MAX_DATAGRAM_SIZE];
+        assertFalse(sender.send(target, TOKEN, 1, message, message.length));
+    }
+
+    private boolean send(int sequence, int value) throws IOException {
+        byte[] message = {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        return sender.send(target, TOKEN, sequence, message, message.length);
+    }
+}
@@ -0,0 +1,89 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import nl.NG.Jetfightergame.Tools.Logger;
+import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+import org.joml.Quaternionf;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * measures the number of bytes per tick that is sent to one client for the entity states, for a race with a number of
+ * jets, projectiles that live for a short time, and entities that do not move. This is not part of the regular test
+ * suite, as it only prints its results.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class EntitySnapshotBenchmark {
+    private static final int NOF_TICKS = 2000;
+    private static final int NOF_JETS = 8;
+    private static final int NOF_STATIC = 60;
+    private static final int NOF_PROJECTILES = 40;
+    private static final int PROJECTILE_LIFETIME = 60;
+    private static final float DELTA_TIME = 0.05f;
+
+    @Test
+    public void benchmarkBytesPerTick() throws IOException {
+        float bound = EnvironmentClass.ISLAND_MAP.worldBound();
+        Random random = new Random(3);
+
+        int nOfEntities = NOF_JETS + NOF_STATIC + NOF_PROJECTILES;
+        PosVector[] positions = new PosVector[nOfEntities];
+        DirVector[] velocities = new DirVector[nOfEntities];
+        Quaternionf[] rotations = new Quaternionf[nOfEntities];
+        int[] ids = new int[nOfEntities];
+        int nextId = 0;
+
+        for (int i = 0; i < nOfEntities; i++) {
+            positions[i] = new PosVector((random.nextFloat() - 0.5f) * 2000, (random.nextFloat() - 0.5f) * 2000, random.nextFloat() * 200);
+            rotations[i] = new Quaternionf().rotateXYZ(random.nextFloat(), random.nextFloat(), random.nextFloat());
+            // static entities do not move
+            velocities[i] = (i < NOF_JETS || i >= NOF_JETS + NOF_STATIC) ?
+                    new DirVector(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, 0).scale(200) : DirVector.zeroVector();
+            ids[i] = nextId++;
+        }
+
+        SnapshotHistory history = new SnapshotHistory(8);
+        long fullBytes = 0, deltaBytes = 0, quantizedBytes = 0;
+        EntitySnapshot previous = null;
+
+        for (int tick = 0; tick < NOF_TICKS; tick++) {
+            for (int i = 0; i < nOfEntities; i++) {
+                if (velocities[i].isScalable()) {
+                    positions[i].add(velocities[i].scale(DELTA_TIME, new DirVector()));
+                    // turn back near the edge of the map
+                    if (positions[i].length() > 1000) velocities[i].negate();
+                    rotations[i].rotateZ(0.01f);
+                }
+                // replace expired projectiles
+                if (i >= NOF_JETS + NOF_STATIC && (tick + i) % PROJECTILE_LIFETIME == 0) ids[i] = nextId++;
+            }
+
+            EntitySnapshot snapshot = new EntitySnapshot(tick, tick * DELTA_TIME, nOfEntities);
+            for (int i = 0; i < nOfEntities; i++) {
+                snapshot.add(ids[i], positions[i], rotations[i]);
+            }
+            history.add(snapshot);
+
+            // the client acknowledges each snapshot before the next is sent
+            fullBytes += bytesOf(snapshot, null, EntitySnapshot.UNQUANTIZED);
+            deltaBytes += bytesOf(snapshot, previous, EntitySnapshot.UNQUANTIZED);
+            quantizedBytes += bytesOf(snapshot, previous, bound);
+            previous = snapshot;
+        }
+
+        Logger.INFO.printf("%d entities, of which %d static", nOfEntities, NOF_STATIC);
+        Logger.INFO.printf("full snapshots:            %6.1f bytes per tick", fullBytes / (float) NOF_TICKS);
+        Logger.INFO.printf("delta snapshots:           %6.1f bytes per tick", deltaBytes / (float) NOF_TICKS);
+        Logger.INFO.printf("quantized delta snapshots: %6.1f bytes per tick", quantizedBytes / (float) NOF_TICKS);
+    }
+
+    private static int bytesOf(EntitySnapshot snapshot, EntitySnapshot baseline, float bound) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        snapshot.writeDelta(new DataOutputStream(bytes), baseline, bound);
+        return bytes.size();
+    }
+}
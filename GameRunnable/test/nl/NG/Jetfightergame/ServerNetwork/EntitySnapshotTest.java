@@ -0,0 +1,135 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+import org.joml.Quaternionf;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class EntitySnapshotTest {
+    private static final int NOF_ENTITIES = 100;
+    private Random random;
+    private PosVector[] positions;
+    private Quaternionf[] rotations;
+
+    @Before
+    public void setUp() {
+        random = new Random(7);
+        positions = new PosVector[NOF_ENTITIES];
+        rotations = new Quaternionf[NOF_ENTITIES];
+        for (int i = 0; i < NOF_ENTITIES; i++) {
+            positions[i] = new PosVector(random.nextFloat(), random.nextFloat(), random.nextFloat());
+            rotations[i] = new Quaternionf().rotateXYZ(random.nextFloat(), random.nextFloat(), random.nextFloat());
+        }
+    }
+
+    @Test
+    public void testFullRoundTrip() throws IOException {
+        EntitySnapshot snapshot = snapshot(0, 0, NOF_ENTITIES);
+        EntitySnapshot result = read(asInput(snapshot, null), new SnapshotHistory(4));
+        assertEquals(snapshot, result);
+    }
+
+    @Test
+    public void testDeltaRoundTrip() throws IOException {
+        SnapshotHistory sent = new SnapshotHistory(4);
+        SnapshotHistory received = new SnapshotHistory(4);
+        EntitySnapshot baseline = snapshot(0, 0, NOF_ENTITIES);
+        sent.add(baseline);
+        received.add(read(asInput(baseline, null), received));
+
+        for (int n = 1; n < 20; n++) {
+            // move some entities, and let some others appear or disappear
+            for (int k = 0; k < 5; k++) {
+                positions[random.nextInt(NOF_ENTITIES)].add(1, 0, 0);
+                rotations[random.nextInt(NOF_ENTITIES)].rotateX(0.1f);
+            }
+            EntitySnapshot snapshot = snapshot(n, n, NOF_ENTITIES - random.nextInt(10));
+
+            EntitySnapshot acknowledged = sent.get(n - 1 - random.nextInt(3));
+            EntitySnapshot result = read(asInput(snapshot, acknowledged), received);
+            assertEquals(snapshot, result);
+
+            sent.add(snapshot);
+            received.add(result);
+        }
+    }
+
+    @Test
+    public void testUnchangedIsSmaller() throws IOException {
+        EntitySnapshot baseline = snapshot(0, 0, NOF_ENTITIES);
+        positions[3].add(0, 1, 0);
+        EntitySnapshot snapshot = snapshot(1, 1, NOF_ENTITIES);
+
+        int full = bytesOf(snapshot, null);
+        int delta = bytesOf(snapshot, baseline);
+        // header, one id with mask and position, and no removals
+        assertEquals(4 + 4 + 4 + 4 + (4 + 1 + 12) + 4, delta);
+        assertTrue(full > 20 * delta);
+    }
+
+    @Test
+    public void testMissingBaseline() throws IOException {
+        EntitySnapshot baseline = snapshot(0, 0, NOF_ENTITIES);
+        EntitySnapshot snapshot = snapshot(1, 1, NOF_ENTITIES / 2);
+
+        DataInputStream in = asInput(snapshot, baseline);
+        assertNull(read(in, new SnapshotHistory(4)));
+        // the message is consumed entirely
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void testBatchCarriesBound() throws IOException {
+        // a snapshot of the lobby that arrives after the receiver switched to a larger world
+        for (PosVector position : positions) position.scale(400);
+        EntitySnapshot snapshot = snapshot(0, 0, NOF_ENTITIES);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JetFighterProtocol.entityBatchSend(new DataOutputStream(bytes), snapshot, null, EnvironmentClass.LOBBY);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(MessageType.ENTITY_UPDATE_BATCH.ordinal(), in.read());
+        EntitySnapshot result = JetFighterProtocol.entityBatchRead(in, new SnapshotHistory(4));
+
+        assertEquals(snapshot.size(), result.size());
+        float tolerance = EnvironmentClass.LOBBY.worldBound() / (1 << 14);
+        for (int i = 0; i < result.size(); i++) {
+            PosVector expected = snapshot.position(snapshot.indexOf(result.id(i)), new PosVector());
+            PosVector actual = result.position(i, new PosVector());
+            assertEquals(0, expected.distance(actual), tolerance);
+        }
+    }
+
+    /** creates a snapshot of the first n entities, added in a shuffled order */
+    private EntitySnapshot snapshot(int number, float time, int n) {
+        EntitySnapshot snapshot = new EntitySnapshot(number, time, 4);
+        for (int i = 0; i < n; i++) {
+            int id = (i * 37) % n;
+            snapshot.add(id, new PosVector(positions[id]), new Quaternionf(rotations[id]));
+        }
+        return snapshot;
+    }
+
+    private static DataInputStream asInput(EntitySnapshot snapshot, EntitySnapshot baseline) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        snapshot.writeDelta(new DataOutputStream(bytes), baseline, EntitySnapshot.UNQUANTIZED);
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    private static EntitySnapshot read(DataInputStream in, SnapshotHistory history) throws IOException {
+        return EntitySnapshot.readDelta(in, history, EntitySnapshot.UNQUANTIZED);
+    }
+
+    private static int bytesOf(EntitySnapshot snapshot, EntitySnapshot baseline) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        snapshot.writeDelta(new DataOutputStream(bytes), baseline, EntitySnapshot.UNQUANTIZED);
+        return bytes.size();
+    }
+}
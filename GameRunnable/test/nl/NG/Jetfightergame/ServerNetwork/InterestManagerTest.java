@@ -0,0 +1,87 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+import org.joml.Quaternionf;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class InterestManagerTest {
+    private static final int NOF_ENTITIES = 200;
+    private static final int JET_ID = 0;
+    private static final int NEAR_ID = 1;
+    private static final int THREAT_ID = 199;
+    private static final float BOUND = 4096;
+    private static final int BUDGET = 20 * EntitySnapshot.entryBytes(BOUND);
+
+    @Test
+    public void testBudgetAndPriorities() throws IOException {
+        InterestManager interest = new InterestManager(BUDGET, 100);
+        PosVector focus = new PosVector();
+        int[] nOfSends = new int[NOF_ENTITIES];
+        EntitySnapshot previous = null;
+
+        int nOfTicks = 1000;
+        for (int tick = 0; tick < nOfTicks; tick++) {
+            // every entity moves every tick; entity i is at distance 10 * i of the jet
+            EntitySnapshot snapshot = new EntitySnapshot(tick, tick, NOF_ENTITIES);
+            for (int i = 0; i < NOF_ENTITIES; i++) {
+                snapshot.add(i, new PosVector(10 * i, 0.01f * tick, 0), new Quaternionf());
+            }
+
+            // the client acknowledges every snapshot
+            EntitySnapshot baseline = interest.baseline(tick - 1);
+            EntitySnapshot selection = interest.select(snapshot, baseline, focus, JET_ID, id -> id == THREAT_ID, BOUND);
+            assertEquals(previous, baseline);
+
+            // entities that were never sent are not in the selection
+            for (int i = 0; i < selection.size(); i++) {
+                if (!selection.isUnchanged(i, baseline)) nOfSends[selection.id(i)]++;
+            }
+
+            if (baseline != null) {
+                // the header, the removals and one entry more than the budget are the overhead
+                assertTrue(bytesOf(selection, baseline) <= BUDGET + 40);
+            }
+            previous = selection;
+        }
+
+        // the jet itself, the closest entity and the threat are sent every tick
+        assertEquals(nOfTicks, nOfSends[JET_ID]);
+        assertEquals(nOfTicks, nOfSends[NEAR_ID]);
+        assertEquals(nOfTicks, nOfSends[THREAT_ID]);
+        // far entities are sent less often, but are not starved
+        for (int i = 2; i < NOF_ENTITIES - 1; i++) {
+            assertTrue("entity " + i, nOfSends[i] > 0);
+            // twice the distance is a quarter of the relevance
+            if (2 * i < NOF_ENTITIES - 1) assertTrue("entity " + i, nOfSends[2 * i] <= nOfSends[i]);
+        }
+        assertTrue(nOfSends[NOF_ENTITIES - 2] < nOfTicks / 10);
+    }
+
+    @Test
+    public void testNewEntitiesAreSentOnceSelected() {
+        InterestManager interest = new InterestManager(0, 100);
+        EntitySnapshot snapshot = new EntitySnapshot(0, 0, 2);
+        snapshot.add(JET_ID, new PosVector(), new Quaternionf());
+        snapshot.add(5, new PosVector(1000, 0, 0), new Quaternionf());
+
+        // without budget, only the jet is sent, and the other entity is left out
+        EntitySnapshot selection = interest.select(snapshot, null, new PosVector(), JET_ID, id -> false, BOUND);
+        assertEquals(1, selection.size());
+        assertEquals(JET_ID, selection.id(0));
+    }
+
+    private static int bytesOf(EntitySnapshot snapshot, EntitySnapshot baseline) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        snapshot.writeDelta(new DataOutputStream(bytes), baseline, BOUND);
+        return bytes.size();
+    }
+}
@@ -34,6 +34,7 @@ public class JetFighterServerTest {
     private Exception tryConnect(Socket client) {
         try {
             client.connect(new InetSocketAddress(ServerSettings.SERVER_PORT));
+            JetFighterProtocol.roomRequestSend(client.getOutputStream(), JetFighterProtocol.DEFAULT_ROOM);
             ClientConnection cc = new ClientConnection("TheLegend27",
                     client.getOutputStream(), client.getInputStream(), EntityClass.JET_SPITZ, JET_COLOR
             );
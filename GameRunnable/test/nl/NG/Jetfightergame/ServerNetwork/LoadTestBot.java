@@ -0,0 +1,437 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import nl.NG.Jetfightergame.ArtificalIntelligence.RaceAI;
+import nl.NG.Jetfightergame.Assets.Entities.FighterJets.AbstractJet;
+import nl.NG.Jetfightergame.Controllers.Controller;
+import nl.NG.Jetfightergame.Engine.GameTimer;
+import nl.NG.Jetfightergame.EntityGeneral.Factory.EntityClass;
+import nl.NG.Jetfightergame.EntityGeneral.Factory.EntityFactory;
+import nl.NG.Jetfightergame.EntityGeneral.MovingEntity;
+import nl.NG.Jetfightergame.EntityGeneral.Powerups.PowerupEntity;
+import nl.NG.Jetfightergame.EntityGeneral.Powerups.PowerupType;
+import nl.NG.Jetfightergame.GameState.Environment;
+import nl.NG.Jetfightergame.GameState.EnvironmentManager;
+import nl.NG.Jetfightergame.GameState.Player;
+import nl.NG.Jetfightergame.GameState.RaceProgress;
+import nl.NG.Jetfightergame.GameState.SpawnReceiver;
+import nl.NG.Jetfightergame.Rendering.Particles.ParticleCloud;
+import nl.NG.Jetfightergame.ScreenOverlay.HUD.CountDownTimer;
+import nl.NG.Jetfightergame.Settings.ServerSettings;
+import nl.NG.Jetfightergame.Sound.AudioSource;
+import nl.NG.Jetfightergame.Tools.DataStructures.Pair;
+import nl.NG.Jetfightergame.Tools.Logger;
+import nl.NG.Jetfightergame.Tools.Vectors.Color4f;
+import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static nl.NG.Jetfightergame.ServerNetwork.MessageType.*;
+
+/**
+ * a client without window or sound, for measuring the server under load. It follows the protocol like a {@link
+ * ClientConnection}, keeping track of the entities and the race, but discards everything that would only be rendered.
+ * Its controls are those of a {@link RaceAI}, or random controls that change smoothly.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class LoadTestBot implements BlockingListener, SpawnReceiver, Player {
+    private final String name;
+    private final Socket socket;
+    private final CountingInputStream serverIn;
+    private final CountingOutputStream serverOut;
+    private final DataInputStream serverData;
+    private final JetFighterProtocol protocol;
+
+    private final GameTimer gameTimer = new GameTimer();
+    private final RaceProgress raceProgress = new RaceProgress();
+    private final EnvironmentManager game;
+    private final CountDownTimer counter;
+    private final Environment discarded = new Environment.Void();
+    private final SnapshotHistory receivedSnapshots = new SnapshotHistory(ServerSettings.SNAPSHOT_HISTORY_SIZE);
+    private final AbstractJet jet;
+    private final boolean isAdmin;
+    private final Controller controls;
+    private int inputSequence = 0;
+    private volatile boolean isClosed = false;
+
+    /**
+     * connects to the server and receives a jet
+     * @param name   the unique name of this bot
+     * @param socket a socket connected to the server
+     * @param room   the number of the game to join
+     * @param useAI  if true, the bot follows the race. Otherwise its controls are random
+     * @param random the source of the random controls
+     * @throws IOException if the connection could not be established
+     */
+    public LoadTestBot(String name, Socket socket, int room, boolean useAI, Random random) throws IOException {
+        this.name = name;
+        this.socket = socket;
+        this.serverIn = new CountingInputStream(socket.getInputStream());
+        this.serverOut = new CountingOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.serverData = new DataInputStream(serverIn);
+
+        this.game = new EnvironmentManager(null, this, raceProgress, false, false);
+        JetFighterProtocol.roomRequestSend(serverOut, room);
+        this.protocol = new JetFighterProtocol(serverIn, serverOut);
+        protocol.syncTimerTarget(gameTimer);
+        this.counter = new CountDownTimer(0, gameTimer);
+        protocol.worldSwitchRead(game, counter, gameTimer.time(), raceProgress);
+
+        Pair<AbstractJet, Boolean> pair = protocol.playerSpawnRequest(
+                name, EntityClass.JET_SPITZ, new RemoteControlReceiver(), this, game, Color4f.BLUE
+        );
+        this.jet = pair.left;
+        this.isAdmin = pair.right;
+        game.addEntity(jet);
+        // the bot does not use datagrams
+        protocol.datagramOfferRead();
+
+        this.controls = useAI ? new RaceAI(this, raceProgress, game) : new RandomControls(random);
+    }
+
+    @Override
+    public boolean handleMessage() throws IOException {
+        MessageType type;
+        try {
+            type = MessageType.get(serverIn.read());
+        } catch (IOException ex) {
+            if (!isClosed) Logger.ERROR.print(name + ": " + ex.getMessage());
+            return false;
+        }
+
+        switch (type) {
+            case CONNECTION_CLOSE:
+            case SHUTDOWN_GAME:
+                return false;
+
+            case PING:
+                send(PONG);
+                break;
+
+            case TEXT_MESSAGE:
+                protocol.readText();
+                break;
+
+            case SYNC_TIMER:
+                gameTimer.set(protocol.syncTimerRead());
+                break;
+
+            case PAUSE_GAME:
+                gameTimer.pause();
+                break;
+
+            case UNPAUSE_GAME:
+                gameTimer.unPause();
+                break;
+
+            case ENTITY_SPAWN:
+                game.addEntity(protocol.newEntityRead(this, game));
+                break;
+
+            case ENTITY_SPAWN_BATCH:
+                game.addEntities(protocol.newEntitiesRead(this, game));
+                break;
+
+            case ENTITY_UPDATE:
+                protocol.entityUpdateRead(game);
+                break;
+
+            case ENTITY_UPDATE_BATCH:
+                receiveSnapshot();
+                break;
+
+            case INPUT_ACK:
+                JetFighterProtocol.inputAckRead(serverData);
+                type = MessageType.get(serverIn.read());
+                if (type != ENTITY_UPDATE_BATCH) throw new IOException("Expected a snapshot, got " + type);
+                receiveSnapshot();
+                break;
+
+            case ENTITY_REMOVE:
+                MovingEntity entity = protocol.entityRemoveRead(game);
+                game.removeEntity(entity);
+                break;
+
+            case PLAYER_SPAWN:
+                // the jet of the new player may not be in the world before the next update, so it is not tracked
+                serverData.readInt();
+                serverData.readUTF();
+                serverData.readInt();
+                break;
+
+            case RACE_PROGRESS:
+                protocol.raceProgressRead(raceProgress);
+                break;
+
+            case POWERUP_STATE:
+                protocol.powerupUpdateRead(game);
+                break;
+
+            case POWERUP_COLLECT:
+                protocol.powerupCollectRead();
+                break;
+
+            case EXPLOSION_SPAWN:
+                protocol.explosionRead(discarded);
+                break;
+
+            case BOOSTER_COLOR_CHANGE:
+                protocol.readBoosterColor(game);
+                break;
+
+            case WORLD_SWITCH:
+                protocol.worldSwitchRead(game, counter, gameTimer.time(), raceProgress);
+                game.addEntity(jet);
+                break;
+
+            default:
+                throw new IOException(name + " received inappropriate message " + type);
+        }
+
+        return true;
+    }
+
+    private void receiveSnapshot() throws IOException {
+        EntitySnapshot snapshot = JetFighterProtocol.entityBatchRead(serverData, receivedSnapshots);
+        int number = EntitySnapshot.NONE;
+
+        if (snapshot != null) {
+            // like the client, only acknowledge snapshots of which all entities are known
+            if (snapshot.apply(game) > 0) return;
+            receivedSnapshots.add(snapshot);
+            number = snapshot.number;
+        }
+
+        synchronized (serverOut) {
+            serverOut.write(SNAPSHOT_ACK.ordinal());
+            protocol.snapshotAckSend(number);
+            serverOut.flush();
+        }
+    }
+
+    /** updates the world and sends the current controls to the server, like a client does every tick */
+    public void sendControls() throws IOException {
+        gameTimer.updateGameTime();
+        game.updateGameLoop();
+        controls.update();
+
+        synchronized (serverOut) {
+            sendControl(THROTTLE, RemoteControlReceiver.toByte(controls.throttle()));
+            sendControl(PITCH, RemoteControlReceiver.toByte(controls.pitch()));
+            sendControl(YAW, RemoteControlReceiver.toByte(controls.yaw()));
+            sendControl(ROLL, RemoteControlReceiver.toByte(controls.roll()));
+            sendControl(PRIMARY_FIRE, RemoteControlReceiver.toByte(controls.primaryFire()));
+            sendControl(SECONDARY_FIRE, RemoteControlReceiver.toByte(controls.secondaryFire()));
+
+            serverOut.write(INPUT_SEQUENCE.ordinal());
+            protocol.inputSequenceSend(++inputSequence);
+            serverOut.flush();
+        }
+    }
+
+    private void sendControl(MessageType type, byte value) throws IOException {
+        serverOut.write(type.ordinal());
+        protocol.controlSend(value);
+    }
+
+    /** sends a single command, such as {@link MessageType#START_GAME} */
+    public void send(MessageType type) throws IOException {
+        synchronized (serverOut) {
+            serverOut.write(type.ordinal());
+            serverOut.flush();
+        }
+    }
+
+    /** @return whether the server made this bot the host of its game */
+    public boolean isAdmin() {
+        return isAdmin;
+    }
+
+    /** @return the number of bytes received from the server */
+    public long bytesReceived() {
+        return serverIn.count.get();
+    }
+
+    /** @return the number of bytes sent to the server */
+    public long bytesSent() {
+        return serverOut.count.get();
+    }
+
+    public void close() {
+        isClosed = true;
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            Logger.ERROR.print(ex);
+        }
+    }
+
+    @Override
+    public String playerName() {
+        return name;
+    }
+
+    @Override
+    public AbstractJet jet() {
+        return jet;
+    }
+
+    @Override
+    public void add(EntityFactory entityFactory) {
+        // only the server spawns entities
+    }
+
+    @Override
+    public void add(ParticleCloud particles) {
+    }
+
+    @Override
+    public void add(AudioSource source) {
+    }
+
+    @Override
+    public void addExplosion(
+            PosVector position, DirVector direction, Color4f color1, Color4f color2, float power, int density,
+            float lingerTime, float particleSize
+    ) {
+    }
+
+    @Override
+    public void powerupCollect(PowerupEntity powerup, float collectionTime, boolean isCollected) {
+    }
+
+    @Override
+    public void playerPowerupState(AbstractJet jet, PowerupType newType) {
+    }
+
+    @Override
+    public void addGravitySource(Supplier<PosVector> position, float magnitude, float duration) {
+    }
+
+    @Override
+    public void boosterColorChange(AbstractJet jet, Color4f color1, Color4f color2, float duration) {
+    }
+
+    @Override
+    public GameTimer getTimer() {
+        return gameTimer;
+    }
+
+    @Override
+    public boolean isHeadless() {
+        // entities of the bot have no sounds or interpolation
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadTestBot " + name;
+    }
+
+    /** controls that drift randomly between their extremes, and fire now and then */
+    private static class RandomControls implements Controller {
+        private static final float CHANGE = 0.1f;
+        private final Random random;
+        private float throttle, pitch, yaw, roll;
+        private boolean primary, secondary;
+
+        RandomControls(Random random) {
+            this.random = random;
+        }
+
+        @Override
+        public void update() {
+            throttle = step(throttle);
+            pitch = step(pitch);
+            yaw = step(yaw);
+            roll = step(roll);
+            primary = random.nextInt(20) == 0;
+            secondary = random.nextInt(100) == 0;
+        }
+
+        private float step(float value) {
+            return Math.max(-1, Math.min(1, value + (random.nextFloat() - 0.5f) * 2 * CHANGE));
+        }
+
+        @Override
+        public float throttle() {
+            return throttle;
+        }
+
+        @Override
+        public float pitch() {
+            return pitch;
+        }
+
+        @Override
+        public float yaw() {
+            return yaw;
+        }
+
+        @Override
+        public float roll() {
+            return roll;
+        }
+
+        @Override
+        public boolean primaryFire() {
+            return primary;
+        }
+
+        @Override
+        public boolean secondaryFire() {
+            return secondary;
+        }
+
+        @Override
+        public boolean isActiveController() {
+            return false;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        final AtomicLong count = new AtomicLong();
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count.incrementAndGet();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int n = super.read(bytes, offset, length);
+            if (n > 0) count.addAndGet(n);
+            return n;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        final AtomicLong count = new AtomicLong();
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count.addAndGet(length);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+import org.joml.Quaternionf;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class LocalLinkTest {
+    private final List<EntitySnapshot> received = new ArrayList<>();
+    private final List<Integer> acknowledged = new ArrayList<>();
+    private LocalLink link;
+
+    @Before
+    public void setUp() {
+        link = new LocalLink();
+        link.setReceiver((snapshot, input) -> {
+            received.add(snapshot);
+            acknowledged.add(input);
+        });
+    }
+
+    @After
+    public void tearDown() {
+        link.close();
+    }
+
+    @Test
+    public void testByReference() throws IOException {
+        EntitySnapshot snapshot = snapshot(1);
+        link.send(snapshot, 7);
+
+        assertTrue(link.deliver(1));
+        assertSame(snapshot, received.get(0));
+        assertEquals(7, (int) acknowledged.get(0));
+    }
+
+    @Test
+    public void testNewerKept() throws IOException {
+        link.send(snapshot(1), 1);
+        link.send(snapshot(2), 2);
+
+        // the message of snapshot 2 has not been read yet
+        assertTrue(link.deliver(1));
+        assertEquals(1, received.size());
+
+        assertTrue(link.deliver(2));
+        assertEquals(2, received.get(1).number);
+        assertFalse(link.deliver(2));
+    }
+
+    @Test
+    public void testOldestDropped() throws IOException {
+        for (int i = 1; i <= 10; i++) {
+            link.send(snapshot(i), i);
+        }
+
+        // only the last few snapshots are kept
+        assertFalse(link.deliver(1));
+        assertTrue(received.isEmpty());
+
+        assertTrue(link.deliver(10));
+        assertEquals(10, (int) acknowledged.get(0));
+        // the older snapshots are discarded when a newer one is delivered
+        assertFalse(link.deliver(9));
+    }
+
+    @Test
+    public void testClosed() throws IOException {
+        link.send(snapshot(1), 0);
+        link.close();
+        link.send(snapshot(2), 0);
+
+        assertFalse(link.deliver(1));
+        assertFalse(link.deliver(2));
+        assertTrue(received.isEmpty());
+    }
+
+    private static EntitySnapshot snapshot(int number) {
+        EntitySnapshot snapshot = new EntitySnapshot(number, number, 2);
+        // out of order, such that sending must sort it
+        snapshot.add(2, new PosVector(1, 2, 3), new Quaternionf());
+        snapshot.add(1, new PosVector(4, 5, 6), new Quaternionf());
+        return snapshot;
+    }
+}
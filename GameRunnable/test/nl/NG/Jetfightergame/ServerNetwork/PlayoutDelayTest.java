@@ -0,0 +1,82 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class PlayoutDelayTest {
+    private static final float INTERVAL = 0.05f;
+
+    @Test
+    public void testInitial() {
+        PlayoutDelay playout = new PlayoutDelay(16, 0.9f, 0, 1, 0.3f);
+        assertEquals(0.3f, playout.delay(), 0);
+
+        // the first arrival gives no sample
+        playout.arrived(1, 1.01f);
+        assertEquals(0.3f, playout.delay(), 0);
+    }
+
+    @Test
+    public void testSteadyLink() {
+        PlayoutDelay playout = new PlayoutDelay(64, 0.95f, 0, 1, 0.3f);
+        for (int i = 0; i < 100; i++) {
+            float time = i * INTERVAL;
+            playout.arrived(time, time + 0.002f);
+        }
+
+        // the next state arrives one interval after the previous, plus its latency
+        assertEquals(INTERVAL + 0.002f, playout.delay(), 1E-4f);
+    }
+
+    @Test
+    public void testJitteryLink() {
+        PlayoutDelay playout = new PlayoutDelay(128, 0.95f, 0, 1, 0);
+        Random random = new Random(42);
+        float[] arrivals = new float[1000];
+        float latest = Float.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < arrivals.length; i++) {
+            float time = i * INTERVAL;
+            // exponential delays, with an average of 20 ms
+            arrivals[i] = time - 0.02f * (float) Math.log(1 - random.nextDouble());
+        }
+
+        // states are applied in order of arrival
+        Integer[] order = new Integer[arrivals.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Float.compare(arrivals[a], arrivals[b]));
+
+        int late = 0;
+        for (int i : order) {
+            float delay = playout.delay();
+            // extrapolation occurs if the render time passed the newest state before this arrival
+            if (i > 50 && arrivals[i] - delay > latest) late++;
+
+            playout.arrived(i * INTERVAL, arrivals[i]);
+            latest = Math.max(latest, i * INTERVAL);
+        }
+
+        float lateFraction = late / (arrivals.length - 50f);
+        assertTrue("late: " + lateFraction, lateFraction < 0.1f);
+        assertTrue(playout.delay() > INTERVAL);
+    }
+
+    @Test
+    public void testBounds() {
+        PlayoutDelay playout = new PlayoutDelay(8, 1f, 0.1f, 0.2f, 0);
+        playout.arrived(0, 0);
+        playout.arrived(0.01f, 0.01f);
+        assertEquals(0.1f, playout.delay(), 0);
+
+        playout.arrived(0.02f, 5);
+        assertEquals(0.2f, playout.delay(), 0);
+    }
+}
@@ -0,0 +1,120 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static nl.NG.Jetfightergame.ServerNetwork.MessageType.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class SelectorServerTest {
+    private static final int HANDSHAKE = 42;
+    private SelectorServer server;
+    private BlockingQueue<Integer> received;
+    private Socket client;
+
+    @Before
+    public void setUp() throws IOException {
+        received = new ArrayBlockingQueue<>(100);
+        // no game message is an exchange, thus the test defines its own
+        exchanges.add(SYNC_TIMER);
+        // the handshake echoes an int, after which every message is a type and an int, of which the int is collected
+        server = new SelectorServer(0, (in, out) -> {
+            DataInputStream input = new DataInputStream(in);
+            DataOutputStream output = new DataOutputStream(out);
+            output.writeInt(input.readInt() + 1);
+            output.flush();
+
+            return () -> {
+                MessageType type = MessageType.get(input.read());
+                if (type == CONNECTION_CLOSE) {
+                    received.add(-1);
+                    return false;
+
+                } else if (type == SYNC_TIMER) {
+                    // reply with a ping, and wait for the pong
+                    output.write(PING.ordinal());
+                    output.flush();
+                    assertEquals(PONG.ordinal(), input.read());
+                }
+
+                received.add(input.readInt());
+                return true;
+            };
+        });
+        server.listenInThread(true);
+
+        client = new Socket();
+        client.connect(new InetSocketAddress(((InetSocketAddress) server.getAddress()).getPort()));
+        DataOutputStream out = new DataOutputStream(client.getOutputStream());
+        out.writeInt(HANDSHAKE);
+        out.flush();
+        assertEquals(HANDSHAKE + 1, new DataInputStream(client.getInputStream()).readInt());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+        exchanges.remove(SYNC_TIMER);
+    }
+
+    @Test(timeout = 5000)
+    public void testFragmentedMessages() throws IOException, InterruptedException {
+        OutputStream out = client.getOutputStream();
+
+        ByteBuffer messages = ByteBuffer.allocate(50);
+        for (int i = 0; i < 10; i++) {
+            messages.put((byte) SNAPSHOT_ACK.ordinal()).putInt(1000 + i);
+        }
+
+        // send the messages in pieces that split the messages
+        byte[] bytes = messages.array();
+        for (int i = 0; i < bytes.length; i += 3) {
+            out.write(bytes, i, Math.min(3, bytes.length - i));
+            out.flush();
+            Thread.sleep(1);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Integer.valueOf(1000 + i), received.poll(1, TimeUnit.SECONDS));
+        }
+
+        client.shutdownOutput();
+        assertEquals(Integer.valueOf(-1), received.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 5000)
+    public void testExchange() throws IOException, InterruptedException {
+        DataOutputStream out = new DataOutputStream(client.getOutputStream());
+        DataInputStream in = new DataInputStream(client.getInputStream());
+
+        out.write(SYNC_TIMER.ordinal());
+        out.flush();
+        assertEquals(PING.ordinal(), in.read());
+
+        // the bytes that arrive during the exchange are read by the exchange, and the rest is dispatched afterwards
+        out.write(PONG.ordinal());
+        out.writeInt(1);
+        out.write(SNAPSHOT_ACK.ordinal());
+        out.writeInt(2);
+        out.flush();
+
+        assertEquals(Integer.valueOf(1), received.poll(1, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(2), received.poll(1, TimeUnit.SECONDS));
+    }
+}
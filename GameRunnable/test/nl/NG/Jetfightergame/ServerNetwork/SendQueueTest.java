@@ -0,0 +1,145 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static nl.NG.Jetfightergame.ServerNetwork.MessageType.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class SendQueueTest {
+    private static final int CAPACITY = 100;
+    private static final SendQueue.Drain NO_DRAIN = new SendQueue.Drain() {
+        @Override
+        public void onAvailable() {
+        }
+
+        @Override
+        public void onClose() {
+        }
+    };
+
+    @Test
+    public void testDropStaleUpdates() throws IOException {
+        SendQueue queue = queue(SendQueue.Policy.DROP_STALE_UPDATES);
+
+        assertTrue(send(queue, ENTITY_SPAWN, 40));
+        assertTrue(send(queue, ENTITY_UPDATE_BATCH, 40));
+        // the update is dropped to make room
+        assertTrue(send(queue, ENTITY_REMOVE, 40));
+        assertEquals(2, queue.depth());
+        assertEquals(80, queue.size());
+        assertEquals(1, queue.nOfDropped());
+
+        // a new update that does not fit is dropped itself
+        assertTrue(send(queue, ENTITY_UPDATE_BATCH, 40));
+        assertEquals(2, queue.depth());
+        assertEquals(2, queue.nOfDropped());
+
+        // reliable messages that do not fit overflow the queue
+        assertFalse(send(queue, ENTITY_SPAWN, 40));
+        assertFalse(send(queue, ENTITY_SPAWN, 1));
+
+        // the order of the remaining messages is kept
+        assertEquals(ENTITY_SPAWN.ordinal(), queue.poll(CAPACITY)[0]);
+        assertEquals(ENTITY_REMOVE.ordinal(), queue.poll(CAPACITY)[0]);
+        assertNull(queue.poll(CAPACITY));
+    }
+
+    @Test
+    public void testDisconnect() throws IOException {
+        SendQueue queue = queue(SendQueue.Policy.DISCONNECT);
+
+        assertTrue(send(queue, ENTITY_UPDATE_BATCH, 60));
+        assertFalse(send(queue, ENTITY_UPDATE_BATCH, 60));
+        assertEquals(60, queue.peakSize());
+    }
+
+    @Test(timeout = 5000)
+    public void testBlock() throws IOException, InterruptedException {
+        SendQueue queue = queue(SendQueue.Policy.BLOCK);
+        assertTrue(send(queue, ENTITY_SPAWN, 60));
+
+        CountDownLatch sent = new CountDownLatch(1);
+        new Thread(() -> {
+            try {
+                send(queue, ENTITY_SPAWN, 60);
+                sent.countDown();
+
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }).start();
+
+        assertFalse(sent.await(100, TimeUnit.MILLISECONDS));
+        assertNotNull(queue.poll(CAPACITY));
+        assertTrue(sent.await(1, TimeUnit.SECONDS));
+        assertEquals(1, queue.depth());
+    }
+
+    @Test(timeout = 5000)
+    public void testBlockOnDrainThread() throws IOException {
+        SendQueue queue = new SendQueue(CAPACITY, SendQueue.Policy.BLOCK);
+        queue.setDrain(new SendQueue.Drain() {
+            @Override
+            public void onAvailable() {
+            }
+
+            @Override
+            public void onClose() {
+            }
+
+            @Override
+            public boolean isDrainThread() {
+                return true;
+            }
+        });
+
+        // a reply of the thread that drains the queue can not wait for that same thread
+        assertTrue(send(queue, ENTITY_SPAWN, 60));
+        assertTrue(send(queue, ENTITY_SPAWN, 60));
+        assertEquals(2, queue.depth());
+        assertEquals(120, queue.peakSize());
+    }
+
+    @Test(timeout = 5000)
+    public void testDrainInThread() throws IOException, InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SendQueue queue = SendQueue.drainInThread(out, CAPACITY, SendQueue.Policy.BLOCK, "test");
+
+        // many more bytes than the capacity
+        for (int i = 0; i < 1000; i++) {
+            queue.write(i);
+            queue.endMessage(ENTITY_SPAWN);
+            queue.flush();
+        }
+
+        while (out.size() < 1000) Thread.sleep(1);
+
+        byte[] result = out.toByteArray();
+        assertEquals(0, queue.depth());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals((byte) i, result[i]);
+        }
+        queue.close();
+    }
+
+    private static SendQueue queue(SendQueue.Policy policy) {
+        SendQueue queue = new SendQueue(CAPACITY, policy);
+        queue.setDrain(NO_DRAIN);
+        return queue;
+    }
+
+    /** queues a message of the given type and size */
+    private static boolean send(SendQueue queue, MessageType type, int size) throws IOException {
+        queue.write(type.ordinal());
+        queue.write(new byte[size - 1]);
+        return queue.endMessage(type);
+    }
+}
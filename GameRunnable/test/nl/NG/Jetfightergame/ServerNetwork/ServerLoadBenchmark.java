@@ -0,0 +1,205 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import nl.NG.Jetfightergame.Assets.Shapes.GeneralShapes;
+import nl.NG.Jetfightergame.Engine.AbstractGameLoop;
+import nl.NG.Jetfightergame.Settings.ClientSettings;
+import nl.NG.Jetfightergame.Settings.ServerSettings;
+import nl.NG.Jetfightergame.Tools.Logger;
+import org.junit.Test;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * starts a server and a number of {@link LoadTestBot bots} in this process, without window or sound, and reports the
+ * time the server needs per tick, the bytes per second per client and the pauses of the garbage collector. The number
+ * of bots and the duration are set with the system properties {@code load.clients} and {@code load.seconds}, and
+ * {@code load.rooms} divides the bots over that number of games on the same server. {@code load.ai=false} gives all
+ * bots random controls, and {@code load.race=false} keeps the bots in the lobby. This is not part of the regular test
+ * suite, as it only prints its results. To run it:
+ * <pre>mvn test -pl GameRunnable -DskipTests=false -Dtest=ServerLoadBenchmark -Dload.clients=16</pre>
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class ServerLoadBenchmark {
+    private static final int NOF_CLIENTS = Integer.getInteger("load.clients", 8);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 20);
+    private static final int NOF_ROOMS = Integer.getInteger("load.rooms", 1);
+    private static final boolean USE_AI = Boolean.parseBoolean(System.getProperty("load.ai", "true"));
+    private static final boolean START_RACE = Boolean.parseBoolean(System.getProperty("load.race", "true"));
+    /** the time after starting the race that is not measured */
+    private static final int WARMUP_SECONDS = 3;
+
+    private final List<NotificationEmitter> gcEmitters = new ArrayList<>();
+    private NotificationListener gcListener;
+    private long[] gcPauses = new long[64];
+    private int nOfGcPauses = 0;
+    private long[] tickNanos = new long[1024];
+    private int nOfTicks = 0;
+    private volatile boolean isMeasuring = false;
+
+    @Test
+    public void benchmarkServerLoad() throws Exception {
+        GeneralShapes.init(false);
+        JetFighterServer server = new JetFighterServer(EnvironmentClass.ISLAND_MAP, false);
+        server.expectHost();
+        server.listenInThread(true);
+
+        AbstractGameLoop serverLoop = server.getRunnable();
+        serverLoop.setTickListener(this::recordTick);
+        serverLoop.setDaemon(true);
+        serverLoop.start();
+        for (int r = 1; r < NOF_ROOMS; r++) {
+            server.openRoom(r, EnvironmentClass.ISLAND_MAP, false).setTickListener(this::recordTick);
+        }
+
+        Random random = new Random(1);
+        List<LoadTestBot> bots = new ArrayList<>(NOF_CLIENTS);
+        for (int i = 0; i < NOF_CLIENTS; i++) {
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), ServerSettings.SERVER_PORT);
+            // the first bot of each room is the host, and uses random controls such that there is always some shooting
+            boolean isHost = i < NOF_ROOMS;
+            LoadTestBot bot = new LoadTestBot(
+                    "Bot " + i, socket, i % NOF_ROOMS, USE_AI && !isHost, new Random(random.nextLong())
+            );
+            bot.listenInThread(true);
+            bots.add(bot);
+        }
+        Logger.INFO.print("Connected " + NOF_CLIENTS + " bots to " + NOF_ROOMS + " rooms");
+
+        // the countdown of the race is part of the warmup
+        if (START_RACE) for (int r = 0; r < Math.min(NOF_ROOMS, NOF_CLIENTS); r++) {
+            bots.get(r).send(MessageType.START_GAME);
+        }
+        Thread controls = new Thread(() -> sendControls(bots), "Bot controls");
+        controls.setDaemon(true);
+        controls.start();
+        Thread.sleep(WARMUP_SECONDS * 1000);
+
+        listenToGarbageCollection();
+        long[] startReceived = bots.stream().mapToLong(LoadTestBot::bytesReceived).toArray();
+        long[] startSent = bots.stream().mapToLong(LoadTestBot::bytesSent).toArray();
+        long start = System.nanoTime();
+        isMeasuring = true;
+
+        Thread.sleep(SECONDS * 1000);
+
+        isMeasuring = false;
+        float seconds = (System.nanoTime() - start) * 1E-9f;
+        float[] received = new float[NOF_CLIENTS];
+        float[] sent = new float[NOF_CLIENTS];
+        for (int i = 0; i < NOF_CLIENTS; i++) {
+            received[i] = (bots.get(i).bytesReceived() - startReceived[i]) / seconds;
+            sent[i] = (bots.get(i).bytesSent() - startSent[i]) / seconds;
+        }
+
+        stopListeningToGarbageCollection();
+        controls.interrupt();
+        bots.forEach(LoadTestBot::close);
+        serverLoop.stopLoop();
+        server.close();
+
+        report(seconds, received, sent);
+    }
+
+    private void sendControls(List<LoadTestBot> bots) {
+        long interval = 1000 / ClientSettings.CONNECTION_SEND_FREQUENCY;
+        try {
+            while (!Thread.interrupted()) {
+                for (LoadTestBot bot : bots) {
+                    bot.sendControls();
+                }
+                Thread.sleep(interval);
+            }
+        } catch (InterruptedException | IOException ignored) {
+            // the benchmark has ended
+        }
+    }
+
+    /** called on the thread of each game */
+    private synchronized void recordTick(long nanos) {
+        if (!isMeasuring) return;
+        if (nOfTicks == tickNanos.length) tickNanos = Arrays.copyOf(tickNanos, nOfTicks * 2);
+        tickNanos[nOfTicks++] = nanos;
+    }
+
+    private void listenToGarbageCollection() {
+        gcListener = (notification, handback) -> {
+            if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+
+            synchronized (this) {
+                if (nOfGcPauses == gcPauses.length) gcPauses = Arrays.copyOf(gcPauses, nOfGcPauses * 2);
+                gcPauses[nOfGcPauses++] = info.getGcInfo().getDuration();
+            }
+        };
+
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (bean instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) bean;
+                emitter.addNotificationListener(gcListener, null, null);
+                gcEmitters.add(emitter);
+            }
+        }
+    }
+
+    private void stopListeningToGarbageCollection() throws Exception {
+        for (NotificationEmitter emitter : gcEmitters) {
+            emitter.removeNotificationListener(gcListener);
+        }
+    }
+
+    private synchronized void report(float seconds, float[] received, float[] sent) {
+        long[] ticks = Arrays.copyOf(tickNanos, nOfTicks);
+        Arrays.sort(ticks);
+        Logger.INFO.printf("%d clients in %d rooms, %d ticks in %.1f s (target %d TPS per room)",
+                NOF_CLIENTS, NOF_ROOMS, ticks.length, seconds, ServerSettings.TARGET_TPS
+        );
+        if (ticks.length > 0) {
+            Logger.INFO.printf("tick time   p50 %6.2f ms | p90 %6.2f ms | p99 %6.2f ms | max %6.2f ms",
+                    percentile(ticks, 0.5f) * 1E-6f, percentile(ticks, 0.9f) * 1E-6f,
+                    percentile(ticks, 0.99f) * 1E-6f, ticks[ticks.length - 1] * 1E-6f
+            );
+        }
+
+        Arrays.sort(received);
+        Arrays.sort(sent);
+        Logger.INFO.printf("downstream  min %8.0f B/s | avg %8.0f B/s | max %8.0f B/s per client",
+                received[0], average(received), received[received.length - 1]
+        );
+        Logger.INFO.printf("upstream    min %8.0f B/s | avg %8.0f B/s | max %8.0f B/s per client",
+                sent[0], average(sent), sent[sent.length - 1]
+        );
+
+        long total = 0, max = 0;
+        for (int i = 0; i < nOfGcPauses; i++) {
+            total += gcPauses[i];
+            max = Math.max(max, gcPauses[i]);
+        }
+        Logger.INFO.printf("gc pauses   %d collections | total %d ms | max %d ms", nOfGcPauses, total, max);
+    }
+
+    private static long percentile(long[] sorted, float fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static float average(float[] values) {
+        float sum = 0;
+        for (float value : values) sum += value;
+        return sum / values.length;
+    }
+}
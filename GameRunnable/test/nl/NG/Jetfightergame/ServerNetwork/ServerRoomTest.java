@@ -0,0 +1,110 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import nl.NG.Jetfightergame.Assets.Shapes.GeneralShapes;
+import nl.NG.Jetfightergame.Engine.AbstractGameLoop;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * connects {@link LoadTestBot bots} to several games of one server
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class ServerRoomTest {
+    private JetFighterServer server;
+    private final List<LoadTestBot> bots = new ArrayList<>();
+
+    @BeforeClass
+    public static void initShapes() {
+        GeneralShapes.init(false);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = new JetFighterServer(EnvironmentClass.ISLAND_MAP, false, 0);
+        server.listenInThread(true);
+    }
+
+    @After
+    public void tearDown() {
+        bots.forEach(LoadTestBot::close);
+        server.close();
+    }
+
+    @Test(timeout = 10000)
+    public void testRouting() throws IOException {
+        server.openRoom(1, EnvironmentClass.ISLAND_MAP, false);
+
+        // the first player of a new room is its host, but the first room waits for expectHost()
+        assertTrue(connect("A", 1).isAdmin());
+        assertFalse(connect("B", 1).isAdmin());
+        assertFalse(connect("C", JetFighterProtocol.DEFAULT_ROOM).isAdmin());
+
+        server.expectHost();
+        assertTrue(connect("D", JetFighterProtocol.DEFAULT_ROOM).isAdmin());
+    }
+
+    @Test(timeout = 10000)
+    public void testUnknownRoom() {
+        try {
+            connect("A", 2);
+            fail("Joined a room that does not exist");
+        } catch (IllegalStateException | IOException expected) {
+            // either the denial arrived, or the connection was closed first
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSharedPool() throws Exception {
+        AbstractGameLoop room = server.openRoom(1, EnvironmentClass.ISLAND_MAP, false);
+        CountDownLatch ticks = new CountDownLatch(10);
+        room.setTickListener(nanos -> ticks.countDown());
+        assertTrue(ticks.await(5, TimeUnit.SECONDS));
+
+        try {
+            server.openRoom(1, EnvironmentClass.ISLAND_MAP, false);
+            fail("Opened a room that is in use");
+        } catch (IllegalArgumentException expected) {
+            // the first game of room 1 still runs
+        }
+
+        room.stopLoop();
+        AbstractGameLoop next = server.openRoom(1, EnvironmentClass.ISLAND_MAP, false);
+        assertNotSame(room, next);
+    }
+
+    @Test(timeout = 10000)
+    public void testEndedRoomRemoved() throws InterruptedException {
+        AbstractGameLoop room = server.openRoom(1, EnvironmentClass.ISLAND_MAP, false);
+        assertTrue(server.hasRoom(1));
+
+        room.stopLoop();
+        while (server.hasRoom(1)) {
+            Thread.sleep(10);
+        }
+
+        // the first game is stopped by its caller, and is never removed
+        assertTrue(server.hasRoom(JetFighterProtocol.DEFAULT_ROOM));
+    }
+
+    private LoadTestBot connect(String name, int room) throws IOException {
+        int port = ((InetSocketAddress) server.getAddress()).getPort();
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        LoadTestBot bot = new LoadTestBot(name, socket, room, false, new Random(1));
+        bots.add(bot);
+        return bot;
+    }
+}
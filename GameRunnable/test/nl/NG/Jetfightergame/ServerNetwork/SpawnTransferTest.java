@@ -0,0 +1,214 @@
+package nl.NG.Jetfightergame.ServerNetwork;
+
+import nl.NG.Jetfightergame.Assets.Entities.FighterJets.AbstractJet;
+import nl.NG.Jetfightergame.Assets.Shapes.GeneralShapes;
+import nl.NG.Jetfightergame.Engine.GameTimer;
+import nl.NG.Jetfightergame.EntityGeneral.Factory.EntityFactory;
+import nl.NG.Jetfightergame.EntityGeneral.MovingEntity;
+import nl.NG.Jetfightergame.EntityGeneral.Powerups.PowerupEntity;
+import nl.NG.Jetfightergame.EntityGeneral.Powerups.PowerupType;
+import nl.NG.Jetfightergame.GameState.EnvironmentManager;
+import nl.NG.Jetfightergame.GameState.RaceProgress;
+import nl.NG.Jetfightergame.GameState.SpawnReceiver;
+import nl.NG.Jetfightergame.Rendering.Particles.ParticleCloud;
+import nl.NG.Jetfightergame.Sound.AudioSource;
+import nl.NG.Jetfightergame.Tools.Directory;
+import nl.NG.Jetfightergame.Tools.Logger;
+import nl.NG.Jetfightergame.Tools.RingPipe;
+import nl.NG.Jetfightergame.Tools.Vectors.Color4f;
+import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * sends the entities of each world to a new player, as separate messages and as one compressed message, and prints
+ * the bytes of both and the time until the player has constructed all entities. The race worlds are skipped when their
+ * race paths can not be found from the working directory.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+@RunWith(Parameterized.class)
+public class SpawnTransferTest {
+    private static final int PIPE_SIZE = 1 << 24;
+    /** below this number of entities, the header of the compression may outweigh its gain */
+    private static final int MIN_COMPRESSIBLE = 10;
+
+    private final EnvironmentClass type;
+    private final SpawnReceiver deposit = new Deposit();
+    private InputStream clientIn;
+    private OutputStream serverOut;
+    private JetFighterProtocol server;
+    private JetFighterProtocol client;
+
+    @BeforeClass
+    public static void initShapes() {
+        GeneralShapes.init(false);
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Object[] worlds() {
+        return EnvironmentClass.values();
+    }
+
+    public SpawnTransferTest(EnvironmentClass type) {
+        this.type = type;
+    }
+
+    @Test
+    public void testWorld() throws Exception {
+        boolean isRaceWorld = Arrays.asList(EnvironmentClass.raceWorlds).contains(type);
+        assumeTrue(type + " needs " + Directory.meshes.getFile("maps"),
+                !isRaceWorld || Directory.meshes.getFile("maps").isDirectory()
+        );
+
+        connect();
+        Deposit serverDeposit = new Deposit();
+        EnvironmentManager serverWorld = new EnvironmentManager(type, serverDeposit, new RaceProgress(), true, false);
+        serverWorld.build();
+        EnvironmentManager clientWorld = new EnvironmentManager(type, deposit, new RaceProgress(), false, false);
+        clientWorld.build();
+
+        // like the server, construct the initial entities and send the factories of these
+        List<EntityFactory> entities = new ArrayList<>(serverDeposit.spawned.size());
+        for (EntityFactory factory : serverDeposit.spawned) {
+            MovingEntity entity = factory.construct(serverDeposit, serverWorld);
+            serverWorld.addEntity(entity);
+            entities.add(entity.getFactory());
+        }
+
+        long start = System.nanoTime();
+        for (EntityFactory entity : entities) {
+            serverOut.write(MessageType.ENTITY_SPAWN.ordinal());
+            server.newEntitySend(entity);
+        }
+        serverOut.flush();
+        int separateBytes = clientIn.available();
+
+        List<MovingEntity> separate = new ArrayList<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            assertEquals(MessageType.ENTITY_SPAWN.ordinal(), clientIn.read());
+            separate.add(client.newEntityRead(deposit, clientWorld));
+        }
+        float separateTime = (System.nanoTime() - start) * 1E-6f;
+
+        start = System.nanoTime();
+        serverOut.write(MessageType.ENTITY_SPAWN_BATCH.ordinal());
+        server.newEntitiesSend(entities);
+        serverOut.flush();
+        int batchBytes = clientIn.available();
+
+        assertEquals(MessageType.ENTITY_SPAWN_BATCH.ordinal(), clientIn.read());
+        List<MovingEntity> batch = client.newEntitiesRead(deposit, clientWorld);
+        float batchTime = (System.nanoTime() - start) * 1E-6f;
+
+        Logger.INFO.printf("%-10s %5d entities | separate %8d bytes %7.2f ms | batch %8d bytes %7.2f ms",
+                type, entities.size(), separateBytes, separateTime, batchBytes, batchTime
+        );
+
+        assertEquals(0, clientIn.available());
+        assertEquals(entities.size(), batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            assertEquals(separate.get(i).idNumber(), batch.get(i).idNumber());
+            assertEquals(separate.get(i).getClass(), batch.get(i).getClass());
+        }
+        if (entities.size() >= MIN_COMPRESSIBLE) {
+            assertTrue(type + " was not compressed", batchBytes < separateBytes);
+        }
+
+        serverWorld.cleanUp();
+        clientWorld.cleanUp();
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        connect();
+        serverOut.write(MessageType.ENTITY_SPAWN_BATCH.ordinal());
+        server.newEntitiesSend(new ArrayList<>());
+        serverOut.flush();
+
+        assertEquals(MessageType.ENTITY_SPAWN_BATCH.ordinal(), clientIn.read());
+        assertTrue(client.newEntitiesRead(deposit, null).isEmpty());
+        assertEquals(0, clientIn.available());
+    }
+
+    /** connects a server protocol to a client protocol, which both wait for the other side */
+    private void connect() throws Exception {
+        RingPipe toClient = new RingPipe(PIPE_SIZE);
+        RingPipe toServer = new RingPipe(PIPE_SIZE);
+        clientIn = toClient.getInputStream();
+        serverOut = toClient.getOutputStream();
+
+        FutureTask<JetFighterProtocol> serverSide = new FutureTask<>(() ->
+                new JetFighterProtocol(toServer.getInputStream(), serverOut)
+        );
+        new Thread(serverSide, "Server handshake").start();
+        client = new JetFighterProtocol(clientIn, toServer.getOutputStream());
+        server = serverSide.get();
+    }
+
+    /** receives the entities of one side, without sound or interpolation */
+    private static class Deposit implements SpawnReceiver {
+        private final GameTimer timer = new GameTimer();
+        private final List<EntityFactory> spawned = new ArrayList<>();
+
+        @Override
+        public void add(EntityFactory entityFactory) {
+            spawned.add(entityFactory);
+        }
+
+        @Override
+        public void add(ParticleCloud particles) {
+        }
+
+        @Override
+        public void add(AudioSource source) {
+        }
+
+        @Override
+        public GameTimer getTimer() {
+            return timer;
+        }
+
+        @Override
+        public void addExplosion(
+                PosVector position, DirVector direction, Color4f color1, Color4f color2, float power, int density,
+                float lingerTime, float particleSize
+        ) {
+        }
+
+        @Override
+        public void powerupCollect(PowerupEntity powerup, float collectionTime, boolean isCollected) {
+        }
+
+        @Override
+        public void playerPowerupState(AbstractJet jet, PowerupType newType) {
+        }
+
+        @Override
+        public void addGravitySource(Supplier<PosVector> position, float magnitude, float duration) {
+        }
+
+        @Override
+        public void boosterColorChange(AbstractJet jet, Color4f color1, Color4f color2, float duration) {
+        }
+
+        @Override
+        public boolean isHeadless() {
+            return true;
+        }
+    }
+}
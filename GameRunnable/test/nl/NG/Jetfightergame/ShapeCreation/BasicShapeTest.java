@@ -0,0 +1,75 @@
+package nl.NG.Jetfightergame.ShapeCreation;
+
+import nl.NG.Jetfightergame.EntityGeneral.Hitbox.Collision;
+import nl.NG.Jetfightergame.EntityGeneral.Hitbox.CollisionBuffer;
+import nl.NG.Jetfightergame.Primitives.Plane;
+import nl.NG.Jetfightergame.Tools.Vectors.DirVector;
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class BasicShapeTest {
+    private static final int GRID_SIZE = 20;
+
+    @Test
+    public void treeCollisionMatchesPlaneScan() {
+        Random random = new Random(3);
+        CustomShape frame = new CustomShape();
+        DirVector up = new DirVector(0, 0, 1);
+
+        float[][] heights = new float[GRID_SIZE + 1][GRID_SIZE + 1];
+        for (float[] row : heights) {
+            for (int y = 0; y < row.length; y++) row[y] = random.nextFloat() * 3;
+        }
+        for (int x = 0; x < GRID_SIZE; x++) {
+            for (int y = 0; y < GRID_SIZE; y++) {
+                PosVector a = new PosVector(x, y, heights[x][y]);
+                PosVector b = new PosVector(x + 1, y, heights[x + 1][y]);
+                PosVector c = new PosVector(x + 1, y + 1, heights[x + 1][y + 1]);
+                PosVector d = new PosVector(x, y + 1, heights[x][y + 1]);
+                frame.addTriangle(a, b, c, up);
+                frame.addTriangle(a, c, d, up);
+            }
+        }
+        Shape shape = frame.wrapUp(false);
+
+        int nOfHits = 0;
+        for (int i = 0; i < 500; i++) {
+            PosVector start = new PosVector(random.nextFloat() * GRID_SIZE, random.nextFloat() * GRID_SIZE, random.nextFloat() * 6 - 1.5f);
+            DirVector direction = new DirVector(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f).scale(6);
+            PosVector end = start.add(direction, new PosVector());
+
+            Collision expected = scan(shape, start, direction, end);
+            Collision result = shape.getCollision(start, direction, end);
+
+            if (expected == null) {
+                Assert.assertNull(result);
+            } else {
+                nOfHits++;
+                Assert.assertNotNull(result);
+                Assert.assertEquals(expected.timeScalar, result.timeScalar, 1E-6f);
+            }
+
+            CollisionBuffer query = new CollisionBuffer();
+            query.setLine(start, end);
+            Assert.assertEquals(expected != null, shape.checkCollision(query));
+            if (expected != null) Assert.assertEquals(expected.timeScalar, query.timeScalar(), 1E-6f);
+        }
+        assert nOfHits > 0 : "no segment hit the shape";
+    }
+
+    /** the plane-by-plane collision check */
+    private static Collision scan(Shape shape, PosVector start, DirVector direction, PosVector end) {
+        Collision first = null;
+        for (Plane plane : shape.getPlanes()) {
+            Collision c = plane.getCollisionWith(start, direction, end);
+            if (c != null && (first == null || c.compareTo(first) < 0)) first = c;
+        }
+        return first;
+    }
+}
@@ -0,0 +1,133 @@
+package nl.NG.Jetfightergame.Tools;
+
+import nl.NG.Jetfightergame.Tools.Vectors.PosVector;
+import org.joml.Quaternionf;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class DataIOTest {
+    private static final int NOF_SAMPLES = 100_000;
+
+    @Test
+    public void testPositionErrorBound() throws IOException {
+        Random random = new Random(11);
+        float bound = 4096;
+        float maxError = bound / ((1 << 21) - 1);
+
+        for (int i = 0; i < NOF_SAMPLES; i++) {
+            PosVector v = new PosVector(
+                    (random.nextFloat() * 2 - 1) * bound,
+                    (random.nextFloat() * 2 - 1) * bound,
+                    (random.nextFloat() * 2 - 1) * bound
+            );
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataIO.writeQuantizedPosition(new DataOutputStream(bytes), v, bound);
+            assertEquals(8, bytes.size());
+
+            PosVector result = DataIO.readQuantizedPosition(asInput(bytes), bound, new PosVector());
+            assertEquals(v.x, result.x, maxError);
+            assertEquals(v.y, result.y, maxError);
+            assertEquals(v.z, result.z, maxError);
+        }
+    }
+
+    @Test
+    public void testPositionOnBounds() throws IOException {
+        float bound = 512;
+        PosVector[] vectors = {
+                new PosVector(bound, bound, bound),
+                new PosVector(-bound, -bound, -bound),
+                new PosVector(0, -bound, bound)
+        };
+
+        for (PosVector v : vectors) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataIO.writeQuantizedPosition(new DataOutputStream(bytes), v, bound);
+            PosVector result = DataIO.readQuantizedPosition(asInput(bytes), bound, new PosVector());
+            assertEquals(v.x, result.x, 1e-3f);
+            assertEquals(v.y, result.y, 1e-3f);
+            assertEquals(v.z, result.z, 1e-3f);
+        }
+    }
+
+    @Test
+    public void testPositionOutOfBoundsIsExact() throws IOException {
+        float bound = 512;
+        PosVector v = new PosVector(12.3f, -600.75f, 0.1f);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataIO.writeQuantizedPosition(new DataOutputStream(bytes), v, bound);
+        PosVector result = DataIO.readQuantizedPosition(asInput(bytes), bound, new PosVector());
+        assertEquals(v, result);
+    }
+
+    @Test
+    public void testQuaternionErrorBound() throws IOException {
+        Random random = new Random(13);
+        double maxAngle = 0;
+
+        for (int i = 0; i < NOF_SAMPLES; i++) {
+            Quaternionf q = randomRotation(random);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataIO.writeQuantizedQuaternion(new DataOutputStream(bytes), q);
+            assertEquals(6, bytes.size());
+
+            Quaternionf result = DataIO.readQuantizedQuaternion(asInput(bytes), new Quaternionf());
+            // q and -q are the same rotation
+            float sign = Math.signum(q.dot(result));
+            assertEquals(q.x, sign * result.x, 1e-4f);
+            assertEquals(q.y, sign * result.y, 1e-4f);
+            assertEquals(q.z, sign * result.z, 1e-4f);
+            assertEquals(q.w, sign * result.w, 1e-4f);
+
+            // the rotation angle between two unit quaternions is 4 asin(|q - r| / 2). Using acos of the dot product
+            // is not precise enough for such small angles
+            double dx = q.x - sign * result.x, dy = q.y - sign * result.y, dz = q.z - sign * result.z, dw = q.w - sign * result.w;
+            double angle = 4 * Math.asin(Math.sqrt(dx * dx + dy * dy + dz * dz + dw * dw) / 2);
+            maxAngle = Math.max(maxAngle, angle);
+        }
+
+        // less than a fiftieth degree
+        assertTrue("max angle " + maxAngle, Math.toDegrees(maxAngle) < 0.02);
+    }
+
+    @Test
+    public void testQuaternionAxisAligned() throws IOException {
+        Quaternionf[] rotations = {
+                new Quaternionf(),
+                new Quaternionf(0, 0, 0, -1),
+                new Quaternionf(1, 0, 0, 0),
+                new Quaternionf().rotateY((float) Math.PI / 2),
+                new Quaternionf().rotateZ((float) -Math.PI / 2)
+        };
+
+        for (Quaternionf q : rotations) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataIO.writeQuantizedQuaternion(new DataOutputStream(bytes), q);
+            Quaternionf result = DataIO.readQuantizedQuaternion(asInput(bytes), new Quaternionf());
+            assertEquals(1, Math.abs(q.dot(result)), 1e-4f);
+        }
+    }
+
+    private static Quaternionf randomRotation(Random random) {
+        Quaternionf q = new Quaternionf(
+                (float) random.nextGaussian(), (float) random.nextGaussian(),
+                (float) random.nextGaussian(), (float) random.nextGaussian()
+        );
+        return q.normalize();
+    }
+
+    private static DataInputStream asInput(ByteArrayOutputStream bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}
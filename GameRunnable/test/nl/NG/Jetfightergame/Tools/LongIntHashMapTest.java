@@ -0,0 +1,69 @@
+package nl.NG.Jetfightergame.Tools;
+
+import nl.NG.Jetfightergame.Tools.DataStructures.LongIntHashMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class LongIntHashMapTest {
+    private LongIntHashMap instance;
+    private Map<Long, Integer> reference;
+
+    @Before
+    public void setUp() {
+        instance = new LongIntHashMap();
+        reference = new HashMap<>();
+    }
+
+    @Test
+    public void testAddRemovesZero() {
+        assertEquals(1, instance.add(5L, 1));
+        assertEquals(2, instance.add(5L, 1));
+        assertEquals(0, instance.add(5L, -2));
+        assertEquals(0, instance.size());
+        assertEquals(0, instance.get(5L));
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            // few distinct keys, such that clusters form and keys are removed often
+            long key = ((long) random.nextInt(40) << 32) | random.nextInt(40);
+            int delta = random.nextInt(3) - 1;
+
+            int expected = reference.getOrDefault(key, 0) + delta;
+            if (expected == 0) reference.remove(key);
+            else reference.put(key, expected);
+
+            assertEquals(expected, instance.add(key, delta));
+        }
+        assertContentEquals();
+
+        instance.removeIf(k -> (k & 1) == 0);
+        reference.keySet().removeIf(k -> (k & 1) == 0);
+        assertContentEquals();
+    }
+
+    private void assertContentEquals() {
+        assertEquals(reference.size(), instance.size());
+
+        Set<Long> keys = new HashSet<>();
+        instance.forEachKey(keys::add);
+        assertEquals(reference.keySet(), keys);
+
+        for (Map.Entry<Long, Integer> entry : reference.entrySet()) {
+            assertEquals((int) entry.getValue(), instance.get(entry.getKey()));
+        }
+    }
+}
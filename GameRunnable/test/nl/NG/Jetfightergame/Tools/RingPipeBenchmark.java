@@ -0,0 +1,110 @@
+package nl.NG.Jetfightergame.Tools;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.IntFunction;
+
+/**
+ * compares the throughput and latency of {@link RingPipe} with the {@link StreamPipe} it replaced, for messages the
+ * size of those of the game. This is not part of the regular test suite, as it only prints its results.
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class RingPipeBenchmark {
+    private static final int MESSAGE_SIZE = 100;
+    private static final int NOF_MESSAGES = 200_000;
+    private static final int NOF_ROUND_TRIPS = 20_000;
+    private static final int ROUNDS = 3;
+
+    @Test
+    public void benchmarkThroughput() throws Exception {
+        for (int r = 0; r < ROUNDS; r++) {
+            throughput("StreamPipe(1024)", StreamPipe::new, 1024);
+            throughput("RingPipe(1024)", RingPipe::new, 1024);
+            throughput("RingPipe(65536)", RingPipe::new, 65536);
+        }
+    }
+
+    @Test
+    public void benchmarkLatency() throws Exception {
+        for (int r = 0; r < ROUNDS; r++) {
+            latency("StreamPipe", StreamPipe::new);
+            latency("RingPipe", RingPipe::new);
+        }
+    }
+
+    /** writes messages of MESSAGE_SIZE bytes, flushing each, while another thread reads them */
+    private static void throughput(String name, IntFunction<Object> pipes, int bufferSize) throws Exception {
+        Object pipe = pipes.apply(bufferSize);
+        InputStream in = inputOf(pipe);
+        OutputStream out = outputOf(pipe);
+
+        Thread writer = new Thread(() -> {
+            byte[] message = new byte[MESSAGE_SIZE];
+            try {
+                for (int i = 0; i < NOF_MESSAGES; i++) {
+                    message[0] = (byte) i;
+                    out.write(message);
+                    out.flush();
+                }
+            } catch (IOException ex) {
+                Logger.ERROR.print(ex);
+            }
+        });
+
+        byte[] message = new byte[MESSAGE_SIZE];
+        long start = System.nanoTime();
+        writer.start();
+        for (int i = 0; i < NOF_MESSAGES; i++) {
+            if (in.read(message) != MESSAGE_SIZE || message[0] != (byte) i) throw new IllegalStateException(name);
+        }
+        long nanos = System.nanoTime() - start;
+        writer.join();
+
+        float megabytes = (NOF_MESSAGES * (float) MESSAGE_SIZE) / (1 << 20);
+        Logger.INFO.printf("%-18s %8.1f MB/s", name, megabytes / (nanos * 1E-9f));
+    }
+
+    /** sends one byte back and forth between two threads, over two pipes */
+    private static void latency(String name, IntFunction<Object> pipes) throws Exception {
+        Object there = pipes.apply(256);
+        Object back = pipes.apply(256);
+        InputStream thereIn = inputOf(there);
+        OutputStream thereOut = outputOf(there);
+        InputStream backIn = inputOf(back);
+        OutputStream backOut = outputOf(back);
+
+        Thread echo = new Thread(() -> {
+            try {
+                for (int i = 0; i < NOF_ROUND_TRIPS; i++) {
+                    backOut.write(thereIn.read());
+                    backOut.flush();
+                }
+            } catch (IOException ex) {
+                Logger.ERROR.print(ex);
+            }
+        });
+        echo.start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < NOF_ROUND_TRIPS; i++) {
+            thereOut.write(i);
+            thereOut.flush();
+            if (backIn.read() != (i & 0xFF)) throw new IllegalStateException(name);
+        }
+        long nanos = System.nanoTime() - start;
+        echo.join();
+
+        Logger.INFO.printf("%-18s %8.2f us per round trip", name, (nanos * 1E-3f) / NOF_ROUND_TRIPS);
+    }
+
+    private static InputStream inputOf(Object pipe) {
+        return (pipe instanceof RingPipe) ? ((RingPipe) pipe).getInputStream() : ((StreamPipe) pipe).getInputStream();
+    }
+
+    private static OutputStream outputOf(Object pipe) {
+        return (pipe instanceof RingPipe) ? ((RingPipe) pipe).getOutputStream() : ((StreamPipe) pipe).getOutputStream();
+    }
+}
@@ -0,0 +1,15 @@
+package nl.NG.Jetfightergame.Tools;
+
+import org.junit.Before;
+
+/**
+ * @author Geert van Ieperen created on 18-10-2026.
+ */
+public class RingPipeTest extends StreamCombinationTest {
+    @Before
+    public void setUp() throws Exception {
+        RingPipe pipe = new RingPipe(BUFFER_SIZE);
+        in = pipe.getInputStream();
+        out = pipe.getOutputStream();
+    }
+}